@@ -0,0 +1,58 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.3"
+}
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    implementation("com.example.game_2048:engine")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    benchmarkMode.set(listOf("avgt"))
+    timeUnit.set("ns")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    // ./gradlew jmh -Pjmh.includes=Move runs a subset
+    if (project.hasProperty("jmh.includes")) {
+        includes.set(listOf(project.property("jmh.includes").toString()))
+    }
+}
+
+// Prints ns/op, moves/second and bytes allocated per op from the last jmh run
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+
+tasks.register("jmhReport") {
+    group = "benchmark"
+    description = "Summarises build/results/jmh/results.json"
+    mustRunAfter("jmh")
+    doLast {
+        @Suppress("UNCHECKED_CAST")
+        val results = groovy.json.JsonSlurper().parse(jmhResults.get().asFile) as List<Map<String, Any?>>
+        println(String.format("%-52s %-10s %12s %16s %10s", "Benchmark", "Corpus", "ns/op", "ops/s", "B/op"))
+        for (result in results) {
+            val name = result["benchmark"].toString().substringAfterLast("game_2048.")
+            val params = (result["params"] as Map<*, *>?)?.values?.joinToString(",") ?: "-"
+            val primary = result["primaryMetric"] as Map<*, *>
+            val nanos = (primary["score"] as Number).toDouble()
+            val secondary = result["secondaryMetrics"] as Map<*, *>
+            val alloc = (secondary["gc.alloc.rate.norm"] as Map<*, *>?)?.get("score") as Number?
+            println(String.format("%-52s %-10s %12.2f %16.0f %10.1f",
+                name, params, nanos, 1e9 / nanos, alloc?.toDouble() ?: Double.NaN))
+        }
+    }
+}
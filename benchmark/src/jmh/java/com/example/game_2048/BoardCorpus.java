@@ -0,0 +1,61 @@
+package com.example.game_2048;
+
+import java.util.Random;
+
+// Fixed, seeded sets of packed boards so every run measures exactly the same positions
+final class BoardCorpus {
+
+    static final int SIZE = 1024;
+    static final int MASK = SIZE - 1;
+
+    private BoardCorpus() {
+    }
+
+    static long[] named(String name) {
+        switch (name) {
+            case "early":
+                return collect(0xE4A1L, 2, 4);
+            case "mid":
+                return collect(0x3D1DL, 7, 10);
+            case "nearFull":
+                return collect(0xF011L, 14, 15);
+            default:
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+        }
+    }
+
+    // Plays random games and keeps boards whose tile count lies in [minTiles, maxTiles]
+    private static long[] collect(long seed, int minTiles, int maxTiles) {
+        Random random = new Random(seed);
+        long[] boards = new long[SIZE];
+        int count = 0;
+        long board = newGame(random);
+
+        while (count < SIZE) {
+            int tiles = BoardEngine.CELLS - BoardEngine.emptyCount(board);
+            if (tiles >= minTiles && tiles <= maxTiles && BoardEngine.canMove(board)) {
+                boards[count++] = board;
+            }
+
+            long next = BoardEngine.move(board, random.nextInt(4));
+            if (!BoardEngine.canMove(board) || tiles > maxTiles) {
+                board = newGame(random);
+            } else if (next != board) {
+                board = spawn(next, random);
+            }
+        }
+        return boards;
+    }
+
+    private static long newGame(Random random) {
+        return spawn(spawn(0L, random), random);
+    }
+
+    static long spawn(long board, Random random) {
+        int empty = BoardEngine.emptyCount(board);
+        if (empty == 0) {
+            return board;
+        }
+        return BoardEngine.insertTile(board, random.nextInt(empty), random.nextFloat() < 0.9 ? 1 : 2);
+    }
+}
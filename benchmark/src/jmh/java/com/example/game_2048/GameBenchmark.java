@@ -0,0 +1,48 @@
+package com.example.game_2048;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Game.move() end to end (slide, score, spawn), as called by GameBoard.move()
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    private Game game;
+    private final MoveHistory history = new MoveHistory();
+    private final MovePolicy policy = new CornerPolicy();
+
+    @Setup
+    public void setUp() {
+        game = new Game(new Random(2048));
+        history.reset(game.getBoard());
+    }
+
+    @Benchmark
+    public long playMove() {
+        int direction = policy.chooseMove(game.getBoard());
+        if (direction < 0) {
+            game.restart();
+        } else {
+            game.move(direction);
+        }
+        return game.getBoard();
+    }
+
+    // Same, plus the undo bookkeeping GameBoard.move() does
+    @Benchmark
+    public long playMoveWithHistory() {
+        int direction = policy.chooseMove(game.getBoard());
+        if (direction < 0) {
+            game.restart();
+            history.reset(game.getBoard());
+        } else {
+            int score = game.getScore();
+            game.move(direction);
+            history.push(game.getBoard(), game.getScore() - score);
+        }
+        return game.getBoard();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.game_2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// isGameOver() and hasWon(), as checked after every swipe
+@State(Scope.Thread)
+public class GameStateBenchmark {
+
+    @Param({"early", "mid", "nearFull"})
+    public String corpus;
+
+    private long[] boards;
+    private final LegacyBoard legacy = new LegacyBoard();
+    private int index;
+
+    @Setup
+    public void setUp() {
+        boards = BoardCorpus.named(corpus);
+    }
+
+    @Benchmark
+    public boolean engineIsGameOver() {
+        return !BoardEngine.canMove(boards[index++ & BoardCorpus.MASK]);
+    }
+
+    @Benchmark
+    public boolean engineHasWon() {
+        return BoardEngine.maxExponent(boards[index++ & BoardCorpus.MASK]) >= 11;
+    }
+
+    @Benchmark
+    public boolean legacyIsGameOver() {
+        legacy.load(boards[index++ & BoardCorpus.MASK]);
+        return legacy.isGameOver();
+    }
+
+    @Benchmark
+    public boolean legacyHasWon() {
+        legacy.load(boards[index++ & BoardCorpus.MASK]);
+        return legacy.hasWon();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.game_2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Game.move() on every grid size, to compare the GridEngine representations. The policy
+// is a fixed preference order (down, left, right, up) since the search policies only know
+// 4x4; a game that cannot move is restarted.
+@State(Scope.Thread)
+public class GridBenchmark {
+
+    private static final int[] PREFERENCE = {
+            BoardEngine.DOWN, BoardEngine.LEFT, BoardEngine.RIGHT, BoardEngine.UP
+    };
+
+    @Param({"3", "4", "5", "6", "7", "8"})
+    public int size;
+
+    private Game game;
+
+    @Setup
+    public void setUp() {
+        game = new Game(new GameRandom(2048), size);
+    }
+
+    @Benchmark
+    public int playMove() {
+        for (int direction : PREFERENCE) {
+            if (game.move(direction)) {
+                return game.getScore();
+            }
+        }
+        game.restart();
+        return game.getScore();
+    }
+}
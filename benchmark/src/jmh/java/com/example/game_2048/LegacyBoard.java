@@ -0,0 +1,189 @@
+package com.example.game_2048;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+// The original Tile[][] rules from GameBoard, kept verbatim as the "before" baseline
+final class LegacyBoard {
+
+    private static final int GRID_SIZE = 4;
+    private final Tile[][] tiles = new Tile[GRID_SIZE][GRID_SIZE];
+    // One Tile per cell, reused by load() so restoring a position allocates nothing
+    private final Tile[][] pool = new Tile[GRID_SIZE][GRID_SIZE];
+    int score;
+
+    LegacyBoard() {
+        for (int i = 0; i < GRID_SIZE; i++) {
+            for (int j = 0; j < GRID_SIZE; j++) {
+                pool[i][j] = new Tile(0);
+            }
+        }
+    }
+
+    void load(long board) {
+        for (int i = 0; i < GRID_SIZE; i++) {
+            for (int j = 0; j < GRID_SIZE; j++) {
+                int value = BoardEngine.valueAt(board, i, j);
+                if (value == 0) {
+                    tiles[i][j] = null;
+                } else {
+                    pool[i][j].setValue(value);
+                    tiles[i][j] = pool[i][j];
+                }
+            }
+        }
+    }
+
+    void addRandomTile(Random random) {
+        ArrayList<int[]> emptyCells = new ArrayList<>();
+
+        for (int i = 0; i < GRID_SIZE; i++) {
+            for (int j = 0; j < GRID_SIZE; j++) {
+                if (tiles[i][j] == null) {
+                    emptyCells.add(new int[]{i, j});
+                }
+            }
+        }
+
+        if (!emptyCells.isEmpty()) {
+            int[] cell = emptyCells.get(random.nextInt(emptyCells.size()));
+            tiles[cell[0]][cell[1]] = new Tile(random.nextFloat() < 0.9 ? 2 : 4);
+        }
+    }
+
+    boolean move(int direction) {
+        boolean moved = false;
+        boolean[][] merged = new boolean[GRID_SIZE][GRID_SIZE];
+
+        switch (direction) {
+            case BoardEngine.UP:
+                for (int j = 0; j < GRID_SIZE; j++) {
+                    for (int i = 1; i < GRID_SIZE; i++) {
+                        if (tiles[i][j] != null) {
+                            moved |= moveTile(i, j, -1, 0, merged);
+                        }
+                    }
+                }
+                break;
+
+            case BoardEngine.DOWN:
+                for (int j = 0; j < GRID_SIZE; j++) {
+                    for (int i = GRID_SIZE - 2; i >= 0; i--) {
+                        if (tiles[i][j] != null) {
+                            moved |= moveTile(i, j, 1, 0, merged);
+                        }
+                    }
+                }
+                break;
+
+            case BoardEngine.LEFT:
+                for (int i = 0; i < GRID_SIZE; i++) {
+                    for (int j = 1; j < GRID_SIZE; j++) {
+                        if (tiles[i][j] != null) {
+                            moved |= moveTile(i, j, 0, -1, merged);
+                        }
+                    }
+                }
+                break;
+
+            case BoardEngine.RIGHT:
+                for (int i = 0; i < GRID_SIZE; i++) {
+                    for (int j = GRID_SIZE - 2; j >= 0; j--) {
+                        if (tiles[i][j] != null) {
+                            moved |= moveTile(i, j, 0, 1, merged);
+                        }
+                    }
+                }
+                break;
+        }
+        return moved;
+    }
+
+    private boolean moveTile(int row, int col, int rowDelta, int colDelta, boolean[][] merged) {
+        boolean moved = false;
+        int newRow = row;
+        int newCol = col;
+
+        while (true) {
+            int nextRow = newRow + rowDelta;
+            int nextCol = newCol + colDelta;
+
+            if (nextRow < 0 || nextRow >= GRID_SIZE ||
+                    nextCol < 0 || nextCol >= GRID_SIZE) {
+                break;
+            }
+
+            if (tiles[nextRow][nextCol] == null) {
+                tiles[nextRow][nextCol] = tiles[newRow][newCol];
+                tiles[newRow][newCol] = null;
+                newRow = nextRow;
+                newCol = nextCol;
+                moved = true;
+            } else if (!merged[nextRow][nextCol] &&
+                    tiles[nextRow][nextCol].getValue() == tiles[newRow][newCol].getValue()) {
+                int mergedValue = tiles[newRow][newCol].getValue() * 2;
+                tiles[nextRow][nextCol].setValue(mergedValue);
+                tiles[newRow][newCol] = null;
+                merged[nextRow][nextCol] = true;
+                score += mergedValue;
+                moved = true;
+                break;
+            } else {
+                break;
+            }
+        }
+
+        return moved;
+    }
+
+    boolean isGameOver() {
+        for (int i = 0; i < GRID_SIZE; i++) {
+            for (int j = 0; j < GRID_SIZE; j++) {
+                if (tiles[i][j] == null) {
+                    return false;
+                }
+            }
+        }
+
+        for (int i = 0; i < GRID_SIZE; i++) {
+            for (int j = 0; j < GRID_SIZE; j++) {
+                int value = tiles[i][j].getValue();
+                if (j < GRID_SIZE - 1 && tiles[i][j + 1].getValue() == value) {
+                    return false;
+                }
+                if (i < GRID_SIZE - 1 && tiles[i + 1][j].getValue() == value) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    boolean hasWon() {
+        for (int i = 0; i < GRID_SIZE; i++) {
+            for (int j = 0; j < GRID_SIZE; j++) {
+                if (tiles[i][j] != null && tiles[i][j].getValue() == 2048) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static class Tile {
+        private int value;
+
+        Tile(int value) {
+            this.value = value;
+        }
+
+        int getValue() {
+            return value;
+        }
+
+        void setValue(int value) {
+            this.value = value;
+        }
+    }
+}
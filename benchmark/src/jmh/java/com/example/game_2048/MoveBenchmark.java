@@ -0,0 +1,53 @@
+package com.example.game_2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// One swipe per op, cycling through the corpus and all four directions
+@State(Scope.Thread)
+public class MoveBenchmark {
+
+    @Param({"early", "mid", "nearFull"})
+    public String corpus;
+
+    private long[] boards;
+    private final LegacyBoard legacy = new LegacyBoard();
+    private int index;
+
+    @Setup
+    public void setUp() {
+        boards = BoardCorpus.named(corpus);
+    }
+
+    @Benchmark
+    public long engineMove() {
+        int i = index++;
+        long board = boards[i & BoardCorpus.MASK];
+        return BoardEngine.move(board, i & 3);
+    }
+
+    @Benchmark
+    public long engineMoveWithScore() {
+        int i = index++;
+        long board = boards[i & BoardCorpus.MASK];
+        return BoardEngine.move(board, i & 3) + BoardEngine.moveScore(board, i & 3);
+    }
+
+    @Benchmark
+    public boolean legacyMove() {
+        int i = index++;
+        legacy.load(boards[i & BoardCorpus.MASK]);
+        return legacy.move(i & 3);
+    }
+
+    // Cost of resetting the legacy board, to subtract from legacyMove
+    @Benchmark
+    public int legacyLoadOnly() {
+        int i = index++;
+        legacy.load(boards[i & BoardCorpus.MASK]);
+        return legacy.score;
+    }
+}
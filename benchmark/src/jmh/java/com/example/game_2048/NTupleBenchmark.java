@@ -0,0 +1,61 @@
+package com.example.game_2048;
+
+import java.io.File;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// NTupleNetwork evaluation, from a memory-mapped file as the app uses it and from the heap
+// buffer training uses. The weights come from a short training run so that the lookups
+// touch the parts of the tables real positions touch.
+@State(Scope.Thread)
+public class NTupleBenchmark {
+
+    @Param({"early", "mid", "nearFull"})
+    public String corpus;
+
+    private long[] boards;
+    private NTupleNetwork heap;
+    private NTupleNetwork mapped;
+    private File file;
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException {
+        boards = BoardCorpus.named(corpus);
+        heap = NTupleNetwork.create();
+        NTupleTrainer trainer = new NTupleTrainer(heap, NTupleTrainer.DEFAULT_LEARNING_RATE,
+                new GameRandom(2048));
+        for (int i = 0; i < 200; i++) {
+            trainer.playGame();
+        }
+        file = File.createTempFile("ntuple", ".bin");
+        heap.save(file);
+        mapped = NTupleNetwork.map(file);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public float evaluateMapped() {
+        return mapped.evaluate(boards[index++ & BoardCorpus.MASK]);
+    }
+
+    @Benchmark
+    public float evaluateHeap() {
+        return heap.evaluate(boards[index++ & BoardCorpus.MASK]);
+    }
+
+    // What one auto-play step costs: up to four moves and evaluations
+    @Benchmark
+    public int bestMoveMapped() {
+        return mapped.bestMove(boards[index++ & BoardCorpus.MASK]);
+    }
+}
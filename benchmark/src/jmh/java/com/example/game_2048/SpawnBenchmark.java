@@ -0,0 +1,54 @@
+package com.example.game_2048;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// addRandomTile(): pick an empty cell and place a 2 or a 4. engineSpawn is Game's path (one
+// GameRandom draw, select over the empty mask); randomSpawn is the same bitboard with two
+// java.util.Random draws, as the engine did before SpawnDistribution
+@State(Scope.Thread)
+public class SpawnBenchmark {
+
+    @Param({"early", "mid", "nearFull"})
+    public String corpus;
+
+    private long[] boards;
+    private final LegacyBoard legacy = new LegacyBoard();
+    private final Random random = new Random(42);
+    private final GameRandom gameRandom = new GameRandom(42);
+    private final SpawnDistribution spawns = SpawnDistribution.CLASSIC;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        boards = BoardCorpus.named(corpus);
+    }
+
+    @Benchmark
+    public long engineSpawn() {
+        long board = boards[index++ & BoardCorpus.MASK];
+        long empty = BoardEngine.emptyMask(board);
+        if (empty == 0) {
+            return board;
+        }
+        long draw = gameRandom.nextLong();
+        int cell = SpawnDistribution.cell(empty, draw);
+        return board | ((long) spawns.exponent(draw) << (4 * cell));
+    }
+
+    @Benchmark
+    public long randomSpawn() {
+        return BoardCorpus.spawn(boards[index++ & BoardCorpus.MASK], random);
+    }
+
+    @Benchmark
+    public int legacySpawn() {
+        legacy.load(boards[index++ & BoardCorpus.MASK]);
+        legacy.addRandomTile(random);
+        return legacy.score;
+    }
+}
@@ -0,0 +1,19 @@
+// Android-free game rules, shared by the app, the benchmarks and the simulator
+plugins {
+    `java-library`
+}
+
+group = "com.example.game_2048"
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+}
@@ -0,0 +1,294 @@
+package com.example.game_2048;
+
+// Bitboard implementation of the 2048 rules. The 4x4 grid is packed into one long,
+// one 4-bit log2 exponent per cell (0 = empty, 1 = 2, 2 = 4, ...). Cell (row, col)
+// lives at nibble row * 4 + col, so every row is a 16-bit lane and every move is a
+// handful of lookups into precomputed 65,536-entry tables. Nothing here allocates.
+public final class BoardEngine {
+
+    // Same order as GameBoard.Direction so ordinal() can be passed straight through
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    public static final int SIZE = 4;
+    public static final int CELLS = SIZE * SIZE;
+
+    // Two 32768 tiles do not merge: 65536 would not fit in a nibble
+    public static final int MAX_EXPONENT = 15;
+
+    private static final int ROWS = 1 << 16;
+    private static final long ROW_MASK = 0xFFFFL;
+
+    // Result of sliding one row towards column 0 / column 3
+    private static final char[] ROW_LEFT = new char[ROWS];
+    private static final char[] ROW_RIGHT = new char[ROWS];
+    // Same results spread back into column layout (nibble i -> bit 16 * i)
+    private static final long[] COL_UP = new long[ROWS];
+    private static final long[] COL_DOWN = new long[ROWS];
+    // Points gained by a move on one line. Merges pair up runs of equal tiles, so
+    // the score is the same whichever end the line slides towards.
+    private static final int[] LINE_SCORE = new int[ROWS];
+    // Per-row summary: bits 0-3 empty-cell mask, bits 4-7 max exponent,
+    // bit 8 set when two equal tiles sit next to each other
+    private static final char[] ROW_INFO = new char[ROWS];
+    private static final int INFO_MAX = 0xF0;
+    private static final int INFO_PAIR = 1 << 8;
+
+    static {
+        int[] line = new int[SIZE];
+        for (int row = 0; row < ROWS; row++) {
+            for (int i = 0; i < SIZE; i++) {
+                line[i] = (row >>> (4 * i)) & 0xF;
+            }
+
+            int info = 0;
+            int max = 0;
+            for (int i = 0; i < SIZE; i++) {
+                if (line[i] == 0) {
+                    info |= 1 << i;
+                } else if (i > 0 && line[i] == line[i - 1]) {
+                    info |= INFO_PAIR;
+                }
+                max = Math.max(max, line[i]);
+            }
+            ROW_INFO[row] = (char) (info | max << 4);
+
+            int score = slide(line);
+            int left = pack(line);
+
+            for (int i = 0; i < SIZE; i++) {
+                line[i] = (row >>> (4 * (SIZE - 1 - i))) & 0xF;
+            }
+            slide(line);
+            int right = reverse(pack(line));
+
+            ROW_LEFT[row] = (char) left;
+            ROW_RIGHT[row] = (char) right;
+            COL_UP[row] = unpackColumn(left);
+            COL_DOWN[row] = unpackColumn(right);
+            LINE_SCORE[row] = score;
+        }
+    }
+
+    private BoardEngine() {
+    }
+
+    // Slides and merges a line towards index 0 in place, returning the points scored
+    private static int slide(int[] line) {
+        int score = 0;
+        int out = 0;
+        int last = 0;
+        for (int i = 0; i < SIZE; i++) {
+            int value = line[i];
+            if (value == 0) {
+                continue;
+            }
+            if (value == last && value < MAX_EXPONENT) {
+                line[out - 1] = value + 1;
+                score += 1 << (value + 1);
+                last = 0;
+            } else {
+                line[out++] = value;
+                last = value;
+            }
+        }
+        while (out < SIZE) {
+            line[out++] = 0;
+        }
+        return score;
+    }
+
+    private static int pack(int[] line) {
+        int row = 0;
+        for (int i = 0; i < SIZE; i++) {
+            row |= line[i] << (4 * i);
+        }
+        return row;
+    }
+
+    private static int reverse(int row) {
+        return ((row & 0xF) << 12) | ((row & 0xF0) << 4)
+                | ((row >>> 4) & 0xF0) | ((row >>> 12) & 0xF);
+    }
+
+    private static long unpackColumn(int row) {
+        long r = row;
+        return (r & 0xFL) | ((r & 0xF0L) << 12) | ((r & 0xF00L) << 24) | ((r & 0xF000L) << 36);
+    }
+
+    // Swaps rows and columns, so column c of the board becomes row c of the result
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    // Mirrors the board left to right
+    public static long flipHorizontal(long board) {
+        return ((board & 0x000F000F000F000FL) << 12) | ((board & 0x00F000F000F000F0L) << 4)
+                | ((board >>> 4) & 0x00F000F000F000F0L) | ((board >>> 12) & 0x000F000F000F000FL);
+    }
+
+    // Mirrors the board top to bottom
+    public static long flipVertical(long board) {
+        return (board << 48) | ((board << 16) & 0x0000FFFF00000000L)
+                | ((board >>> 16) & 0x00000000FFFF0000L) | (board >>> 48);
+    }
+
+    // Smallest of the 8 rotations/reflections of the board, so symmetric positions share a key
+    public static long canonical(long board) {
+        long t = transpose(board);
+        long min = Math.min(board, flipHorizontal(board));
+        min = Math.min(min, flipVertical(board));
+        min = Math.min(min, flipVertical(flipHorizontal(board)));
+        min = Math.min(min, t);
+        min = Math.min(min, flipHorizontal(t));
+        min = Math.min(min, flipVertical(t));
+        return Math.min(min, flipVertical(flipHorizontal(t)));
+    }
+
+    public static long move(long board, int direction) {
+        switch (direction) {
+            case LEFT:
+                return (long) ROW_LEFT[(int) (board & ROW_MASK)]
+                        | (long) ROW_LEFT[(int) ((board >>> 16) & ROW_MASK)] << 16
+                        | (long) ROW_LEFT[(int) ((board >>> 32) & ROW_MASK)] << 32
+                        | (long) ROW_LEFT[(int) (board >>> 48)] << 48;
+            case RIGHT:
+                return (long) ROW_RIGHT[(int) (board & ROW_MASK)]
+                        | (long) ROW_RIGHT[(int) ((board >>> 16) & ROW_MASK)] << 16
+                        | (long) ROW_RIGHT[(int) ((board >>> 32) & ROW_MASK)] << 32
+                        | (long) ROW_RIGHT[(int) (board >>> 48)] << 48;
+            case UP: {
+                long t = transpose(board);
+                return COL_UP[(int) (t & ROW_MASK)]
+                        | COL_UP[(int) ((t >>> 16) & ROW_MASK)] << 4
+                        | COL_UP[(int) ((t >>> 32) & ROW_MASK)] << 8
+                        | COL_UP[(int) (t >>> 48)] << 12;
+            }
+            case DOWN: {
+                long t = transpose(board);
+                return COL_DOWN[(int) (t & ROW_MASK)]
+                        | COL_DOWN[(int) ((t >>> 16) & ROW_MASK)] << 4
+                        | COL_DOWN[(int) ((t >>> 32) & ROW_MASK)] << 8
+                        | COL_DOWN[(int) (t >>> 48)] << 12;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown direction: " + direction);
+        }
+    }
+
+    // Points scored by move(board, direction)
+    public static int moveScore(long board, int direction) {
+        long lines = direction == UP || direction == DOWN ? transpose(board) : board;
+        return LINE_SCORE[(int) (lines & ROW_MASK)]
+                + LINE_SCORE[(int) ((lines >>> 16) & ROW_MASK)]
+                + LINE_SCORE[(int) ((lines >>> 32) & ROW_MASK)]
+                + LINE_SCORE[(int) (lines >>> 48)];
+    }
+
+    // Records where each tile of the board travels for the given move: destinations[i] is the
+    // cell tile i ends up in (-1 for empty cells). Returns a bit mask of the cells that receive
+    // a merge. Slower than move(); meant for animation, not search.
+    public static int traceMove(long board, int direction, byte[] destinations) {
+        int mergeMask = 0;
+        for (int line = 0; line < SIZE; line++) {
+            int out = 0;
+            int last = 0;
+            int lastDestination = -1;
+            for (int k = 0; k < SIZE; k++) {
+                int index = lineCell(direction, line, k);
+                int value = exponentAt(board, index);
+                if (value == 0) {
+                    destinations[index] = -1;
+                } else if (value == last && value < MAX_EXPONENT) {
+                    destinations[index] = (byte) lastDestination;
+                    mergeMask |= 1 << lastDestination;
+                    last = 0;
+                } else {
+                    lastDestination = lineCell(direction, line, out++);
+                    destinations[index] = (byte) lastDestination;
+                    last = value;
+                }
+            }
+        }
+        return mergeMask;
+    }
+
+    // Index of the k-th cell of a line, counted from the edge the tiles slide towards
+    private static int lineCell(int direction, int line, int k) {
+        switch (direction) {
+            case LEFT: return line * SIZE + k;
+            case RIGHT: return line * SIZE + (SIZE - 1 - k);
+            case UP: return k * SIZE + line;
+            default: return (SIZE - 1 - k) * SIZE + line;
+        }
+    }
+
+    public static int exponentAt(long board, int index) {
+        return (int) (board >>> (4 * index)) & 0xF;
+    }
+
+    public static int exponentAt(long board, int row, int col) {
+        return exponentAt(board, row * SIZE + col);
+    }
+
+    // Tile value at (row, col), or 0 for an empty cell
+    public static int valueAt(long board, int row, int col) {
+        int exponent = exponentAt(board, row, col);
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    // Bit i set when cell i is empty
+    public static int emptyMask(long board) {
+        return (ROW_INFO[(int) (board & ROW_MASK)] & 0xF)
+                | (ROW_INFO[(int) ((board >>> 16) & ROW_MASK)] & 0xF) << 4
+                | (ROW_INFO[(int) ((board >>> 32) & ROW_MASK)] & 0xF) << 8
+                | (ROW_INFO[(int) (board >>> 48)] & 0xF) << 12;
+    }
+
+    public static int emptyCount(long board) {
+        return Integer.bitCount(emptyMask(board));
+    }
+
+    // Places a tile with the given exponent into the n-th empty cell (row-major order)
+    public static long insertTile(long board, int emptyIndex, int exponent) {
+        int cell = nthSetBit(emptyMask(board), emptyIndex);
+        return cell < 0 ? board : board | ((long) exponent << (4 * cell));
+    }
+
+    // Index of the n-th set bit of the mask (counting from 0), or -1 if there are fewer
+    public static int nthSetBit(int mask, int n) {
+        return GridEngine.nthSetBit(mask & 0xFFFFFFFFL, n);
+    }
+
+    public static int maxExponent(long board) {
+        int max = Math.max(ROW_INFO[(int) (board & ROW_MASK)] & INFO_MAX,
+                ROW_INFO[(int) ((board >>> 16) & ROW_MASK)] & INFO_MAX);
+        max = Math.max(max, ROW_INFO[(int) ((board >>> 32) & ROW_MASK)] & INFO_MAX);
+        max = Math.max(max, ROW_INFO[(int) (board >>> 48)] & INFO_MAX);
+        return max >>> 4;
+    }
+
+    // True when two equal tiles are horizontally or vertically adjacent, i.e. a merge is possible
+    public static boolean hasAdjacentPair(long board) {
+        long t = transpose(board);
+        return ((ROW_INFO[(int) (board & ROW_MASK)] | ROW_INFO[(int) ((board >>> 16) & ROW_MASK)]
+                | ROW_INFO[(int) ((board >>> 32) & ROW_MASK)] | ROW_INFO[(int) (board >>> 48)]
+                | ROW_INFO[(int) (t & ROW_MASK)] | ROW_INFO[(int) ((t >>> 16) & ROW_MASK)]
+                | ROW_INFO[(int) ((t >>> 32) & ROW_MASK)] | ROW_INFO[(int) (t >>> 48)])
+                & INFO_PAIR) != 0;
+    }
+
+    // A board with an empty cell always has a move; a full one needs an adjacent pair
+    public static boolean canMove(long board) {
+        return emptyMask(board) != 0 || hasAdjacentPair(board);
+    }
+}
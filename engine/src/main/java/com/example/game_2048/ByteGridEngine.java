@@ -0,0 +1,159 @@
+package com.example.game_2048;
+
+// Boards of 5x5 to 8x8: one long per row, 8 bits per cell (column c at bits 8c). Row tables
+// would need 2^40 entries and more, so each line is slid cell by cell; the word and the
+// shift of every line position, in slide order, are precomputed per direction so the inner
+// loop is just loads and shifts, with no division by the size. Exponents are capped at 30,
+// the largest tile an int score can still count. The whole-board queries take a row word
+// at a time with SWAR byte tests, as WideGridEngine does, instead of looking at each cell.
+final class ByteGridEngine extends GridEngine {
+
+    static final int EXPONENT_LIMIT = 30;
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    // Moves bit 8c to bit 56 + c for every c at once; the partial products never overlap
+    private static final long GATHER = 0x0102040810204080L;
+
+    // Row and bit shift of the k-th position of each line, per direction:
+    // [direction][line * size + k]
+    private final byte[][] lineWords = new byte[4][];
+    private final byte[][] lineShifts = new byte[4][];
+    // High bit of the bytes that are cells, and of the ones with a cell to their left
+    private final long rowCells;
+    private final long pairCells;
+    private final long rowMask;
+
+    ByteGridEngine(int size) {
+        super(size);
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Rows do not fit in a long: " + size);
+        }
+        for (int direction = 0; direction < 4; direction++) {
+            byte[] words = new byte[cells];
+            byte[] shifts = new byte[cells];
+            for (int line = 0; line < size; line++) {
+                for (int k = 0; k < size; k++) {
+                    int index = lineCell(direction, line, k);
+                    words[line * size + k] = (byte) (index / size);
+                    shifts[line * size + k] = (byte) (8 * (index % size));
+                }
+            }
+            lineWords[direction] = words;
+            lineShifts[direction] = shifts;
+        }
+        rowCells = HIGH_BITS >>> (8 * (8 - size));
+        pairCells = HIGH_BITS >>> (8 * (9 - size));
+        rowMask = (1L << size) - 1;
+    }
+
+    // 0x80 in every byte of the word that is 0, nothing anywhere else
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | word | LOW_SEVEN_BITS);
+    }
+
+    @Override
+    public int words() {
+        return size;
+    }
+
+    @Override
+    public int exponentLimit() {
+        return EXPONENT_LIMIT;
+    }
+
+    @Override
+    public int move(long[] from, int direction, long[] to) {
+        if (direction < 0 || direction > 3) {
+            throw new IllegalArgumentException("Unknown direction: " + direction);
+        }
+        byte[] words = lineWords[direction];
+        byte[] shifts = lineShifts[direction];
+        for (int r = 0; r < size; r++) {
+            to[r] = 0;
+        }
+        int score = 0;
+        for (int base = 0; base < cells; base += size) {
+            int out = base;
+            int last = 0;
+            for (int k = base; k < base + size; k++) {
+                int value = (int) (from[words[k]] >>> shifts[k]) & 0xFF;
+                if (value == 0) {
+                    continue;
+                }
+                if (value == last && value < EXPONENT_LIMIT) {
+                    // Bump the tile just written by one exponent
+                    to[words[out - 1]] += 1L << shifts[out - 1];
+                    score += 1 << (value + 1);
+                    last = 0;
+                } else {
+                    to[words[out]] |= (long) value << shifts[out];
+                    out++;
+                    last = value;
+                }
+            }
+        }
+        for (int r = 0; r < size; r++) {
+            if (to[r] != from[r]) {
+                return score;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int exponentAt(long[] board, int index) {
+        return (int) (board[index / size] >>> (8 * (index % size))) & 0xFF;
+    }
+
+    @Override
+    public void placeTile(long[] board, int index, int exponent) {
+        board[index / size] |= (long) exponent << (8 * (index % size));
+    }
+
+    @Override
+    public long emptyMask(long[] board) {
+        long mask = 0;
+        for (int r = 0, shift = 0; r < size; r++, shift += size) {
+            long empty = (zeroBytes(board[r]) >>> 7) * GATHER >>> 56;
+            mask |= (empty & rowMask) << shift;
+        }
+        return mask;
+    }
+
+    // Byte-wise max of the rows, then of the eight bytes; exponents stay below 0x80, so a
+    // byte's high bit is free to hold the comparison
+    @Override
+    public int maxExponent(long[] board) {
+        long max = board[0];
+        for (int r = 1; r < size; r++) {
+            max = maxBytes(max, board[r]);
+        }
+        max = maxBytes(max, max >>> 32);
+        max = maxBytes(max, max >>> 16);
+        max = maxBytes(max, max >>> 8);
+        return (int) max & 0xFF;
+    }
+
+    private static long maxBytes(long a, long b) {
+        long aAtLeastB = ((a | HIGH_BITS) - b) & HIGH_BITS;
+        long pickA = (aAtLeastB >>> 7) * 0xFF;
+        return (a & pickA) | (b & ~pickA);
+    }
+
+    @Override
+    public boolean hasAdjacentPair(long[] board) {
+        for (int r = 0; r < size; r++) {
+            long row = board[r];
+            long tiles = ~zeroBytes(row) & rowCells;
+            // A tile equal to its right neighbour, or to the one below it
+            if ((zeroBytes(row ^ (row >>> 8)) & tiles & pairCells) != 0) {
+                return true;
+            }
+            if (r + 1 < size && (zeroBytes(row ^ board[r + 1]) & tiles) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
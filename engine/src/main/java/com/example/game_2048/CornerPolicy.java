@@ -0,0 +1,19 @@
+package com.example.game_2048;
+
+// The classic human strategy: keep pushing into the bottom-left corner and only move
+// right, then up, when nothing else is possible
+public final class CornerPolicy implements MovePolicy {
+
+    private static final int[] PREFERENCE = {
+            BoardEngine.DOWN, BoardEngine.LEFT, BoardEngine.RIGHT, BoardEngine.UP};
+
+    @Override
+    public int chooseMove(long board) {
+        for (int direction : PREFERENCE) {
+            if (BoardEngine.move(board, direction) != board) {
+                return direction;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.game_2048;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+// Expectimax search over BoardEngine boards, used for the in-game hint. Searches run on a
+// private ForkJoin pool with iterative deepening under a hard time budget, and positions are
+// cached in a lock-free transposition table keyed on the board folded over its 8 symmetries.
+public final class ExpectimaxSearch {
+
+    public interface Callback {
+        // Called on a pool thread once the budget is spent; never called after cancel()
+        void onResult(Result result);
+    }
+
+    public static final class Result {
+        public final long board;
+        // BoardEngine direction, or -1 when no move is possible
+        public final int direction;
+        // Deepest fully searched ply
+        public final int depth;
+        public final long nodes;
+        public final long elapsedNanos;
+        public final long cacheProbes;
+        public final long cacheHits;
+
+        Result(long board, int direction, int depth, long nodes, long elapsedNanos,
+               long cacheProbes, long cacheHits) {
+            this.board = board;
+            this.direction = direction;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+            this.cacheProbes = cacheProbes;
+            this.cacheHits = cacheHits;
+        }
+
+        public double nodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+        }
+
+        public double cacheHitRate() {
+            return cacheProbes == 0 ? 0 : (double) cacheHits / cacheProbes;
+        }
+    }
+
+    // Handle for a running search
+    public static final class Search {
+        private volatile boolean cancelled;
+        private volatile boolean expired;
+        private final long deadline;
+
+        Search(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        boolean shouldStop() {
+            if (cancelled || expired) {
+                return true;
+            }
+            if (System.nanoTime() >= deadline) {
+                expired = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final int MAX_DEPTH = 10;
+    // Chance branches less likely than this are scored by the heuristic instead of searched
+    private static final float MIN_PROBABILITY = 0.0001f;
+    private static final int CHECK_INTERVAL = 256;
+    private static final int TABLE_BITS = 18;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+
+    // Row heuristic: rewards empty cells, merge chances and monotonic rows, penalises large
+    // unmerged tiles. It is mirror-invariant, so it agrees with the canonical table keys.
+    private static final float[] ROW_HEURISTIC = new float[1 << 16];
+    private static final float LOST_PENALTY = 200000f;
+
+    static {
+        int[] line = new int[BoardEngine.SIZE];
+        for (int row = 0; row < ROW_HEURISTIC.length; row++) {
+            for (int i = 0; i < BoardEngine.SIZE; i++) {
+                line[i] = (row >>> (4 * i)) & 0xF;
+            }
+
+            float sum = 0;
+            int empty = 0;
+            int merges = 0;
+            int previous = 0;
+            int counter = 0;
+            for (int i = 0; i < BoardEngine.SIZE; i++) {
+                int rank = line[i];
+                sum += (float) Math.pow(rank, 3.5);
+                if (rank == 0) {
+                    empty++;
+                } else {
+                    if (previous == rank) {
+                        counter++;
+                    } else if (counter > 0) {
+                        merges += 1 + counter;
+                        counter = 0;
+                    }
+                    previous = rank;
+                }
+            }
+            if (counter > 0) {
+                merges += 1 + counter;
+            }
+
+            float monotonicLeft = 0;
+            float monotonicRight = 0;
+            for (int i = 1; i < BoardEngine.SIZE; i++) {
+                float a = (float) Math.pow(line[i - 1], 4);
+                float b = (float) Math.pow(line[i], 4);
+                if (line[i - 1] > line[i]) {
+                    monotonicLeft += a - b;
+                } else {
+                    monotonicRight += b - a;
+                }
+            }
+
+            ROW_HEURISTIC[row] = LOST_PENALTY / 8
+                    + 270f * empty
+                    + 700f * merges
+                    - 47f * Math.min(monotonicLeft, monotonicRight)
+                    - 11f * sum;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    // Lockless hashing: each slot stores (key ^ data, data) so a torn write never matches
+    private final long[] tableKeys = new long[1 << TABLE_BITS];
+    private final long[] tableData = new long[1 << TABLE_BITS];
+
+    public ExpectimaxSearch() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public ExpectimaxSearch(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    // Starts searching the given board and returns immediately
+    public Search start(long board, long budgetMillis, Callback callback) {
+        Search search = new Search(System.nanoTime() + budgetMillis * 1_000_000L);
+        pool.execute(new RootTask(board, search, callback));
+        return search;
+    }
+
+    // Runs a search on the calling thread's behalf and waits for it, for tools and tests
+    public Result searchNow(long board, long budgetMillis) {
+        Search search = new Search(System.nanoTime() + budgetMillis * 1_000_000L);
+        RootTask task = new RootTask(board, search, null);
+        pool.invoke(task);
+        return task.result;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public static float evaluate(long board) {
+        long t = BoardEngine.transpose(board);
+        return ROW_HEURISTIC[(int) (board & 0xFFFF)]
+                + ROW_HEURISTIC[(int) ((board >>> 16) & 0xFFFF)]
+                + ROW_HEURISTIC[(int) ((board >>> 32) & 0xFFFF)]
+                + ROW_HEURISTIC[(int) (board >>> 48)]
+                + ROW_HEURISTIC[(int) (t & 0xFFFF)]
+                + ROW_HEURISTIC[(int) ((t >>> 16) & 0xFFFF)]
+                + ROW_HEURISTIC[(int) ((t >>> 32) & 0xFFFF)]
+                + ROW_HEURISTIC[(int) (t >>> 48)];
+    }
+
+    private static int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key & TABLE_MASK;
+    }
+
+    private final class RootTask extends RecursiveAction {
+        private final long board;
+        private final Search search;
+        private final Callback callback;
+        final LongAdder nodes = new LongAdder();
+        final LongAdder probes = new LongAdder();
+        final LongAdder hits = new LongAdder();
+        Result result;
+
+        RootTask(long board, Search search, Callback callback) {
+            this.board = board;
+            this.search = search;
+            this.callback = callback;
+        }
+
+        @Override
+        protected void compute() {
+            long started = System.nanoTime();
+            int bestDirection = -1;
+            int completedDepth = 0;
+
+            // Depth 1 only evaluates leaves and always completes, so there is always an answer
+            for (int depth = 1; depth <= MAX_DEPTH && (depth == 1 || !search.shouldStop()); depth++) {
+                MoveTask[] tasks = new MoveTask[4];
+                for (int direction = 0; direction < 4; direction++) {
+                    long moved = BoardEngine.move(board, direction);
+                    if (moved != board) {
+                        tasks[direction] = new MoveTask(this, moved, depth);
+                        tasks[direction].fork();
+                    }
+                }
+
+                int depthBest = -1;
+                float depthBestScore = 0;
+                for (int direction = 0; direction < 4; direction++) {
+                    if (tasks[direction] == null) {
+                        continue;
+                    }
+                    float score = tasks[direction].join()
+                            + BoardEngine.moveScore(board, direction);
+                    if (depthBest < 0 || score > depthBestScore) {
+                        depthBest = direction;
+                        depthBestScore = score;
+                    }
+                }
+
+                // A depth cut short by the budget is incomplete; keep the previous answer
+                if (search.shouldStop() && completedDepth > 0) {
+                    break;
+                }
+                bestDirection = depthBest;
+                completedDepth = depth;
+                if (depthBest < 0) {
+                    break;
+                }
+            }
+
+            result = new Result(board, bestDirection, completedDepth, nodes.sum(),
+                    System.nanoTime() - started, probes.sum(), hits.sum());
+            if (callback != null && !search.isCancelled()) {
+                callback.onResult(result);
+            }
+        }
+    }
+
+    // Value of the chance node after one move; splits the spawn branches across the pool
+    private final class MoveTask extends RecursiveTask<Float> {
+        private final RootTask root;
+        private final long board;
+        private final int depth;
+
+        MoveTask(RootTask root, long board, int depth) {
+            this.root = root;
+            this.board = board;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Float compute() {
+            int empty = BoardEngine.emptyCount(board);
+            SpawnTask[] tasks = new SpawnTask[empty * 2];
+            int count = 0;
+            for (int i = 0; i < BoardEngine.CELLS; i++) {
+                if (BoardEngine.exponentAt(board, i) == 0) {
+                    long two = board | (1L << (4 * i));
+                    long four = board | (2L << (4 * i));
+                    tasks[count++] = new SpawnTask(root, two, depth - 1, 0.9f / empty);
+                    tasks[count++] = new SpawnTask(root, four, depth - 1, 0.1f / empty);
+                }
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            float total = 0;
+            for (int i = 0; i < count; i += 2) {
+                total += 0.9f * tasks[i].join() + 0.1f * tasks[i + 1].join();
+            }
+            return total / empty;
+        }
+    }
+
+    // Sequential expectimax below the first chance node
+    private final class SpawnTask extends RecursiveTask<Float> {
+        private final RootTask root;
+        private final long board;
+        private final int depth;
+        private final float probability;
+        private long nodes;
+        private long expanded;
+        private long probes;
+        private long hits;
+        private boolean stopped;
+
+        SpawnTask(RootTask root, long board, int depth, float probability) {
+            this.root = root;
+            this.board = board;
+            this.depth = depth;
+            this.probability = probability;
+        }
+
+        @Override
+        protected Float compute() {
+            float value = maxNode(board, depth, probability);
+            root.nodes.add(nodes);
+            root.probes.add(probes);
+            root.hits.add(hits);
+            return value;
+        }
+
+        private float maxNode(long board, int depth, float probability) {
+            float best = 0;
+            for (int direction = 0; direction < 4; direction++) {
+                long moved = BoardEngine.move(board, direction);
+                if (moved != board) {
+                    float value = chanceNode(moved, depth, probability)
+                            + BoardEngine.moveScore(board, direction);
+                    best = Math.max(best, value);
+                }
+            }
+            return best;
+        }
+
+        private float chanceNode(long board, int depth, float probability) {
+            nodes++;
+            if (depth <= 0 || probability < MIN_PROBABILITY) {
+                return evaluate(board);
+            }
+            // Once stopped, unwind without expanding anything else
+            if (stopped || (++expanded % CHECK_INTERVAL == 0 && root.search.shouldStop())) {
+                stopped = true;
+                return 0;
+            }
+
+            long key = BoardEngine.canonical(board);
+            int slot = slot(key);
+            probes++;
+            long data = tableData[slot];
+            if ((tableKeys[slot] ^ data) == key && (int) (data >>> 32) >= depth) {
+                hits++;
+                return Float.intBitsToFloat((int) data);
+            }
+
+            int empty = BoardEngine.emptyCount(board);
+            float total = 0;
+            for (int i = 0; i < BoardEngine.CELLS; i++) {
+                if (BoardEngine.exponentAt(board, i) == 0) {
+                    total += 0.9f * maxNode(board | (1L << (4 * i)), depth - 1,
+                            probability * 0.9f / empty);
+                    total += 0.1f * maxNode(board | (2L << (4 * i)), depth - 1,
+                            probability * 0.1f / empty);
+                }
+            }
+            float value = total / empty;
+
+            // Values from an aborted subtree are unreliable and must not be cached
+            if (!stopped) {
+                data = ((long) depth << 32) | (Float.floatToIntBits(value) & 0xFFFFFFFFL);
+                tableData[slot] = data;
+                tableKeys[slot] = key ^ data;
+            }
+            return value;
+        }
+    }
+}
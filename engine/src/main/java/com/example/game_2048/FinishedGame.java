@@ -0,0 +1,16 @@
+package com.example.game_2048;
+
+// Names the end of a game, so the app hands each one to the leaderboard and the statistics
+// once however often it looks at it. The game is told apart by its replay seed, and the end
+// by the move count and the score: a game continued by undo after it was over reaches a new
+// end, which counts again, while the same end seen twice (rotation, coming back to the
+// screen, a cold start) does not.
+public final class FinishedGame {
+
+    private FinishedGame() {
+    }
+
+    public static String key(long gameId, int moveCount, int score) {
+        return Long.toHexString(gameId) + ":" + moveCount + ":" + score;
+    }
+}
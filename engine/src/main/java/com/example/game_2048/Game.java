@@ -0,0 +1,215 @@
+package com.example.game_2048;
+
+import java.util.Random;
+
+// One game of 2048: the board, the score and the spawn rules. Has no Android
+// dependency so the same rules run in the app, the benchmarks and the simulator. The
+// board layout is chosen by the GridEngine for the game's size; 4x4 is BoardEngine's.
+//
+// The empty cells, the max tile and whether any merge is available are refreshed once per
+// move from the engine, so the game-over, win and spawn queries never rescan the grid.
+// Boards past 64 cells have no empty-cell mask, so only the count is kept and spawns ask the
+// engine for the cell; they take the same draw either way.
+public final class Game {
+
+    public static final int DEFAULT_WIN_TILE = 2048;
+
+    private final Random random;
+    private final GridEngine engine;
+    private final SpawnDistribution spawns;
+    // Current board, and the buffer the next move is written into
+    private long[] cells;
+    private long[] moved;
+    private int score;
+    private int moveCount;
+    private int winExponent = Integer.numberOfTrailingZeros(DEFAULT_WIN_TILE);
+    // Cell of the last spawned tile, or -1
+    private int spawnIndex = -1;
+
+    // Invariants of the current board, kept in step by refresh()
+    private final boolean masked;
+    private long emptyMask;
+    private int emptyCount;
+    private int maxExponent;
+    private boolean mergeAvailable;
+
+    public Game(Random random) {
+        this(random, BoardEngine.SIZE);
+    }
+
+    public Game(Random random, int size) {
+        this(random, size, SpawnDistribution.CLASSIC);
+    }
+
+    public Game(Random random, int size, SpawnDistribution spawns) {
+        this.random = random;
+        this.engine = GridEngine.forSize(size);
+        this.spawns = spawns;
+        masked = engine.hasCellMasks();
+        cells = new long[engine.words()];
+        moved = new long[engine.words()];
+        restart();
+    }
+
+    public void restart() {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = 0;
+        }
+        score = 0;
+        moveCount = 0;
+        emptyMask = masked ? -1L >>> (64 - engine.getCells()) : 0;
+        emptyCount = engine.getCells();
+
+        // Add initial tiles
+        addRandomTile();
+        countEmpty();
+        addRandomTile();
+        refresh();
+    }
+
+    // Spawns into one of the empty cells, which countEmpty() must have counted on the current
+    // board. Takes exactly one 64-bit draw per spawn, so a GameRandom can be stepped back for
+    // undo
+    private void addRandomTile() {
+        spawnIndex = -1;
+        if (emptyCount != 0) {
+            long draw = random.nextLong();
+            spawnIndex = masked ? SpawnDistribution.cell(emptyMask, draw)
+                    : engine.nthEmptyCell(cells, SpawnDistribution.pick(emptyCount, draw));
+            engine.placeTile(cells, spawnIndex, spawns.exponent(draw));
+        }
+    }
+
+    private void countEmpty() {
+        if (masked) {
+            emptyMask = engine.emptyMask(cells);
+            emptyCount = Long.bitCount(emptyMask);
+        } else {
+            emptyCount = engine.emptyCount(cells);
+        }
+    }
+
+    private void refresh() {
+        countEmpty();
+        maxExponent = engine.maxExponent(cells);
+        mergeAvailable = engine.hasAdjacentPair(cells);
+    }
+
+    // Continues a saved single-word (3x3 or 4x4) game; the Random should be put back in its
+    // saved state as well
+    public void restore(long board, int score, int moveCount) {
+        cells[0] = board;
+        restore(cells, score, moveCount);
+    }
+
+    // Continues a saved game of any size from engine.words() longs
+    public void restore(long[] board, int score, int moveCount) {
+        if (board != cells) {
+            System.arraycopy(board, 0, cells, 0, cells.length);
+        }
+        this.score = score;
+        this.moveCount = moveCount;
+        refresh();
+    }
+
+    // Applies a BoardEngine direction; returns false (and changes nothing) if no tile moves
+    public boolean move(int direction) {
+        int points = engine.move(cells, direction, moved);
+        if (points < 0) {
+            return false;
+        }
+
+        long[] previous = cells;
+        cells = moved;
+        moved = previous;
+        score += points;
+        moveCount++;
+        countEmpty();
+        addRandomTile();
+        refresh();
+        return true;
+    }
+
+    // Same as move(direction), and describes what changed in diff (which must have been
+    // made for this game's cell count). Tracing the move costs a pass over the board, so
+    // the simulator and the searches use the plain move. Needs a board with cell masks.
+    public boolean move(int direction, MoveDiff diff) {
+        if (!masked) {
+            throw new UnsupportedOperationException("No move diffs past 64 cells");
+        }
+        if (!move(direction)) {
+            return false;
+        }
+        // The buffer the move was made from still holds the board before it
+        diff.mergeMask = engine.traceMove(moved, direction, diff.destinations);
+        diff.changedMask = engine.changedMask(moved, cells);
+        diff.spawnIndex = spawnIndex;
+        if (spawnIndex >= 0) {
+            diff.changedMask |= 1L << spawnIndex;
+        }
+        return true;
+    }
+
+    public boolean isGameOver() {
+        return emptyCount == 0 && !mergeAvailable;
+    }
+
+    public boolean hasWon() {
+        return maxExponent >= winExponent;
+    }
+
+    // Tile value that counts as a win; must be a power of two
+    public void setWinTile(int value) {
+        if (value < 4 || Integer.bitCount(value) != 1) {
+            throw new IllegalArgumentException("Win tile must be a power of two: " + value);
+        }
+        winExponent = Integer.numberOfTrailingZeros(value);
+    }
+
+    public int getWinTile() {
+        return 1 << winExponent;
+    }
+
+    // Bit i set when cell i is empty; 0 for boards without cell masks
+    public long getEmptyMask() {
+        return emptyMask;
+    }
+
+    public int getSize() {
+        return engine.getSize();
+    }
+
+    public GridEngine getEngine() {
+        return engine;
+    }
+
+    public SpawnDistribution getSpawnDistribution() {
+        return spawns;
+    }
+
+    // Board of a single-word game; for 4x4 this is the packed BoardEngine board
+    public long getBoard() {
+        return cells[0];
+    }
+
+    // Copies the board into out, which needs getEngine().words() longs
+    public void copyBoard(long[] out) {
+        System.arraycopy(cells, 0, out, 0, cells.length);
+    }
+
+    public int exponentAt(int index) {
+        return engine.exponentAt(cells, index);
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getMaxTile() {
+        return maxExponent == 0 ? 0 : 1 << maxExponent;
+    }
+}
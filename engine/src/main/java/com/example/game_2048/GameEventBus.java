@@ -0,0 +1,172 @@
+package com.example.game_2048;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// What moves did, as a stream of typed events (merges, spawns, points, new top tiles, the end
+// of the game) that any number of consumers read at their own pace. One producer thread
+// writes into a preallocated ring; each consumer has its own read position and never blocks
+// the producer, nor each other.
+//
+// Every event is packed into one long, so a slot is written and read in one step:
+// bits 48-63 hold the low bits of the event's sequence number, 44-47 the type, 32-43 the
+// cell (0xFFF for none) and 0-31 the value. Publishing is two ordered stores and allocates
+// nothing. The producer does not wait for anyone: a consumer that falls a whole ring behind
+// skips to the oldest event still there, and counts the ones it missed. The sequence bits
+// catch a slot overwritten while a lapped consumer was reading it.
+public final class GameEventBus {
+
+    // Two tiles merged into one of the value, in the cell
+    public static final int TILE_MERGED = 1;
+    // A tile of the value appeared in the cell
+    public static final int SPAWN = 2;
+    // The move scored the value in points
+    public static final int SCORE = 3;
+    // The value is the board's new highest tile
+    public static final int MAX_TILE = 4;
+    // No move is left; the value is the final score
+    public static final int GAME_OVER = 5;
+
+    public static final int NO_CELL = -1;
+
+    // Lapping is only caught while a read is overtaken by fewer than 2^16 / capacity laps
+    public static final int MAX_CAPACITY = 1 << 12;
+
+    private static final int CELL_BITS = 12;
+    private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    // Sequence of the last published event; -1 before the first
+    private final AtomicLong published = new AtomicLong(-1);
+    // Called after each flush(), for consumers that sleep between events; replaced, never
+    // changed, so the producer can walk it without a lock or an iterator
+    private volatile Runnable[] wakers = new Runnable[0];
+    // Producer thread only
+    private long next;
+
+    public GameEventBus(int capacity) {
+        if (capacity < 2 || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two up to "
+                    + MAX_CAPACITY + ": " + capacity);
+        }
+        slots = new AtomicLongArray(capacity);
+        mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    // Producer thread only. The cell is NO_CELL for events that are not about one cell.
+    public void publish(int type, int cell, int value) {
+        long sequence = next++;
+        long event = (sequence & 0xFFFF) << 48 | (long) type << 44
+                | (long) (cell & CELL_MASK) << 32 | (value & 0xFFFFFFFFL);
+        slots.lazySet((int) sequence & mask, event);
+        published.lazySet(sequence);
+    }
+
+    // Producer thread only: wakes the consumers that asked for it, once the events of a move
+    // are all published
+    public void flush() {
+        Runnable[] current = wakers;
+        for (int i = 0; i < current.length; i++) {
+            current[i].run();
+        }
+    }
+
+    // A consumer that sees the events published from now on. The waker, if not null, runs
+    // on the producer thread after each flush() and must return at once.
+    public Consumer newConsumer(Runnable waker) {
+        if (waker != null) {
+            synchronized (this) {
+                Runnable[] grown = new Runnable[wakers.length + 1];
+                System.arraycopy(wakers, 0, grown, 0, wakers.length);
+                grown[wakers.length] = waker;
+                wakers = grown;
+            }
+        }
+        return new Consumer(waker, published.get() + 1);
+    }
+
+    // A read position in the events, used from one thread at a time
+    public final class Consumer {
+        private final Runnable waker;
+        // Sequence of the next event to read
+        private long sequence;
+        private long event;
+        private long missed;
+
+        private Consumer(Runnable waker, long sequence) {
+            this.waker = waker;
+            this.sequence = sequence;
+        }
+
+        // Whether next() has an event to return
+        public boolean hasNext() {
+            return sequence <= published.get();
+        }
+
+        // Moves on to the next event, if there is one; its fields are then read with type(),
+        // cell() and value()
+        public boolean next() {
+            while (true) {
+                long last = published.get();
+                if (sequence > last) {
+                    return false;
+                }
+                long oldest = last - mask;
+                if (sequence < oldest) {
+                    missed += oldest - sequence;
+                    sequence = oldest;
+                }
+                long read = slots.get((int) sequence & mask);
+                // Overwritten since published was read: go round again from the new oldest
+                if ((read >>> 48) != (sequence & 0xFFFF)) {
+                    continue;
+                }
+                event = read;
+                sequence++;
+                return true;
+            }
+        }
+
+        public int type() {
+            return (int) (event >>> 44) & 0xF;
+        }
+
+        public int cell() {
+            int cell = (int) (event >>> 32) & CELL_MASK;
+            return cell == CELL_MASK ? NO_CELL : cell;
+        }
+
+        public int value() {
+            return (int) event;
+        }
+
+        // Events the producer overwrote before this consumer got to them
+        public long getMissed() {
+            return missed;
+        }
+
+        // Stops the waker; the consumer is just dropped otherwise
+        public void close() {
+            if (waker == null) {
+                return;
+            }
+            synchronized (GameEventBus.this) {
+                Runnable[] current = wakers;
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] == waker) {
+                        Runnable[] shrunk = new Runnable[current.length - 1];
+                        System.arraycopy(current, 0, shrunk, 0, i);
+                        System.arraycopy(current, i + 1, shrunk, i, current.length - i - 1);
+                        wakers = shrunk;
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.game_2048;
+
+import java.util.Random;
+
+// SplitMix64 generator whose whole state is one long, so a game in progress can be saved
+// and resumed with exactly the spawns it would have had. java.util.Random hides its seed
+// once it has been scrambled, which makes that impossible.
+public final class GameRandom extends Random {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public GameRandom() {
+        this(System.nanoTime() ^ Thread.currentThread().getId() * GOLDEN_GAMMA);
+    }
+
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    // Called by the Random constructor as well, so state must not have a field initializer
+    @Override
+    public void setSeed(long seed) {
+        state = seed;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    // Moves the sequence by the given number of nextLong() draws, backwards if negative
+    public void skip(long draws) {
+        state += draws * GOLDEN_GAMMA;
+    }
+
+    @Override
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+}
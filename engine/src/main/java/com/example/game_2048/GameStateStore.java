@@ -0,0 +1,228 @@
+package com.example.game_2048;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Write-behind store for the game in progress. update() only records the latest state in
+// memory, so it is safe to call on every move; flush() writes it out on a background thread
+// as one small binary record, and consecutive updates between flushes collapse into one write.
+// The file is replaced atomically (write to a temp file, then rename), so a crash mid-write
+// leaves the previous snapshot intact.
+public final class GameStateStore {
+
+    private static final int MAGIC = 0x32303438; // "2048"
+    private static final int VERSION = 2;
+    // Version 1 had no size: magic, version, board, score, moves, best, win tile, random
+    // state, crc. Version 2 adds the grid size after the version and stores its board words.
+    private static final int V1_RECORD_BYTES = 4 + 4 + 8 + 4 + 4 + 4 + 4 + 8 + 4;
+    private static final int MAX_RECORD_BYTES = recordBytes(GridEngine.MAX_WORDS);
+
+    static int recordBytes(int words) {
+        return 4 + 4 + 4 + 8 * words + 4 * 4 + 8 + 4;
+    }
+
+    public static final class Snapshot {
+        public final int size;
+        // GridEngine.forSize(size).words() longs
+        public final long[] cells;
+        public final int score;
+        public final int moveCount;
+        public final int bestScore;
+        public final int winTile;
+        public final long randomState;
+
+        // 4x4 game
+        public Snapshot(long board, int score, int moveCount, int bestScore, int winTile,
+                        long randomState) {
+            this(BoardEngine.SIZE, new long[] {board}, score, moveCount, bestScore, winTile,
+                    randomState);
+        }
+
+        public Snapshot(int size, long[] cells, int score, int moveCount, int bestScore,
+                        int winTile, long randomState) {
+            this.size = size;
+            this.cells = cells;
+            this.score = score;
+            this.moveCount = moveCount;
+            this.bestScore = bestScore;
+            this.winTile = winTile;
+            this.randomState = randomState;
+        }
+    }
+
+    private final File file;
+    private final File tempFile;
+    // One thread at most, and only while there is something to write
+    private final ThreadPoolExecutor writer;
+
+    private final Object lock = new Object();
+    private Snapshot pending;
+    private long writeCount;
+
+    public GameStateStore(File file) {
+        this.file = file;
+        this.tempFile = new File(file.getPath() + ".tmp");
+        writer = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "game-state-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        writer.allowCoreThreadTimeOut(true);
+    }
+
+    // Reads the last flushed snapshot in a single read, or returns null if there is none
+    // or it is unreadable
+    public Snapshot load() {
+        byte[] bytes = new byte[MAX_RECORD_BYTES];
+        int read = 0;
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            int n;
+            while (read < bytes.length && (n = in.read(bytes, read, bytes.length - read)) > 0) {
+                read += n;
+            }
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+        return decode(bytes, read);
+    }
+
+    // Records the current state without touching the disk
+    public void update(Snapshot snapshot) {
+        synchronized (lock) {
+            pending = snapshot;
+        }
+    }
+
+    // Writes the latest update, if any, in the background
+    public Future<?> flush() {
+        return writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                Snapshot snapshot;
+                synchronized (lock) {
+                    snapshot = pending;
+                    pending = null;
+                }
+                if (snapshot != null) {
+                    write(snapshot);
+                }
+            }
+        });
+    }
+
+    // Number of snapshots actually written to disk
+    public long getWriteCount() {
+        synchronized (lock) {
+            return writeCount;
+        }
+    }
+
+    private void write(Snapshot snapshot) {
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(tempFile);
+            out.write(encode(snapshot));
+            out.getFD().sync();
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Cannot replace " + file);
+            }
+            synchronized (lock) {
+                writeCount++;
+            }
+        } catch (IOException e) {
+            // The old snapshot is still on disk; retry on the next flush unless superseded
+            tempFile.delete();
+            synchronized (lock) {
+                if (pending == null) {
+                    pending = snapshot;
+                }
+            }
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    static byte[] encode(Snapshot snapshot) {
+        ByteBuffer buffer = ByteBuffer.allocate(recordBytes(snapshot.cells.length));
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(snapshot.size);
+        for (long word : snapshot.cells) {
+            buffer.putLong(word);
+        }
+        buffer.putInt(snapshot.score)
+                .putInt(snapshot.moveCount)
+                .putInt(snapshot.bestScore)
+                .putInt(snapshot.winTile)
+                .putLong(snapshot.randomState);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    static Snapshot decode(byte[] bytes, int length) {
+        if (length < V1_RECORD_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        if (buffer.getInt() != MAGIC) {
+            return null;
+        }
+        int version = buffer.getInt();
+        int size = BoardEngine.SIZE;
+        if (version == VERSION) {
+            size = buffer.getInt();
+            if (size < GridEngine.MIN_SIZE || size > GridEngine.MAX_WIDE_SIZE) {
+                return null;
+            }
+        } else if (version != 1) {
+            return null;
+        }
+        int words = GridEngine.forSize(size).words();
+        int expected = version == 1 ? V1_RECORD_BYTES : recordBytes(words);
+        if (length != expected) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, expected - 4);
+        if (buffer.getInt(expected - 4) != (int) crc.getValue()) {
+            return null;
+        }
+        long[] cells = new long[words];
+        for (int i = 0; i < words; i++) {
+            cells[i] = buffer.getLong();
+        }
+        return new Snapshot(size, cells, buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                buffer.getInt(), buffer.getLong());
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
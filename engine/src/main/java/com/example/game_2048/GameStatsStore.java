@@ -0,0 +1,420 @@
+package com.example.game_2048;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Every finished game, one fixed-width record each, appended to a file, plus running
+// aggregates per grid size (count, totals, best, a score histogram for percentiles, max-tile
+// and merge frequencies). Record i sits at i * RECORD_BYTES, so any game can be read without
+// scanning the ones before it.
+//
+// The aggregates are saved next to the records in a summary file together with the number of
+// records they cover, and rewritten at most every SUMMARY_INTERVAL games. Opening the store
+// reads the summary and folds in only the records appended since, so it takes the same time
+// with a hundred games or a million; only a missing or damaged summary costs a full scan.
+// A record torn by a crash is trimmed on the next open, as in LeaderboardStore.
+public final class GameStatsStore {
+
+    private static final int SUMMARY_MAGIC = 0x47535453; // "GSTS"
+    private static final int SUMMARY_VERSION = 1;
+    static final int SUMMARY_INTERVAL = 32;
+
+    // Merges are counted for every exponent a tile can be merged into, 2 (a 4) and up
+    public static final int MAX_EXPONENT = ByteGridEngine.EXPONENT_LIMIT;
+    // long ended at, int score, int moves, int duration, byte size, byte max exponent, and an
+    // unsigned short merge count for each exponent from 2 to MAX_EXPONENT
+    public static final int RECORD_BYTES = 8 + 4 + 4 + 4 + 1 + 1 + 2 * (MAX_EXPONENT - 1);
+
+    public static final class Record {
+        // Wall-clock millis when the game ended
+        public final long endedAt;
+        public final int size;
+        public final int score;
+        public final int moves;
+        // Time spent playing, not counting time away from the game
+        public final int durationMillis;
+        public final int maxExponent;
+        // merges[e]: merges that made a tile of exponent e, saturating at 65,535
+        public final int[] merges;
+
+        public Record(long endedAt, int size, int score, int moves, int durationMillis,
+                      int maxExponent, int[] merges) {
+            this.endedAt = endedAt;
+            this.size = size;
+            this.score = score;
+            this.moves = moves;
+            this.durationMillis = durationMillis;
+            this.maxExponent = maxExponent;
+            this.merges = merges;
+        }
+
+        // A game that ended on the given board. Merges are worked out from the board and the
+        // move count, so nothing has to be tracked while playing: every move and the opening
+        // spawn one 2 or 4, the tiles' total value only grows by spawns, and each tile ever
+        // made is either still on the board or went into a merge. Assumes classic spawns.
+        public static Record of(Game game, int durationMillis, long endedAt) {
+            long[] cells = new long[game.getEngine().words()];
+            game.copyBoard(cells);
+            return of(game.getEngine(), cells, game.getScore(), game.getMoveCount(),
+                    durationMillis, endedAt);
+        }
+
+        // The same from a copy of the final board
+        public static Record of(GridEngine engine, long[] board, int score, int moveCount,
+                                int durationMillis, long endedAt) {
+            int[] onBoard = new int[MAX_EXPONENT + 1];
+            long total = 0;
+            int maxExponent = 0;
+            int cells = engine.getCells();
+            for (int i = 0; i < cells; i++) {
+                int exponent = engine.exponentAt(board, i);
+                if (exponent > 0) {
+                    onBoard[exponent]++;
+                    total += 1L << exponent;
+                    maxExponent = Math.max(maxExponent, exponent);
+                }
+            }
+            long spawns = moveCount + 2L;
+            // 2 * twos + 4 * fours == total and twos + fours == spawns
+            long fours = Math.max(0, total / 2 - spawns);
+            long made = spawns - fours;
+            int[] merges = new int[MAX_EXPONENT + 1];
+            for (int exponent = 1; exponent < MAX_EXPONENT; exponent++) {
+                long mergedUp = Math.max(0, (made - onBoard[exponent]) / 2);
+                merges[exponent + 1] = (int) Math.min(0xFFFF, mergedUp);
+                made = mergedUp + (exponent == 1 ? fours : 0);
+            }
+            return new Record(endedAt, engine.getSize(), score, moveCount, durationMillis,
+                    maxExponent, merges);
+        }
+    }
+
+    // Aggregates over the games of one grid size
+    public static final class Summary {
+        long games;
+        long totalScore;
+        long totalMoves;
+        long totalMillis;
+        int bestScore;
+        final LatencyHistogram scores = new LatencyHistogram();
+        final long[] maxTiles = new long[MAX_EXPONENT + 1];
+        final long[] merges = new long[MAX_EXPONENT + 1];
+
+        void add(Record record) {
+            games++;
+            totalScore += record.score;
+            totalMoves += record.moves;
+            totalMillis += record.durationMillis;
+            bestScore = Math.max(bestScore, record.score);
+            scores.record(record.score);
+            maxTiles[record.maxExponent]++;
+            for (int e = 2; e <= MAX_EXPONENT; e++) {
+                merges[e] += record.merges[e];
+            }
+        }
+
+        void add(Summary other) {
+            games += other.games;
+            totalScore += other.totalScore;
+            totalMoves += other.totalMoves;
+            totalMillis += other.totalMillis;
+            bestScore = Math.max(bestScore, other.bestScore);
+            scores.add(other.scores);
+            for (int e = 0; e <= MAX_EXPONENT; e++) {
+                maxTiles[e] += other.maxTiles[e];
+                merges[e] += other.merges[e];
+            }
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public double getMeanScore() {
+            return games == 0 ? 0 : (double) totalScore / games;
+        }
+
+        // Within 1/16 of the exact value, from the histogram
+        public long getScorePercentile(double fraction) {
+            return scores.percentile(fraction);
+        }
+
+        public int getBestScore() {
+            return bestScore;
+        }
+
+        public double getMeanMoves() {
+            return games == 0 ? 0 : (double) totalMoves / games;
+        }
+
+        public double getMeanMillis() {
+            return games == 0 ? 0 : (double) totalMillis / games;
+        }
+
+        // Games whose largest tile had the given exponent
+        public long getMaxTileCount(int exponent) {
+            return maxTiles[exponent];
+        }
+
+        // Merges into tiles of the given exponent over all games
+        public long getMerges(int exponent) {
+            return merges[exponent];
+        }
+    }
+
+    private final File file;
+    private final File summaryFile;
+    private final File tempFile;
+    private boolean loaded;
+    private long records;
+    // Records the saved summary covers
+    private long summarized;
+    private final Summary[] summaries = new Summary[GridEngine.MAX_SIZE + 1];
+    // Records read while opening, for tests
+    long scanned;
+
+    public GameStatsStore(File file) {
+        this.file = file;
+        this.summaryFile = new File(file.getPath() + ".summary");
+        this.tempFile = new File(file.getPath() + ".summary.tmp");
+        clearSummaries();
+    }
+
+    private void clearSummaries() {
+        for (int size = GridEngine.MIN_SIZE; size <= GridEngine.MAX_SIZE; size++) {
+            summaries[size] = new Summary();
+        }
+    }
+
+    // Reads the summary and catches up on newer records; later calls do nothing. Every other
+    // method loads lazily, so calling this from a background thread keeps the first query fast.
+    public synchronized void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        long length = file.length();
+        records = length / RECORD_BYTES;
+        if (records * RECORD_BYTES != length) {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(records * RECORD_BYTES);
+            } finally {
+                raf.close();
+            }
+        }
+        if (!readSummary() || summarized > records) {
+            clearSummaries();
+            summarized = 0;
+        }
+        if (summarized < records) {
+            fold(summarized);
+            writeSummary();
+        }
+        loaded = true;
+    }
+
+    // Adds every record from the given index on to the aggregates
+    private void fold(long first) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            long skip = first * RECORD_BYTES;
+            while (skip > 0) {
+                long skipped = in.skip(skip);
+                if (skipped <= 0) {
+                    throw new EOFException();
+                }
+                skip -= skipped;
+            }
+            DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            byte[] bytes = new byte[RECORD_BYTES];
+            for (long i = first; i < records; i++) {
+                data.readFully(bytes);
+                Record record = decode(bytes);
+                if (record != null) {
+                    summaries[record.size].add(record);
+                }
+                scanned++;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    public synchronized void append(Record record) throws IOException {
+        load();
+        if (record.size < GridEngine.MIN_SIZE || record.size > GridEngine.MAX_SIZE) {
+            throw new IllegalArgumentException("Bad grid size: " + record.size);
+        }
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            // One write call per record so a crash can only tear the tail
+            out.write(encode(record));
+        } finally {
+            out.close();
+        }
+        records++;
+        summaries[record.size].add(record);
+        if (records - summarized >= SUMMARY_INTERVAL) {
+            writeSummary();
+        }
+    }
+
+    // Number of recorded games of all sizes
+    public synchronized long size() throws IOException {
+        load();
+        return records;
+    }
+
+    // A copy of the aggregates for one grid size
+    public synchronized Summary getSummary(int size) throws IOException {
+        load();
+        Summary copy = new Summary();
+        copy.add(summaries[size]);
+        return copy;
+    }
+
+    // Records first to first + count - 1, fewer if the file ends sooner; one seek and one read
+    public synchronized List<Record> getRecords(long first, int count) throws IOException {
+        load();
+        int n = (int) Math.max(0, Math.min(count, records - first));
+        List<Record> result = new ArrayList<>(n);
+        if (n == 0) {
+            return result;
+        }
+        byte[] bytes = new byte[n * RECORD_BYTES];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(first * RECORD_BYTES);
+            raf.readFully(bytes);
+        } finally {
+            raf.close();
+        }
+        byte[] one = new byte[RECORD_BYTES];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(bytes, i * RECORD_BYTES, one, 0, RECORD_BYTES);
+            Record record = decode(one);
+            if (record != null) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    static byte[] encode(Record record) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+        buffer.putLong(record.endedAt)
+                .putInt(record.score)
+                .putInt(record.moves)
+                .putInt(record.durationMillis)
+                .put((byte) record.size)
+                .put((byte) record.maxExponent);
+        for (int e = 2; e <= MAX_EXPONENT; e++) {
+            buffer.putShort((short) Math.min(0xFFFF, record.merges[e]));
+        }
+        return buffer.array();
+    }
+
+    // Null for a record that cannot be a game, e.g. zeros left by a crash mid-append
+    static Record decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long endedAt = buffer.getLong();
+        int score = buffer.getInt();
+        int moves = buffer.getInt();
+        int durationMillis = buffer.getInt();
+        int size = buffer.get();
+        int maxExponent = buffer.get();
+        if (size < GridEngine.MIN_SIZE || size > GridEngine.MAX_SIZE
+                || maxExponent < 0 || maxExponent > MAX_EXPONENT) {
+            return null;
+        }
+        int[] merges = new int[MAX_EXPONENT + 1];
+        for (int e = 2; e <= MAX_EXPONENT; e++) {
+            merges[e] = buffer.getShort() & 0xFFFF;
+        }
+        return new Record(endedAt, size, score, moves, durationMillis, maxExponent, merges);
+    }
+
+    private boolean readSummary() {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(summaryFile)));
+            if (in.readInt() != SUMMARY_MAGIC || in.readInt() != SUMMARY_VERSION
+                    || in.readInt() != RECORD_BYTES) {
+                return false;
+            }
+            summarized = in.readLong();
+            for (int size = GridEngine.MIN_SIZE; size <= GridEngine.MAX_SIZE; size++) {
+                Summary summary = summaries[size];
+                summary.games = in.readLong();
+                summary.totalScore = in.readLong();
+                summary.totalMoves = in.readLong();
+                summary.totalMillis = in.readLong();
+                summary.bestScore = in.readInt();
+                for (int e = 0; e <= MAX_EXPONENT; e++) {
+                    summary.maxTiles[e] = in.readLong();
+                    summary.merges[e] = in.readLong();
+                }
+                summary.scores.read(in);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    // Replaced atomically like GameStateStore's snapshot; not synced, since a lost summary
+    // only costs a scan on the next open
+    private void writeSummary() throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(SUMMARY_MAGIC);
+            out.writeInt(SUMMARY_VERSION);
+            out.writeInt(RECORD_BYTES);
+            out.writeLong(records);
+            for (int size = GridEngine.MIN_SIZE; size <= GridEngine.MAX_SIZE; size++) {
+                Summary summary = summaries[size];
+                out.writeLong(summary.games);
+                out.writeLong(summary.totalScore);
+                out.writeLong(summary.totalMoves);
+                out.writeLong(summary.totalMillis);
+                out.writeInt(summary.bestScore);
+                for (int e = 0; e <= MAX_EXPONENT; e++) {
+                    out.writeLong(summary.maxTiles[e]);
+                    out.writeLong(summary.merges[e]);
+                }
+                summary.scores.write(out);
+            }
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(summaryFile)) {
+            tempFile.delete();
+            throw new IOException("Cannot replace " + summaryFile);
+        }
+        summarized = records;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
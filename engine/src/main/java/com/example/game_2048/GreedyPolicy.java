@@ -0,0 +1,24 @@
+package com.example.game_2048;
+
+// One-ply lookahead: the move that scores most, ties broken by the most empty cells
+public final class GreedyPolicy implements MovePolicy {
+
+    @Override
+    public int chooseMove(long board) {
+        int best = -1;
+        long bestValue = Long.MIN_VALUE;
+        for (int direction = 0; direction < 4; direction++) {
+            long moved = BoardEngine.move(board, direction);
+            if (moved == board) {
+                continue;
+            }
+            long value = (long) BoardEngine.moveScore(board, direction) * BoardEngine.CELLS
+                    + BoardEngine.emptyCount(moved);
+            if (value > bestValue) {
+                best = direction;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+}
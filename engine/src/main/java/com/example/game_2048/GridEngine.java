@@ -0,0 +1,252 @@
+package com.example.game_2048;
+
+// Rules for an N x N board, 3 <= N <= 32. A board is a long[] of words() longs whose layout
+// depends on the size, so each size gets the fastest representation that fits:
+//   4x4        one long, 4 bits per cell, moved with BoardEngine's 65,536-entry row tables
+//   3x3        one long, 4 bits per cell, with 4,096-entry row tables of its own
+//   5x5-8x8    one long per row, 8 bits per cell; no table would fit in cache, so lines are
+//              slid cell by cell through precomputed line-to-cell maps
+//   9x9-32x32  the zen boards: 8 bits per cell, eight cells to a long; see WideGridEngine
+// Cells are numbered row-major. Up to 8x8 masks over the board fit in one long; the wide
+// boards have no masks and count and find their empty cells instead. Engines are immutable
+// and shared; none of the per-move methods allocate.
+public abstract class GridEngine {
+
+    public static final int MIN_SIZE = 3;
+    // Largest board with a bit per cell in a long, and the largest of the classic sizes
+    public static final int MAX_SIZE = 8;
+    public static final int MAX_WIDE_SIZE = 32;
+    // Longs in the largest board
+    public static final int MAX_WORDS = MAX_WIDE_SIZE * MAX_WIDE_SIZE / 8;
+
+    private static final GridEngine[] ENGINES = new GridEngine[MAX_WIDE_SIZE + 1];
+
+    private static final long ONES_STEP_8 = 0x0101010101010101L;
+    private static final long MSBS_STEP_8 = 0x8080808080808080L;
+    // [rank << 8 | b]: position of the rank-th set bit of the byte b
+    private static final byte[] SELECT_IN_BYTE = new byte[8 * 256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            int rank = 0;
+            for (int bit = 0; bit < 8; bit++) {
+                if ((b & (1 << bit)) != 0) {
+                    SELECT_IN_BYTE[rank++ << 8 | b] = (byte) bit;
+                }
+            }
+        }
+    }
+
+    protected final int size;
+    protected final int cells;
+
+    protected GridEngine(int size) {
+        this.size = size;
+        this.cells = size * size;
+    }
+
+    // Tables are only built for the sizes that are actually played
+    public static synchronized GridEngine forSize(int size) {
+        if (size < MIN_SIZE || size > MAX_WIDE_SIZE) {
+            throw new IllegalArgumentException("Unsupported grid size: " + size);
+        }
+        GridEngine engine = ENGINES[size];
+        if (engine == null) {
+            if (size == BoardEngine.SIZE) {
+                engine = new BitboardGridEngine();
+            } else if (size < BoardEngine.SIZE) {
+                engine = new NibbleGridEngine(size);
+            } else if (size <= MAX_SIZE) {
+                engine = new ByteGridEngine(size);
+            } else {
+                engine = new WideGridEngine(size);
+            }
+            ENGINES[size] = engine;
+        }
+        return engine;
+    }
+
+    public final int getSize() {
+        return size;
+    }
+
+    public final int getCells() {
+        return cells;
+    }
+
+    // True when a long has a bit for every cell, so emptyMask(), traceMove(), changedMask()
+    // and MoveDiff work for this size
+    public final boolean hasCellMasks() {
+        return cells <= Long.SIZE;
+    }
+
+    // Longs per board
+    public abstract int words();
+
+    // Largest exponent a cell can hold; two tiles of this value do not merge
+    public abstract int exponentLimit();
+
+    // Moves from into to (which must be a different array) and returns the points scored,
+    // or -1 if no tile moves, in which case to is unspecified
+    public abstract int move(long[] from, int direction, long[] to);
+
+    public abstract int exponentAt(long[] board, int index);
+
+    // Sets an empty cell
+    public abstract void placeTile(long[] board, int index, int exponent);
+
+    // Bit i set when cell i is empty; only for sizes with cell masks
+    public abstract long emptyMask(long[] board);
+
+    public int emptyCount(long[] board) {
+        return Long.bitCount(emptyMask(board));
+    }
+
+    // Index of the n-th empty cell in row-major order, or -1 if there are fewer
+    public int nthEmptyCell(long[] board, int n) {
+        return nthSetBit(emptyMask(board), n);
+    }
+
+    public abstract int maxExponent(long[] board);
+
+    // True when two equal tiles are horizontally or vertically adjacent
+    public abstract boolean hasAdjacentPair(long[] board);
+
+    public boolean canMove(long[] board) {
+        return emptyMask(board) != 0 || hasAdjacentPair(board);
+    }
+
+    // Same as BoardEngine.traceMove for any size with cell masks: destinations[i] is the cell
+    // tile i ends up in (-1 for empty cells); returns the mask of cells that receive a merge
+    public long traceMove(long[] board, int direction, byte[] destinations) {
+        long mergeMask = 0;
+        int limit = exponentLimit();
+        for (int line = 0; line < size; line++) {
+            int out = 0;
+            int last = 0;
+            int lastDestination = -1;
+            for (int k = 0; k < size; k++) {
+                int index = lineCell(direction, line, k);
+                int value = exponentAt(board, index);
+                if (value == 0) {
+                    destinations[index] = -1;
+                } else if (value == last && value < limit) {
+                    destinations[index] = (byte) lastDestination;
+                    mergeMask |= 1L << lastDestination;
+                    last = 0;
+                } else {
+                    lastDestination = lineCell(direction, line, out++);
+                    destinations[index] = (byte) lastDestination;
+                    last = value;
+                }
+            }
+        }
+        return mergeMask;
+    }
+
+    // Bit i set when cell i holds a different tile in the two boards; only for sizes with
+    // cell masks
+    public long changedMask(long[] before, long[] after) {
+        long mask = 0;
+        for (int i = 0; i < cells; i++) {
+            if (exponentAt(before, i) != exponentAt(after, i)) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    // Index of the k-th cell of a line, counted from the edge the tiles slide towards
+    protected final int lineCell(int direction, int line, int k) {
+        switch (direction) {
+            case BoardEngine.LEFT: return line * size + k;
+            case BoardEngine.RIGHT: return line * size + (size - 1 - k);
+            case BoardEngine.UP: return k * size + line;
+            case BoardEngine.DOWN: return (size - 1 - k) * size + line;
+            default: throw new IllegalArgumentException("Unknown direction: " + direction);
+        }
+    }
+
+    // Index of the n-th set bit of the mask (counting from 0), or -1 if there are fewer.
+    // Broadword select: the popcounts of every byte prefix are summed in one long, the byte
+    // holding the bit is found by comparing all eight sums with n at once, and a table
+    // finishes inside that byte, so there are no loops or data-dependent branches
+    public static int nthSetBit(long mask, int n) {
+        if (n < 0 || n >= Long.bitCount(mask)) {
+            return -1;
+        }
+        long sums = mask - ((mask >>> 1) & 0x5555555555555555L);
+        sums = (sums & 0x3333333333333333L) + ((sums >>> 2) & 0x3333333333333333L);
+        sums = ((sums + (sums >>> 4)) & 0x0F0F0F0F0F0F0F0FL) * ONES_STEP_8;
+        // Bytes whose running count is still <= n, times 8
+        int byteOffset = (int) (((((n * ONES_STEP_8 | MSBS_STEP_8) - sums) & MSBS_STEP_8)
+                >>> 7) * ONES_STEP_8 >>> 53) & ~7;
+        int byteRank = n - (int) (((sums << 8) >>> byteOffset) & 0xFF);
+        return byteOffset + SELECT_IN_BYTE[(int) (mask >>> byteOffset & 0xFF) | byteRank << 8];
+    }
+
+    // 4x4: the single-long BoardEngine board
+    static final class BitboardGridEngine extends GridEngine {
+
+        BitboardGridEngine() {
+            super(BoardEngine.SIZE);
+        }
+
+        @Override
+        public int words() {
+            return 1;
+        }
+
+        @Override
+        public int exponentLimit() {
+            return BoardEngine.MAX_EXPONENT;
+        }
+
+        @Override
+        public int move(long[] from, int direction, long[] to) {
+            long board = from[0];
+            long moved = BoardEngine.move(board, direction);
+            if (moved == board) {
+                return -1;
+            }
+            to[0] = moved;
+            return BoardEngine.moveScore(board, direction);
+        }
+
+        @Override
+        public int exponentAt(long[] board, int index) {
+            return BoardEngine.exponentAt(board[0], index);
+        }
+
+        @Override
+        public void placeTile(long[] board, int index, int exponent) {
+            board[0] |= (long) exponent << (4 * index);
+        }
+
+        @Override
+        public long emptyMask(long[] board) {
+            return BoardEngine.emptyMask(board[0]);
+        }
+
+        @Override
+        public int maxExponent(long[] board) {
+            return BoardEngine.maxExponent(board[0]);
+        }
+
+        @Override
+        public boolean hasAdjacentPair(long[] board) {
+            return BoardEngine.hasAdjacentPair(board[0]);
+        }
+
+        @Override
+        public long traceMove(long[] board, int direction, byte[] destinations) {
+            return BoardEngine.traceMove(board[0], direction, destinations) & 0xFFFFL;
+        }
+
+        // A cell is unchanged exactly where the XOR of the boards has an empty nibble
+        @Override
+        public long changedMask(long[] before, long[] after) {
+            return ~BoardEngine.emptyMask(before[0] ^ after[0]) & 0xFFFFL;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.game_2048;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// Per-player best scores kept in an append-only file. Every personal best appends one
+// record (UTF-8 name, score); on open the file is replayed once into an in-memory index:
+// a slot per player plus an array of slots sorted by score, so best, rank and page queries
+// never touch the disk and a new best costs one binary search, one array shift and one
+// small append. A record torn by a crash is dropped and trimmed on the next open.
+public final class LeaderboardStore {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    public static final class Entry {
+        public final int rank;
+        public final String name;
+        public final int score;
+
+        Entry(int rank, String name, int score) {
+            this.rank = rank;
+            this.name = name;
+            this.score = score;
+        }
+    }
+
+    private final File file;
+    private boolean loaded;
+
+    // Player slots in order of first appearance
+    private final HashMap<String, Integer> slots = new HashMap<>();
+    private String[] names = new String[16];
+    private int[] best = new int[16];
+    private int players;
+    // Slots ordered by best score, highest first; ties keep the earlier player first
+    private int[] ranking = new int[16];
+
+    public LeaderboardStore(File file) {
+        this.file = file;
+    }
+
+    // Reads the file into the index; later calls do nothing. Every other method loads lazily,
+    // so calling this up front from a background thread keeps the first query fast.
+    public synchronized void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        long valid = 0;
+        if (file.exists()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file), 1 << 16));
+            try {
+                byte[] nameBytes = new byte[64];
+                while (true) {
+                    int length = in.readUnsignedShort();
+                    if (length > nameBytes.length) {
+                        nameBytes = new byte[length];
+                    }
+                    in.readFully(nameBytes, 0, length);
+                    int score = in.readInt();
+                    setBest(new String(nameBytes, 0, length, UTF_8), score);
+                    valid += 2 + length + 4;
+                }
+            } catch (EOFException endOfRecords) {
+                // Clean end of file, or a partial record from an interrupted append
+            } finally {
+                in.close();
+            }
+            if (valid < file.length()) {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.setLength(valid);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+        rebuildRanking();
+        loaded = true;
+    }
+
+    // Records a finished game; returns true if it is a new personal best (and was saved)
+    public synchronized boolean submit(String name, int score) throws IOException {
+        load();
+        Integer slot = slots.get(name);
+        if (slot != null && best[slot] >= score) {
+            return false;
+        }
+        byte[] nameBytes = name.getBytes(UTF_8);
+        if (nameBytes.length > MAX_NAME_BYTES || score < 0) {
+            throw new IllegalArgumentException("Bad entry: " + score);
+        }
+
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            // One write call per record so a crash can only tear the tail
+            byte[] record = new byte[2 + nameBytes.length + 4];
+            record[0] = (byte) (nameBytes.length >>> 8);
+            record[1] = (byte) nameBytes.length;
+            System.arraycopy(nameBytes, 0, record, 2, nameBytes.length);
+            int at = 2 + nameBytes.length;
+            record[at] = (byte) (score >>> 24);
+            record[at + 1] = (byte) (score >>> 16);
+            record[at + 2] = (byte) (score >>> 8);
+            record[at + 3] = (byte) score;
+            out.write(record);
+        } finally {
+            out.close();
+        }
+        apply(name, score);
+        return true;
+    }
+
+    // Adds or raises a player's best and moves them to their new place in the ranking
+    private void apply(String name, int score) {
+        Integer existing = slots.get(name);
+        if (existing != null) {
+            if (best[existing] >= score) {
+                return;
+            }
+            int from = position(existing);
+            System.arraycopy(ranking, from + 1, ranking, from, players - 1 - from);
+        }
+        int slot = setBest(name, score);
+
+        // ranking holds players - 1 entries at this point
+        int to = insertionPoint(score, slot, players - 1);
+        System.arraycopy(ranking, to, ranking, to + 1, players - 1 - to);
+        ranking[to] = slot;
+    }
+
+    // Updates the per-player arrays only; load() ranks everyone in one sort at the end
+    // instead of shifting the ranking array once per record
+    private int setBest(String name, int score) {
+        Integer existing = slots.get(name);
+        if (existing != null) {
+            best[existing] = Math.max(best[existing], score);
+            return existing;
+        }
+        int slot = players++;
+        if (slot == names.length) {
+            names = Arrays.copyOf(names, slot * 2);
+            best = Arrays.copyOf(best, slot * 2);
+            ranking = Arrays.copyOf(ranking, slot * 2);
+        }
+        slots.put(name, slot);
+        names[slot] = name;
+        best[slot] = score;
+        return slot;
+    }
+
+    private void rebuildRanking() {
+        // Score descending, then slot ascending, as one primitive sort
+        long[] keys = new long[players];
+        for (int slot = 0; slot < players; slot++) {
+            keys[slot] = (long) (Integer.MAX_VALUE - best[slot]) << 32 | slot;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < players; i++) {
+            ranking[i] = (int) keys[i];
+        }
+    }
+
+    // First index among the first count ranking entries that sorts after (score, slot)
+    private int insertionPoint(int score, int slot, int count) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int other = ranking[mid];
+            if (best[other] > score || (best[other] == score && other < slot)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Index of a ranked slot
+    private int position(int slot) {
+        return insertionPoint(best[slot], slot, players);
+    }
+
+    public synchronized int size() throws IOException {
+        load();
+        return players;
+    }
+
+    // Best score of the player, or -1 if they have no entry
+    public synchronized int getBest(String name) throws IOException {
+        load();
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : best[slot];
+    }
+
+    // 1-based rank of the player, or -1 if they have no entry
+    public synchronized int getRank(String name) throws IOException {
+        load();
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : position(slot) + 1;
+    }
+
+    // Entries ranked offset + 1 to offset + limit
+    public synchronized List<Entry> getPage(int offset, int limit) throws IOException {
+        load();
+        int end = (int) Math.min(players, (long) offset + limit);
+        List<Entry> page = new ArrayList<>(Math.max(0, end - offset));
+        for (int i = offset; i < end; i++) {
+            int slot = ranking[i];
+            page.add(new Entry(i + 1, names[slot], best[slot]));
+        }
+        return page;
+    }
+}
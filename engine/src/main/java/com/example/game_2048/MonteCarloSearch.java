@@ -0,0 +1,257 @@
+package com.example.game_2048;
+
+import java.util.concurrent.ThreadFactory;
+
+// Flat Monte Carlo move choice over BoardEngine boards: every legal move is followed by the
+// same number of random playouts to the end of the game, and the move whose playouts score
+// most on average wins. The playouts are split evenly across a fixed set of worker threads,
+// the calling thread being one of them. Each worker has its own GameRandom, move buffers and
+// totals, so a decision allocates nothing and the workers only meet at the start and end of
+// a round.
+//
+// With a fixed seed and parallelism every worker plays the same playouts, so decisions are
+// reproducible. chooseMove() may be called from one thread at a time.
+public final class MonteCarloSearch implements MovePolicy {
+
+    public static final int DEFAULT_ROLLOUTS = 2000;
+
+    private final int rolloutsPerMove;
+    private final Worker[] workers;
+    // workers[i] runs on threads[i - 1]; workers[0] runs on the caller
+    private final Thread[] threads;
+
+    // Guarded by lock: the round the workers are asked to play, and how many are still at it
+    private final Object lock = new Object();
+    private long round;
+    private int running;
+    private boolean shutdown;
+    // The board being decided on, one move ahead: written before a round is started
+    private final long[] firstBoards = new long[4];
+    private final int[] firstScores = new int[4];
+    private int legalMask;
+
+    // Totals since creation, for rollouts/s readings from any thread
+    private volatile long rollouts;
+    private volatile long rolloutMoves;
+
+    public MonteCarloSearch(int parallelism, int rolloutsPerMove, long seed) {
+        this(parallelism, rolloutsPerMove, seed, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r);
+            }
+        });
+    }
+
+    // The factory makes the parallelism - 1 helper threads, which are made daemons
+    public MonteCarloSearch(int parallelism, int rolloutsPerMove, long seed, ThreadFactory factory) {
+        if (parallelism < 1 || rolloutsPerMove < 1) {
+            throw new IllegalArgumentException("parallelism " + parallelism
+                    + ", rollouts " + rolloutsPerMove);
+        }
+        this.rolloutsPerMove = rolloutsPerMove;
+        GameRandom seeds = new GameRandom(seed);
+        workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            int share = rolloutsPerMove / parallelism + (i < rolloutsPerMove % parallelism ? 1 : 0);
+            workers[i] = new Worker(share, seeds.nextLong());
+        }
+        threads = new Thread[parallelism - 1];
+        for (int i = 0; i < threads.length; i++) {
+            final Worker worker = workers[i + 1];
+            threads[i] = factory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    serve(worker);
+                }
+            });
+            threads[i].setName("rollout-" + (i + 1));
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    public int getRolloutsPerMove() {
+        return rolloutsPerMove;
+    }
+
+    // Playouts finished since the search was created
+    public long getRollouts() {
+        return rollouts;
+    }
+
+    // Moves made inside those playouts
+    public long getRolloutMoves() {
+        return rolloutMoves;
+    }
+
+    // A board with a single legal move gets it without any playouts
+    @Override
+    public int chooseMove(long board) {
+        int legal = 0;
+        int only = -1;
+        for (int direction = 0; direction < 4; direction++) {
+            long moved = BoardEngine.move(board, direction);
+            if (moved != board) {
+                legal |= 1 << direction;
+                only = direction;
+            }
+            firstBoards[direction] = moved;
+            firstScores[direction] = BoardEngine.moveScore(board, direction);
+        }
+        if (Integer.bitCount(legal) <= 1) {
+            return only;
+        }
+
+        synchronized (lock) {
+            if (shutdown) {
+                throw new IllegalStateException("MonteCarloSearch is shut down");
+            }
+            legalMask = legal;
+            running = workers.length;
+            round++;
+            lock.notifyAll();
+        }
+        workers[0].play();
+        finished();
+        // The playouts are never abandoned half way, so an interrupt waits for them too
+        boolean interrupted = false;
+        synchronized (lock) {
+            while (running > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        int best = -1;
+        long bestTotal = Long.MIN_VALUE;
+        long moves = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            if ((legal & (1 << direction)) == 0) {
+                continue;
+            }
+            // Every legal move gets the same number of playouts, so totals compare as means
+            long total = 0;
+            for (Worker worker : workers) {
+                total += worker.totals[direction];
+            }
+            if (total > bestTotal) {
+                best = direction;
+                bestTotal = total;
+            }
+        }
+        for (Worker worker : workers) {
+            moves += worker.moves;
+        }
+        rollouts += (long) rolloutsPerMove * Integer.bitCount(legal);
+        rolloutMoves += moves;
+        return best;
+    }
+
+    // Stops the helper threads; chooseMove() fails afterwards
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void serve(Worker worker) {
+        long played = 0;
+        while (true) {
+            synchronized (lock) {
+                while (round == played && !shutdown) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (shutdown) {
+                    return;
+                }
+                played = round;
+            }
+            worker.play();
+            finished();
+        }
+    }
+
+    private void finished() {
+        synchronized (lock) {
+            if (--running == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private final class Worker {
+        private final int share;
+        private final GameRandom random;
+        // Reused for every step of every playout: the boards after each legal move
+        private final long[] nextBoards = new long[4];
+        private final int[] nextScores = new int[4];
+        // This round's results, read by the caller once every worker is done
+        final long[] totals = new long[4];
+        long moves;
+
+        Worker(int share, long seed) {
+            this.share = share;
+            random = new GameRandom(seed);
+        }
+
+        // Reads the round's boards, which were written under the lock before it started
+        void play() {
+            moves = 0;
+            for (int direction = 0; direction < 4; direction++) {
+                long total = 0;
+                if ((legalMask & (1 << direction)) != 0) {
+                    long first = firstBoards[direction];
+                    for (int i = 0; i < share; i++) {
+                        total += firstScores[direction] + playOut(first);
+                    }
+                }
+                totals[direction] = total;
+            }
+        }
+
+        // Spawns and random legal moves until none is left; returns the points scored
+        private long playOut(long board) {
+            long score = 0;
+            int steps = 0;
+            while (true) {
+                int empty = BoardEngine.emptyMask(board);
+                int cell = BoardEngine.nthSetBit(empty, random.nextInt(Integer.bitCount(empty)));
+                board |= (random.nextInt(10) == 0 ? 2L : 1L) << (4 * cell);
+
+                int legal = 0;
+                for (int direction = 0; direction < 4; direction++) {
+                    long moved = BoardEngine.move(board, direction);
+                    if (moved != board) {
+                        nextBoards[legal] = moved;
+                        nextScores[legal] = BoardEngine.moveScore(board, direction);
+                        legal++;
+                    }
+                }
+                if (legal == 0) {
+                    moves += steps;
+                    return score;
+                }
+                int pick = legal == 1 ? 0 : random.nextInt(legal);
+                score += nextScores[pick];
+                board = nextBoards[pick];
+                steps++;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.game_2048;
+
+// What one move did to the board, filled in by Game.move(direction, diff) so a view can
+// redraw and animate only the cells involved. Cells are numbered row-major as in the
+// GridEngine masks. Preallocated and reused: filling one allocates nothing.
+public final class MoveDiff {
+
+    // destinations[i] is the cell the tile in cell i slid to, or -1 if cell i was empty
+    final byte[] destinations;
+    long changedMask;
+    long mergeMask;
+    int spawnIndex = -1;
+
+    public MoveDiff(int cells) {
+        destinations = new byte[cells];
+    }
+
+    // Cells whose tile is different after the move, and the spawned one even when it lands
+    // where an equal tile slid away from
+    public long getChangedMask() {
+        return changedMask;
+    }
+
+    // Cells that received a merge
+    public long getMergeMask() {
+        return mergeMask;
+    }
+
+    // Cell of the new tile, or -1 if the board was full
+    public int getSpawnIndex() {
+        return spawnIndex;
+    }
+
+    public int getDestination(int cell) {
+        return destinations[cell];
+    }
+
+    public void copyFrom(MoveDiff other) {
+        System.arraycopy(other.destinations, 0, destinations, 0, destinations.length);
+        changedMask = other.changedMask;
+        mergeMask = other.mergeMask;
+        spawnIndex = other.spawnIndex;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.game_2048;
+
+import java.util.Arrays;
+
+// Undo/redo history as two parallel primitive arrays used as a ring: the packed board after
+// each move (words longs, one for 4x4) and the points that move scored, 12 bytes per move on
+// 4x4. The ring doubles when full until it reaches maxStates, after which the oldest moves
+// are forgotten. Moving through the history is O(1) and never allocates; only growing does.
+public final class MoveHistory {
+
+    public static final int DEFAULT_MAX_STATES = 1 << 20;
+
+    private final int words;
+    private final int maxStates;
+    private long[] boards;
+    private int[] scoreDeltas;
+    // Ring slot of the oldest state, number of states kept, and offset of the current state
+    private int start;
+    private int count;
+    private int cursor;
+
+    public MoveHistory() {
+        this(1, DEFAULT_MAX_STATES);
+    }
+
+    public MoveHistory(int maxStates) {
+        this(1, maxStates);
+    }
+
+    // History for boards of the given number of longs (GridEngine.words())
+    public MoveHistory(int words, int maxStates) {
+        if (maxStates < 2) {
+            throw new IllegalArgumentException("History needs room for two states: " + maxStates);
+        }
+        this.words = words;
+        this.maxStates = maxStates;
+        scoreDeltas = new int[Math.min(maxStates, 1024)];
+        boards = new long[scoreDeltas.length * words];
+        reset(0);
+    }
+
+    // Forgets everything and starts again from the given single-word board
+    public void reset(long board) {
+        start = 0;
+        count = 1;
+        cursor = 0;
+        boards[0] = board;
+        scoreDeltas[0] = 0;
+    }
+
+    public void reset(long[] board) {
+        reset(0);
+        System.arraycopy(board, 0, boards, 0, words);
+    }
+
+    // Records a move made from the current single-word state; any redo steps are dropped
+    public void push(long board, int scoreDelta) {
+        int slot = append(scoreDelta);
+        boards[slot * words] = board;
+    }
+
+    public void push(long[] board, int scoreDelta) {
+        int slot = append(scoreDelta);
+        System.arraycopy(board, 0, boards, slot * words, words);
+    }
+
+    private int append(int scoreDelta) {
+        count = cursor + 1;
+        if (count == scoreDeltas.length) {
+            if (scoreDeltas.length < maxStates) {
+                grow();
+            }
+        }
+        if (count == maxStates) {
+            start = slot(1);
+            count--;
+            cursor--;
+        }
+        int slot = slot(count);
+        scoreDeltas[slot] = scoreDelta;
+        count++;
+        cursor++;
+        return slot;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(maxStates, scoreDeltas.length * 2L);
+        long[] newBoards = new long[capacity * words];
+        int[] newDeltas = new int[capacity];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(boards, slot(i) * words, newBoards, i * words, words);
+            newDeltas[i] = scoreDeltas[slot(i)];
+        }
+        boards = newBoards;
+        scoreDeltas = newDeltas;
+        start = 0;
+    }
+
+    private int slot(int offset) {
+        int slot = start + offset;
+        return slot >= scoreDeltas.length ? slot - scoreDeltas.length : slot;
+    }
+
+    public boolean canUndo() {
+        return cursor > 0;
+    }
+
+    public boolean canRedo() {
+        return cursor < count - 1;
+    }
+
+    // Steps back one move and returns the points that move had scored
+    public int undo() {
+        if (!canUndo()) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        return scoreDeltas[slot(cursor--)];
+    }
+
+    // Steps forward one move and returns the points it scores
+    public int redo() {
+        if (!canRedo()) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        return scoreDeltas[slot(++cursor)];
+    }
+
+    // Board of the current single-word state
+    public long getBoard() {
+        return boards[slot(cursor) * words];
+    }
+
+    public void getBoard(long[] out) {
+        System.arraycopy(boards, slot(cursor) * words, out, 0, words);
+    }
+
+    // Moves that can be undone
+    public int getUndoDepth() {
+        return cursor;
+    }
+
+    public int getRedoDepth() {
+        return count - 1 - cursor;
+    }
+
+    // First state of the at most limit states that export() keeps: as many of the latest
+    // states as fit, but never leaving out the current one
+    private int exportStart(int limit) {
+        return Math.max(0, Math.min(count - limit, cursor));
+    }
+
+    // Boards of up to limit states, oldest first and words longs each, for saving
+    public long[] exportBoards(int limit) {
+        int from = exportStart(limit);
+        int states = Math.min(limit, count - from);
+        long[] out = new long[states * words];
+        for (int i = 0; i < states; i++) {
+            System.arraycopy(boards, slot(from + i) * words, out, i * words, words);
+        }
+        return out;
+    }
+
+    // Score deltas matching exportBoards(limit)
+    public int[] exportScoreDeltas(int limit) {
+        int from = exportStart(limit);
+        int[] out = new int[Math.min(limit, count - from)];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = scoreDeltas[slot(from + i)];
+        }
+        return out;
+    }
+
+    // Index of the current state within exportBoards(limit)
+    public int exportCursor(int limit) {
+        return cursor - exportStart(limit);
+    }
+
+    // Replaces the history with previously exported arrays
+    public void restore(long[] savedBoards, int[] savedScoreDeltas, int savedCursor) {
+        int length = savedScoreDeltas.length;
+        if (length == 0 || savedBoards.length != length * words || savedCursor < 0
+                || savedCursor >= length) {
+            throw new IllegalArgumentException("Inconsistent history");
+        }
+        int keep = Math.min(length, maxStates);
+        int skip = length - keep;
+        int capacity = scoreDeltas.length;
+        while (capacity < keep) {
+            capacity = (int) Math.min(maxStates, capacity * 2L);
+        }
+        boards = Arrays.copyOfRange(savedBoards, skip * words, (skip + capacity) * words);
+        scoreDeltas = Arrays.copyOfRange(savedScoreDeltas, skip, skip + capacity);
+        start = 0;
+        count = keep;
+        cursor = Math.max(0, savedCursor - skip);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.game_2048;
+
+// Chooses the next move for automated play. Implementations may keep per-instance state,
+// so each thread needs its own instance.
+public interface MovePolicy {
+
+    // Returns a BoardEngine direction that changes the board, or -1 when none does
+    int chooseMove(long board);
+}
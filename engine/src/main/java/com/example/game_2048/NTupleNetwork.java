@@ -0,0 +1,193 @@
+package com.example.game_2048;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+// Learned value of a 4x4 afterstate: an n-tuple network of four 5-cell shapes, each looked
+// at in all 8 rotations and reflections of the board with shared weights, so a value is the
+// sum of 32 table lookups indexed by the exponents under the shape (16^5 entries per shape).
+//
+// The weights are one flat little-endian float array, 16 MB, behind a 16-byte header (int
+// magic "NTUP", version, shapes, weights per shape). A trained file is memory-mapped
+// read-only rather than read into the heap; a fresh network for training lives in a heap
+// buffer, and update() from several threads at once is allowed (lost updates only add noise
+// to the learning, as in Hogwild SGD).
+public final class NTupleNetwork {
+
+    private static final int MAGIC = 0x4E545550; // "NTUP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    // Cells of each shape, row-major: the outer row plus the cell below its corner, the
+    // second row likewise, and two 2x3 rectangles missing one corner
+    private static final int[][] SHAPES = {
+            {0, 1, 2, 3, 4},
+            {4, 5, 6, 7, 8},
+            {0, 1, 2, 4, 5},
+            {4, 5, 6, 8, 9},
+    };
+    private static final int TUPLE_SIZE = 5;
+    private static final int WEIGHTS_PER_SHAPE = 1 << (4 * TUPLE_SIZE);
+    public static final int WEIGHTS = SHAPES.length * WEIGHTS_PER_SHAPE;
+    // Lookups per evaluation
+    static final int FEATURES = SHAPES.length * 8;
+
+    // Bit shift of every cell of every feature: [feature * TUPLE_SIZE + k]
+    private static final int[] SHIFTS = new int[FEATURES * TUPLE_SIZE];
+
+    static {
+        int feature = 0;
+        for (int[] shape : SHAPES) {
+            for (int symmetry = 0; symmetry < 8; symmetry++) {
+                for (int k = 0; k < TUPLE_SIZE; k++) {
+                    SHIFTS[feature * TUPLE_SIZE + k] = 4 * transform(shape[k], symmetry);
+                }
+                feature++;
+            }
+        }
+    }
+
+    // Cell the given cell lands on under one of the 8 symmetries of the square
+    private static int transform(int cell, int symmetry) {
+        int row = cell / BoardEngine.SIZE;
+        int col = cell % BoardEngine.SIZE;
+        int last = BoardEngine.SIZE - 1;
+        if ((symmetry & 1) != 0) {
+            col = last - col;
+        }
+        if ((symmetry & 2) != 0) {
+            row = last - row;
+        }
+        if ((symmetry & 4) != 0) {
+            int swap = row;
+            row = col;
+            col = swap;
+        }
+        return row * BoardEngine.SIZE + col;
+    }
+
+    private final FloatBuffer weights;
+
+    private NTupleNetwork(FloatBuffer weights) {
+        this.weights = weights;
+    }
+
+    // All-zero weights on the heap, for training
+    public static NTupleNetwork create() {
+        return new NTupleNetwork(FloatBuffer.allocate(WEIGHTS));
+    }
+
+    public static NTupleNetwork map(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            return map(in.getChannel(), 0, in.length());
+        } finally {
+            // The mapping stays valid after the channel is closed
+            in.close();
+        }
+    }
+
+    // Maps a network stored at the given offset of a file, e.g. an uncompressed APK asset
+    public static NTupleNetwork map(FileChannel channel, long offset, long length)
+            throws IOException {
+        if (length != HEADER_BYTES + 4L * WEIGHTS) {
+            throw new IOException("Not a network of this layout: " + length + " bytes");
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, offset + header.position()) < 0) {
+                throw new IOException("Truncated network");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION
+                || header.getInt() != SHAPES.length || header.getInt() != WEIGHTS_PER_SHAPE) {
+            throw new IOException("Not a network of this layout");
+        }
+        ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset + HEADER_BYTES,
+                4L * WEIGHTS);
+        return new NTupleNetwork(mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+    }
+
+    // Continues training from a saved network: copies it onto the heap
+    public static NTupleNetwork load(File file) throws IOException {
+        NTupleNetwork network = create();
+        network.weights.put(map(file).weights);
+        network.weights.clear();
+        return network;
+    }
+
+    public void save(File file) throws IOException {
+        FileChannel out = new FileOutputStream(file).getChannel();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(SHAPES.length).putInt(WEIGHTS_PER_SHAPE);
+            for (int i = 0; i < WEIGHTS; i++) {
+                if (buffer.remaining() < 4) {
+                    writeFully(out, buffer);
+                }
+                buffer.putFloat(weights.get(i));
+            }
+            writeFully(out, buffer);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int index(long board, int feature) {
+        int base = feature * TUPLE_SIZE;
+        int index = 0;
+        for (int k = 0; k < TUPLE_SIZE; k++) {
+            index |= (int) ((board >>> SHIFTS[base + k]) & 0xF) << (4 * k);
+        }
+        return (feature >>> 3) * WEIGHTS_PER_SHAPE + index;
+    }
+
+    public float evaluate(long board) {
+        float value = 0;
+        for (int feature = 0; feature < FEATURES; feature++) {
+            value += weights.get(index(board, feature));
+        }
+        return value;
+    }
+
+    // Adds delta to every weight the board looks up, moving evaluate(board) by FEATURES * delta
+    public void update(long board, float delta) {
+        for (int feature = 0; feature < FEATURES; feature++) {
+            int i = index(board, feature);
+            weights.put(i, weights.get(i) + delta);
+        }
+    }
+
+    // The move with the highest points plus afterstate value, or -1 when none changes the board
+    public int bestMove(long board) {
+        int best = -1;
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (int direction = 0; direction < 4; direction++) {
+            long moved = BoardEngine.move(board, direction);
+            if (moved == board) {
+                continue;
+            }
+            float value = BoardEngine.moveScore(board, direction) + evaluate(moved);
+            if (value > bestValue) {
+                best = direction;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+}
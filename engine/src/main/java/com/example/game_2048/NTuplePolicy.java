@@ -0,0 +1,16 @@
+package com.example.game_2048;
+
+// Greedy play by a trained NTupleNetwork: no search, four evaluations per move
+public final class NTuplePolicy implements MovePolicy {
+
+    private final NTupleNetwork network;
+
+    public NTuplePolicy(NTupleNetwork network) {
+        this.network = network;
+    }
+
+    @Override
+    public int chooseMove(long board) {
+        return network.bestMove(board);
+    }
+}
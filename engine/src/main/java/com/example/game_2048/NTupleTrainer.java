@@ -0,0 +1,56 @@
+package com.example.game_2048;
+
+import java.util.Random;
+
+// Temporal-difference self-play for an NTupleNetwork: TD(0) on afterstates (the board after
+// the slide, before the spawn). Every move is the network's greedy choice, and the value of
+// the previous afterstate is pulled towards the points of the next move plus the value of
+// the afterstate it leads to; the last one towards 0. Games use the same spawn rules as
+// the app. One trainer per thread; any number may share a network.
+public final class NTupleTrainer {
+
+    public static final float DEFAULT_LEARNING_RATE = 0.1f;
+
+    private final NTupleNetwork network;
+    // Step per lookup, so a whole evaluation moves by the learning rate times the error
+    private final float step;
+    private final Game game;
+
+    public NTupleTrainer(NTupleNetwork network, float learningRate, Random random) {
+        this.network = network;
+        this.step = learningRate / NTupleNetwork.FEATURES;
+        this.game = new Game(random);
+    }
+
+    // Plays one game to the end from a fresh board and returns its score. The Random
+    // should be seeded beforehand if the game is to be reproducible.
+    public int playGame() {
+        game.restart();
+        long afterstate = 0;
+        boolean first = true;
+        int direction;
+        while ((direction = network.bestMove(game.getBoard())) >= 0) {
+            long board = game.getBoard();
+            long next = BoardEngine.move(board, direction);
+            int points = BoardEngine.moveScore(board, direction);
+            if (!first) {
+                learn(afterstate, points + network.evaluate(next));
+            }
+            first = false;
+            afterstate = next;
+            game.move(direction);
+        }
+        if (!first) {
+            learn(afterstate, 0);
+        }
+        return game.getScore();
+    }
+
+    private void learn(long afterstate, float target) {
+        network.update(afterstate, step * (target - network.evaluate(afterstate)));
+    }
+
+    public Game getGame() {
+        return game;
+    }
+}
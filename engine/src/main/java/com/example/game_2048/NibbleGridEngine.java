@@ -0,0 +1,185 @@
+package com.example.game_2048;
+
+// Boards of up to 4x4 in one long, 4 bits per cell (row r, column c at nibble r * size + c),
+// with per-row lookup tables like BoardEngine's. Columns are gathered into row form, looked
+// up and scattered back. Used for 3x3, where the tables have 4,096 entries; 4x4 goes through
+// BoardEngine, whose transposes make columns cheaper.
+final class NibbleGridEngine extends GridEngine {
+
+    private static final int INFO_MAX = 0xF0;
+    private static final int INFO_PAIR = 1 << 8;
+
+    private final int rowBits;
+    private final long rowMask;
+    private final char[] rowLeft;
+    private final char[] rowRight;
+    private final int[] lineScore;
+    // Per-row summary: empty-cell mask, max exponent << 4, INFO_PAIR
+    private final char[] rowInfo;
+
+    NibbleGridEngine(int size) {
+        super(size);
+        if (size > BoardEngine.SIZE) {
+            throw new IllegalArgumentException("Too large for one long: " + size);
+        }
+        rowBits = 4 * size;
+        rowMask = (1L << rowBits) - 1;
+        int rows = 1 << rowBits;
+        rowLeft = new char[rows];
+        rowRight = new char[rows];
+        lineScore = new int[rows];
+        rowInfo = new char[rows];
+
+        int[] line = new int[size];
+        for (int row = 0; row < rows; row++) {
+            int info = 0;
+            int max = 0;
+            for (int i = 0; i < size; i++) {
+                line[i] = (row >>> (4 * i)) & 0xF;
+                if (line[i] == 0) {
+                    info |= 1 << i;
+                } else if (i > 0 && line[i] == line[i - 1]) {
+                    info |= INFO_PAIR;
+                }
+                max = Math.max(max, line[i]);
+            }
+            rowInfo[row] = (char) (info | max << 4);
+
+            lineScore[row] = slide(line);
+            rowLeft[row] = (char) pack(line);
+
+            for (int i = 0; i < size; i++) {
+                line[i] = (row >>> (4 * (size - 1 - i))) & 0xF;
+            }
+            slide(line);
+            int right = 0;
+            for (int i = 0; i < size; i++) {
+                right |= line[i] << (4 * (size - 1 - i));
+            }
+            rowRight[row] = (char) right;
+        }
+    }
+
+    private int slide(int[] line) {
+        int score = 0;
+        int out = 0;
+        int last = 0;
+        for (int i = 0; i < size; i++) {
+            int value = line[i];
+            if (value == 0) {
+                continue;
+            }
+            if (value == last && value < BoardEngine.MAX_EXPONENT) {
+                line[out - 1] = value + 1;
+                score += 1 << (value + 1);
+                last = 0;
+            } else {
+                line[out++] = value;
+                last = value;
+            }
+        }
+        while (out < size) {
+            line[out++] = 0;
+        }
+        return score;
+    }
+
+    private int pack(int[] line) {
+        int row = 0;
+        for (int i = 0; i < size; i++) {
+            row |= line[i] << (4 * i);
+        }
+        return row;
+    }
+
+    @Override
+    public int words() {
+        return 1;
+    }
+
+    @Override
+    public int exponentLimit() {
+        return BoardEngine.MAX_EXPONENT;
+    }
+
+    // Column c as a row, top cell in the lowest nibble
+    private int column(long board, int c) {
+        int column = 0;
+        for (int k = 0; k < size; k++) {
+            column |= (int) ((board >>> (4 * (k * size + c))) & 0xF) << (4 * k);
+        }
+        return column;
+    }
+
+    @Override
+    public int move(long[] from, int direction, long[] to) {
+        long board = from[0];
+        long moved = 0;
+        int score = 0;
+        if (direction == BoardEngine.LEFT || direction == BoardEngine.RIGHT) {
+            char[] table = direction == BoardEngine.LEFT ? rowLeft : rowRight;
+            for (int r = 0; r < size; r++) {
+                int row = (int) ((board >>> (rowBits * r)) & rowMask);
+                moved |= (long) table[row] << (rowBits * r);
+                score += lineScore[row];
+            }
+        } else if (direction == BoardEngine.UP || direction == BoardEngine.DOWN) {
+            char[] table = direction == BoardEngine.UP ? rowLeft : rowRight;
+            for (int c = 0; c < size; c++) {
+                int column = column(board, c);
+                int slid = table[column];
+                for (int k = 0; k < size; k++) {
+                    moved |= (long) ((slid >>> (4 * k)) & 0xF) << (4 * (k * size + c));
+                }
+                score += lineScore[column];
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown direction: " + direction);
+        }
+        if (moved == board) {
+            return -1;
+        }
+        to[0] = moved;
+        return score;
+    }
+
+    @Override
+    public int exponentAt(long[] board, int index) {
+        return (int) (board[0] >>> (4 * index)) & 0xF;
+    }
+
+    @Override
+    public void placeTile(long[] board, int index, int exponent) {
+        board[0] |= (long) exponent << (4 * index);
+    }
+
+    @Override
+    public long emptyMask(long[] board) {
+        long mask = 0;
+        int rowEmpty = (1 << size) - 1;
+        for (int r = 0; r < size; r++) {
+            mask |= (long) (rowInfo[(int) ((board[0] >>> (rowBits * r)) & rowMask)] & rowEmpty)
+                    << (size * r);
+        }
+        return mask;
+    }
+
+    @Override
+    public int maxExponent(long[] board) {
+        int max = 0;
+        for (int r = 0; r < size; r++) {
+            max = Math.max(max, rowInfo[(int) ((board[0] >>> (rowBits * r)) & rowMask)] & INFO_MAX);
+        }
+        return max >>> 4;
+    }
+
+    @Override
+    public boolean hasAdjacentPair(long[] board) {
+        int info = 0;
+        for (int i = 0; i < size; i++) {
+            info |= rowInfo[(int) ((board[0] >>> (rowBits * i)) & rowMask)]
+                    | rowInfo[column(board[0], i)];
+        }
+        return (info & INFO_PAIR) != 0;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.game_2048;
+
+import java.util.Random;
+
+// Uniformly random legal move
+public final class RandomPolicy implements MovePolicy {
+
+    private final Random random;
+
+    public RandomPolicy(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public int chooseMove(long board) {
+        int legal = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            if (BoardEngine.move(board, direction) != board) {
+                legal |= 1 << direction;
+            }
+        }
+        if (legal == 0) {
+            return -1;
+        }
+
+        int pick = random.nextInt(Integer.bitCount(legal));
+        for (int direction = 0; direction < 4; direction++) {
+            if ((legal & (1 << direction)) != 0 && pick-- == 0) {
+                return direction;
+            }
+        }
+        return -1;
+    }
+}
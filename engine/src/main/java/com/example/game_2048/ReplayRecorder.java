@@ -0,0 +1,323 @@
+package com.example.game_2048;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Records one game as its seed plus the moves played, 2 bits per move. Spawns are not stored:
+// Game takes exactly one GameRandom draw per spawn, so the seed and the moves determine every
+// tile, and ReplayVerifier can re-run the game from the file alone.
+//
+// The file is only ever appended to. It starts with a header (int magic "2RPL", byte
+// version, byte grid size, long seed; version 1 had no size and was always 4x4) followed
+// by records, each a tag byte and its payload:
+//   MOVES  int count, then count moves packed four to a byte, lowest bits first
+//   UNDO   int count of moves taken back (the RNG is rewound with them)
+//   CLAIM  int score, int move count: what the game reported at this point, e.g. for
+//          a leaderboard entry
+// Moves are buffered in memory and appended on a background thread every FLUSH_MOVES
+// moves, on flush() and on claim(). Undo and redo in between only move a cursor, so a
+// burst of them costs at most one UNDO and one MOVES record. A recorder without a file
+// keeps the moves and writes nothing, for games that are not worth keeping.
+//
+// Every game adds a file, so the app prunes the directory: prune() keeps the newest few,
+// the ones with a claimed score (a leaderboard entry can be checked against them) and the
+// games still in progress.
+public final class ReplayRecorder {
+
+    static final int MAGIC = 0x3252504C; // "2RPL"
+    static final int VERSION = 2;
+    static final int TAG_MOVES = 1;
+    static final int TAG_UNDO = 2;
+    static final int TAG_CLAIM = 3;
+
+    private static final int FLUSH_MOVES = 256;
+    public static final String SUFFIX = ".rpl";
+
+    // Shared by every recorder so appends to a file stay in order even when the app
+    // replaces the recorder, e.g. on a configuration change
+    private static final ExecutorService WRITER;
+
+    static {
+        ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "replay-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        writer.allowCoreThreadTimeOut(true);
+        WRITER = writer;
+    }
+
+    private final File file;
+    private final int size;
+    private final long seed;
+    // Moves of the game so far (and any redo tail), 2 bits each
+    private byte[] moves;
+    private int length;
+    private int cursor;
+    // Moves the file accounts for, and the lowest cursor since the last flush: the file
+    // agrees with memory up to that point
+    private int fileMoves;
+    private int lowWater;
+
+    // Starts a recording, or continues one whose file already holds movesSoFar moves. The
+    // file may be null, for a game that is played but not kept.
+    public ReplayRecorder(File file, long seed, int movesSoFar) {
+        this(file, BoardEngine.SIZE, seed, movesSoFar);
+    }
+
+    public ReplayRecorder(File file, int size, long seed, int movesSoFar) {
+        this.file = file;
+        this.size = size;
+        this.seed = seed;
+        moves = new byte[Math.max(64, (movesSoFar >>> 2) * 2)];
+        length = cursor = fileMoves = lowWater = movesSoFar;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void move(int direction) {
+        if ((cursor >>> 2) == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        int shift = (cursor & 3) * 2;
+        moves[cursor >>> 2] = (byte) ((moves[cursor >>> 2] & ~(3 << shift)) | direction << shift);
+        length = ++cursor;
+        if (cursor - lowWater >= FLUSH_MOVES) {
+            flush();
+        }
+    }
+
+    public void undo() {
+        if (cursor == 0) {
+            return;
+        }
+        cursor--;
+        lowWater = Math.min(lowWater, cursor);
+    }
+
+    // Steps forward over a move that was undone
+    public void redo() {
+        if (cursor < length) {
+            cursor++;
+        }
+    }
+
+    // Appends the score the game reports now; the verifier checks it at this point
+    public void claim(int score, int moveCount) {
+        ByteArrayOutputStream bytes = pendingRecords();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(TAG_CLAIM);
+            out.writeInt(score);
+            out.writeInt(moveCount);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        append(bytes.toByteArray());
+    }
+
+    // Appends whatever has changed since the last flush
+    public Future<?> flush() {
+        return append(pendingRecords().toByteArray());
+    }
+
+    private ByteArrayOutputStream pendingRecords() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + (cursor - lowWater) / 4);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            if (fileMoves > lowWater) {
+                out.writeByte(TAG_UNDO);
+                out.writeInt(fileMoves - lowWater);
+            }
+            if (cursor > lowWater) {
+                out.writeByte(TAG_MOVES);
+                out.writeInt(cursor - lowWater);
+                writeMoves(out, lowWater, cursor);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        fileMoves = lowWater = cursor;
+        return bytes;
+    }
+
+    private void writeMoves(DataOutputStream out, int from, int to) throws IOException {
+        int packed = 0;
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            packed |= ((moves[i >>> 2] >>> ((i & 3) * 2)) & 3) << (n * 2);
+            if (++n == 4) {
+                out.writeByte(packed);
+                packed = 0;
+                n = 0;
+            }
+        }
+        if (n > 0) {
+            out.writeByte(packed);
+        }
+    }
+
+    private Future<?> append(final byte[] records) {
+        return WRITER.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (records.length == 0 || file == null) {
+                    return;
+                }
+                FileOutputStream out = null;
+                try {
+                    boolean fresh = file.length() == 0;
+                    if (fresh && file.getParentFile() != null) {
+                        file.getParentFile().mkdirs();
+                    }
+                    out = new FileOutputStream(file, true);
+                    if (fresh) {
+                        ByteBuffer header = ByteBuffer.allocate(14);
+                        header.putInt(MAGIC).put((byte) VERSION).put((byte) size).putLong(seed);
+                        out.write(header.array());
+                    }
+                    out.write(records);
+                } catch (IOException e) {
+                    // A replay with a gap fails verification; the game itself is unaffected
+                } finally {
+                    if (out != null) {
+                        try {
+                            out.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    // Deletes all but the newest `keep` replays in the directory, by last change, sparing
+    // the ones with a claimed score and the files named in inProgress. Runs on the writer
+    // thread, after every append queued before it.
+    public static Future<?> prune(final File dir, final int keep,
+                                  final Collection<String> inProgress) {
+        return WRITER.submit(new Runnable() {
+            @Override
+            public void run() {
+                File[] files = dir.listFiles();
+                if (files == null) {
+                    return;
+                }
+                List<File> unclaimed = new ArrayList<>();
+                for (File file : files) {
+                    if (file.getName().endsWith(SUFFIX) && !inProgress.contains(file.getName())
+                            && !hasClaim(file)) {
+                        unclaimed.add(file);
+                    }
+                }
+                if (unclaimed.size() <= keep) {
+                    return;
+                }
+                // Read once: a file could change while it is being sorted
+                final Map<File, Long> modified = new HashMap<>();
+                for (File file : unclaimed) {
+                    modified.put(file, file.lastModified());
+                }
+                // Newest first
+                Collections.sort(unclaimed, new Comparator<File>() {
+                    @Override
+                    public int compare(File a, File b) {
+                        return Long.compare(modified.get(b), modified.get(a));
+                    }
+                });
+                for (int i = keep; i < unclaimed.size(); i++) {
+                    unclaimed.get(i).delete();
+                }
+            }
+        });
+    }
+
+    // Walks the records without re-playing them; a file that cannot be read has no claim
+    static boolean hasClaim(File file) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) {
+                return false;
+            }
+            in.skipBytes(in.readUnsignedByte() == VERSION ? 1 + 8 : 8);
+            while (true) {
+                int tag = in.read();
+                if (tag == TAG_CLAIM) {
+                    return true;
+                } else if (tag == TAG_MOVES) {
+                    in.skipBytes((in.readInt() + 3) / 4);
+                } else if (tag == TAG_UNDO) {
+                    in.readInt();
+                } else {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            // Including the end of the file
+            return false;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // In-memory state, so a recorder can be handed across a configuration change
+    public byte[] saveState() {
+        ByteBuffer buffer = ByteBuffer.allocate(16 + (length + 3) / 4);
+        buffer.putInt(length).putInt(cursor).putInt(fileMoves).putInt(lowWater);
+        buffer.put(moves, 0, (length + 3) / 4);
+        return buffer.array();
+    }
+
+    public static ReplayRecorder restore(File file, int size, long seed, byte[] state) {
+        ByteBuffer buffer = ByteBuffer.wrap(state);
+        ReplayRecorder recorder = new ReplayRecorder(file, size, seed, 0);
+        recorder.length = buffer.getInt();
+        recorder.cursor = buffer.getInt();
+        recorder.fileMoves = buffer.getInt();
+        recorder.lowWater = buffer.getInt();
+        recorder.moves = new byte[Math.max(64, buffer.remaining() * 2)];
+        buffer.get(recorder.moves, 0, buffer.remaining());
+        return recorder;
+    }
+}
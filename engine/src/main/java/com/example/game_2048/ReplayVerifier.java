@@ -0,0 +1,156 @@
+package com.example.game_2048;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Re-plays a ReplayRecorder file headlessly and checks every score it claims. Nothing but
+// the seed and the moves is trusted: each move must change the board, spawns come from the
+// seed, and undo records rewind the RNG exactly as the game does. One verifier can be
+// reused for many files; it keeps its RNG, and a Game and history per grid size, between
+// calls.
+public final class ReplayVerifier {
+
+    public static final class Result {
+        public final long seed;
+        public final int size;
+        public final int moves;
+        public final int score;
+        // First board word; the whole board for 3x3 and 4x4
+        public final long board;
+        public final long[] cells;
+        public final int claims;
+        // First problem found, or null if the replay is consistent
+        public final String error;
+
+        Result(long seed, int size, int moves, int score, long[] cells, int claims,
+               String error) {
+            this.seed = seed;
+            this.size = size;
+            this.moves = moves;
+            this.score = score;
+            this.board = cells[0];
+            this.cells = cells;
+            this.claims = claims;
+            this.error = error;
+        }
+
+        public boolean isValid() {
+            return error == null;
+        }
+    }
+
+    private final GameRandom random = new GameRandom(0);
+    private final Game[] games = new Game[GridEngine.MAX_WIDE_SIZE + 1];
+    private final MoveHistory[] histories = new MoveHistory[GridEngine.MAX_WIDE_SIZE + 1];
+    private final long[] board = new long[GridEngine.MAX_WORDS];
+
+    public Result verify(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+        try {
+            return verify(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    public Result verify(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != ReplayRecorder.MAGIC) {
+            throw new IOException("Not a replay");
+        }
+        int version = in.readUnsignedByte();
+        int size = BoardEngine.SIZE;
+        if (version == ReplayRecorder.VERSION) {
+            size = in.readUnsignedByte();
+            if (size < GridEngine.MIN_SIZE || size > GridEngine.MAX_WIDE_SIZE) {
+                throw new IOException("Unsupported grid size " + size);
+            }
+        } else if (version != 1) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        long seed = in.readLong();
+
+        random.setState(seed);
+        if (games[size] == null) {
+            games[size] = new Game(random, size);
+            histories[size] = new MoveHistory(games[size].getEngine().words(),
+                    MoveHistory.DEFAULT_MAX_STATES);
+            random.setState(seed);
+        }
+        Game game = games[size];
+        MoveHistory history = histories[size];
+        game.restart();
+        game.copyBoard(board);
+        history.reset(board);
+        int claims = 0;
+        String error = null;
+
+        records:
+        while (true) {
+            int tag = in.read();
+            if (tag < 0) {
+                break;
+            }
+            try {
+                switch (tag) {
+                    case ReplayRecorder.TAG_MOVES: {
+                        int count = in.readInt();
+                        for (int i = 0; i < count; i += 4) {
+                            int packed = in.readUnsignedByte();
+                            for (int k = 0; k < 4 && i + k < count; k++) {
+                                int score = game.getScore();
+                                if (!game.move((packed >>> (k * 2)) & 3)) {
+                                    error = "Move " + (game.getMoveCount() + 1) + " changes nothing";
+                                    break records;
+                                }
+                                game.copyBoard(board);
+                                history.push(board, game.getScore() - score);
+                            }
+                        }
+                        break;
+                    }
+                    case ReplayRecorder.TAG_UNDO: {
+                        int count = in.readInt();
+                        if (count > history.getUndoDepth()) {
+                            error = "Undo past the start of the game";
+                            break records;
+                        }
+                        int score = game.getScore();
+                        for (int i = 0; i < count; i++) {
+                            score -= history.undo();
+                        }
+                        random.skip(-count);
+                        history.getBoard(board);
+                        game.restore(board, score, game.getMoveCount() - count);
+                        break;
+                    }
+                    case ReplayRecorder.TAG_CLAIM: {
+                        int score = in.readInt();
+                        int moveCount = in.readInt();
+                        claims++;
+                        if (score != game.getScore() || moveCount != game.getMoveCount()) {
+                            error = "Claimed " + score + " after " + moveCount + " moves, replay has "
+                                    + game.getScore() + " after " + game.getMoveCount();
+                            break records;
+                        }
+                        break;
+                    }
+                    default:
+                        error = "Unknown record " + tag;
+                        break records;
+                }
+            } catch (EOFException e) {
+                error = "Truncated record";
+                break;
+            }
+        }
+        long[] cells = new long[game.getEngine().words()];
+        game.copyBoard(cells);
+        return new Result(seed, size, game.getMoveCount(), game.getScore(), cells, claims, error);
+    }
+}
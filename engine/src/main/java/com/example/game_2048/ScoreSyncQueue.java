@@ -0,0 +1,407 @@
+package com.example.game_2048;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Durable outbound queue of scores for the score server. add() appends the score to a file
+// (UTF-8 name, size, score, moves, max exponent, end time), so nothing queued is lost with
+// the process; a separate small state file holds how many of them the server has
+// acknowledged. Once all are, the queue file is emptied.
+//
+// Scores go out in batches. A batch names each player once, stores end times as deltas from
+// the previous game and every number as a varint, and is then gzipped, which brings a
+// typical game down to a few bytes. Every score has a sequence number that never repeats for
+// this install, and a batch carries the first one, so the server can drop a batch it has
+// already applied when an acknowledgement was lost and the batch is sent again.
+public final class ScoreSyncQueue {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+    private static final int STATE_MAGIC = 0x53594E43; // "SYNC"
+    static final int PAYLOAD_MAGIC = 0x53435253; // "SCRS"
+    static final int PAYLOAD_VERSION = 1;
+
+    public static final class Entry {
+        public final String name;
+        public final int size;
+        public final int score;
+        public final int moves;
+        public final int maxExponent;
+        // Wall-clock millis when the game ended
+        public final long endedAt;
+
+        public Entry(String name, int size, int score, int moves, int maxExponent, long endedAt) {
+            this.name = name;
+            this.size = size;
+            this.score = score;
+            this.moves = moves;
+            this.maxExponent = maxExponent;
+            this.endedAt = endedAt;
+        }
+    }
+
+    // Pending scores from firstSequence on, encoded for upload
+    public static final class Batch {
+        public final long firstSequence;
+        public final int count;
+        // Gzipped; rawBytes before compression
+        public final byte[] payload;
+        public final int rawBytes;
+
+        Batch(long firstSequence, int count, byte[] payload, int rawBytes) {
+            this.firstSequence = firstSequence;
+            this.count = count;
+            this.payload = payload;
+            this.rawBytes = rawBytes;
+        }
+    }
+
+    // A batch as the server reads it
+    public static final class Upload {
+        public final long clientId;
+        public final long firstSequence;
+        public final List<Entry> entries;
+
+        Upload(long clientId, long firstSequence, List<Entry> entries) {
+            this.clientId = clientId;
+            this.firstSequence = firstSequence;
+            this.entries = entries;
+        }
+    }
+
+    private final File file;
+    private final File stateFile;
+    private final File tempFile;
+    private boolean loaded;
+
+    // Random per install, so the server can tell the queues of different devices apart
+    private long clientId;
+    // Sequence number of the first entry in the file
+    private long base;
+    private int acknowledged;
+    private final List<Entry> entries = new ArrayList<>();
+
+    public ScoreSyncQueue(File file) {
+        this.file = file;
+        this.stateFile = new File(file.getPath() + ".state");
+        this.tempFile = new File(file.getPath() + ".state.tmp");
+    }
+
+    // Reads the queue; later calls do nothing. Every other method loads lazily.
+    public synchronized void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        if (!readState()) {
+            clientId = new Random().nextLong();
+            base = 0;
+            acknowledged = 0;
+            writeState();
+        }
+        long validBytes = 0;
+        if (file.exists()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file), 1 << 16));
+            try {
+                byte[] nameBytes = new byte[64];
+                while (true) {
+                    int length = in.readUnsignedShort();
+                    if (length > nameBytes.length) {
+                        nameBytes = new byte[length];
+                    }
+                    in.readFully(nameBytes, 0, length);
+                    int size = in.readUnsignedByte();
+                    int score = in.readInt();
+                    int moves = in.readInt();
+                    int maxExponent = in.readUnsignedByte();
+                    long endedAt = in.readLong();
+                    entries.add(new Entry(new String(nameBytes, 0, length, UTF_8), size, score,
+                            moves, maxExponent, endedAt));
+                    validBytes += recordBytes(length);
+                }
+            } catch (EOFException endOfRecords) {
+                // Clean end of file, or a partial record from an interrupted append
+            } finally {
+                in.close();
+            }
+            if (validBytes < file.length()) {
+                truncate(validBytes);
+            }
+        }
+        if (acknowledged >= entries.size() && !entries.isEmpty()) {
+            // Everything was acknowledged but the file was not emptied yet
+            compact();
+        } else if (acknowledged > entries.size()) {
+            // Emptied, but the crash came before the state was written
+            base += acknowledged;
+            acknowledged = 0;
+            writeState();
+        }
+        loaded = true;
+    }
+
+    private static int recordBytes(int nameBytes) {
+        return 2 + nameBytes + 1 + 4 + 4 + 1 + 8;
+    }
+
+    public synchronized void add(Entry entry) throws IOException {
+        load();
+        byte[] nameBytes = entry.name.getBytes(UTF_8);
+        if (nameBytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Name too long: " + nameBytes.length + " bytes");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(recordBytes(nameBytes.length));
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeShort(nameBytes.length);
+        record.write(nameBytes);
+        record.writeByte(entry.size);
+        record.writeInt(entry.score);
+        record.writeInt(entry.moves);
+        record.writeByte(entry.maxExponent);
+        record.writeLong(entry.endedAt);
+
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            // One write call per record so a crash can only tear the tail
+            out.write(bytes.toByteArray());
+        } finally {
+            out.close();
+        }
+        entries.add(entry);
+    }
+
+    // Scores not yet acknowledged
+    public synchronized int pending() throws IOException {
+        load();
+        return entries.size() - acknowledged;
+    }
+
+    public synchronized long getClientId() throws IOException {
+        load();
+        return clientId;
+    }
+
+    // The oldest pending scores, at most maxEntries of them, or null if there are none.
+    // Until it is acknowledged the same batch comes back again.
+    public synchronized Batch nextBatch(int maxEntries) throws IOException {
+        load();
+        int count = Math.min(maxEntries, entries.size() - acknowledged);
+        if (count <= 0) {
+            return null;
+        }
+        List<Entry> batch = entries.subList(acknowledged, acknowledged + count);
+        long firstSequence = base + acknowledged;
+        byte[] raw = encode(clientId, firstSequence, batch);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 32);
+        GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+        gzip.write(raw);
+        gzip.close();
+        return new Batch(firstSequence, count, compressed.toByteArray(), raw.length);
+    }
+
+    // Marks the batch as stored by the server. Batches must be acknowledged in order; one
+    // that was already acknowledged (e.g. a late duplicate) is ignored.
+    public synchronized void acknowledge(Batch batch) throws IOException {
+        load();
+        if (batch.firstSequence != base + acknowledged) {
+            return;
+        }
+        acknowledged += batch.count;
+        if (acknowledged == entries.size()) {
+            compact();
+        } else {
+            writeState();
+        }
+    }
+
+    // The file is emptied before the state is written; load() recognises a crash in between
+    private void compact() throws IOException {
+        truncate(0);
+        base += acknowledged;
+        acknowledged = 0;
+        entries.clear();
+        writeState();
+    }
+
+    private void truncate(long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private boolean readState() {
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(stateFile));
+            try {
+                if (in.readInt() != STATE_MAGIC) {
+                    return false;
+                }
+                clientId = in.readLong();
+                base = in.readLong();
+                acknowledged = in.readInt();
+                return acknowledged >= 0;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Replaced atomically, as GameStateStore does with its snapshot
+    private void writeState() throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile));
+        try {
+            out.writeInt(STATE_MAGIC);
+            out.writeLong(clientId);
+            out.writeLong(base);
+            out.writeInt(acknowledged);
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(stateFile)) {
+            tempFile.delete();
+            throw new IOException("Cannot replace " + stateFile);
+        }
+    }
+
+    // int magic, byte version, long client id, then varints: first sequence, player count,
+    // each player's UTF-8 name (length first), score count, and per score the player's index,
+    // size, end time minus the previous one (zigzag), score, moves and max exponent
+    static byte[] encode(long clientId, long firstSequence, List<Entry> batch) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + batch.size() * 12);
+        writeInt(out, PAYLOAD_MAGIC);
+        out.write(PAYLOAD_VERSION);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (clientId >>> shift));
+        }
+        writeVarLong(out, firstSequence);
+
+        HashMap<String, Integer> players = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (Entry entry : batch) {
+            if (!players.containsKey(entry.name)) {
+                players.put(entry.name, names.size());
+                names.add(entry.name);
+            }
+        }
+        writeVarLong(out, names.size());
+        for (String name : names) {
+            byte[] bytes = name.getBytes(UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        writeVarLong(out, batch.size());
+        long previous = 0;
+        for (Entry entry : batch) {
+            writeVarLong(out, players.get(entry.name));
+            writeVarLong(out, entry.size);
+            long delta = entry.endedAt - previous;
+            writeVarLong(out, (delta << 1) ^ (delta >> 63));
+            previous = entry.endedAt;
+            writeVarLong(out, entry.score);
+            writeVarLong(out, entry.moves);
+            writeVarLong(out, entry.maxExponent);
+        }
+        return out.toByteArray();
+    }
+
+    // Reads a gzipped payload back, as the server does
+    public static Upload decode(byte[] payload) throws IOException {
+        InputStream in = new BufferedInputStream(new GZIPInputStream(
+                new ByteArrayInputStream(payload)));
+        if (readInt(in) != PAYLOAD_MAGIC || in.read() != PAYLOAD_VERSION) {
+            throw new IOException("Not a score batch");
+        }
+        long clientId = 0;
+        for (int i = 0; i < 8; i++) {
+            clientId = clientId << 8 | readByte(in);
+        }
+        long firstSequence = readVarLong(in);
+
+        String[] names = new String[(int) readVarLong(in)];
+        for (int i = 0; i < names.length; i++) {
+            byte[] bytes = new byte[(int) readVarLong(in)];
+            for (int k = 0; k < bytes.length; k++) {
+                bytes[k] = (byte) readByte(in);
+            }
+            names[i] = new String(bytes, UTF_8);
+        }
+
+        int count = (int) readVarLong(in);
+        List<Entry> entries = new ArrayList<>(count);
+        long endedAt = 0;
+        for (int i = 0; i < count; i++) {
+            String name = names[(int) readVarLong(in)];
+            int size = (int) readVarLong(in);
+            long zigzag = readVarLong(in);
+            endedAt += (zigzag >>> 1) ^ -(zigzag & 1);
+            int score = (int) readVarLong(in);
+            int moves = (int) readVarLong(in);
+            int maxExponent = (int) readVarLong(in);
+            entries.add(new Entry(name, size, score, moves, maxExponent, endedAt));
+        }
+        return new Upload(clientId, firstSequence, entries);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    // Unsigned LEB128: seven bits per byte, low bits first, high bit set on all but the last
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated score batch");
+        }
+        return b;
+    }
+
+    private static int readInt(InputStream in) throws IOException {
+        return readByte(in) << 24 | readByte(in) << 16 | readByte(in) << 8 | readByte(in);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+}
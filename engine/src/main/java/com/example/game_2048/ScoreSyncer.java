@@ -0,0 +1,191 @@
+package com.example.game_2048;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Random;
+
+// Uploads a ScoreSyncQueue to the score server, one batch per POST, and retries failures
+// with exponential backoff. Meant to run on one background thread: drain() blocks on the
+// network and says how long to wait before the next call.
+//
+// The body is the batch's gzipped payload, with the install's client id and the batch's first
+// sequence number in headers so the server can drop repeats. A 2xx acknowledges the batch.
+// Only a 400 or a 422, the server saying the batch itself is malformed, drops it rather than
+// leaving it to block every later score. Anything else backs off and keeps the batch,
+// including the 4xx of a setup that is wrong for now (401/403 auth, 404 a mistyped URL, 413
+// a body the server was set up too small for) and no connection at all: 2 s doubling up to
+// 10 min, randomised between half and all of that so devices that lost the server together
+// do not come back together, and never less than a Retry-After.
+public final class ScoreSyncer {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    static final long BASE_BACKOFF_MS = 2_000;
+    static final long MAX_BACKOFF_MS = 10 * 60_000;
+    private static final int TIMEOUT_MS = 15_000;
+
+    private final ScoreSyncQueue queue;
+    private final URL endpoint;
+    private final int batchSize;
+    private final Random random;
+    // Consecutive failed attempts
+    private int failures;
+
+    private long gamesSent;
+    private long gamesRejected;
+    private long batchesSent;
+    private long bytesSent;
+    private long rawBytesSent;
+    private long failedAttempts;
+    private long sendNanos;
+
+    public ScoreSyncer(ScoreSyncQueue queue, URL endpoint, int batchSize, Random random) {
+        this.queue = queue;
+        this.endpoint = endpoint;
+        this.batchSize = batchSize;
+        this.random = random;
+    }
+
+    // Sends batches until the queue is empty or one fails. Returns 0 when everything has been
+    // acknowledged, otherwise the milliseconds to wait before calling again.
+    public synchronized long drain() {
+        while (true) {
+            ScoreSyncQueue.Batch batch;
+            try {
+                batch = queue.nextBatch(batchSize);
+            } catch (IOException e) {
+                return backoff(0);
+            }
+            if (batch == null) {
+                failures = 0;
+                return 0;
+            }
+
+            long started = System.nanoTime();
+            HttpURLConnection connection = null;
+            int status;
+            long retryAfterMillis = 0;
+            try {
+                connection = (HttpURLConnection) endpoint.openConnection();
+                connection.setConnectTimeout(TIMEOUT_MS);
+                connection.setReadTimeout(TIMEOUT_MS);
+                connection.setDoOutput(true);
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("Content-Type", "application/octet-stream");
+                connection.setRequestProperty("Content-Encoding", "gzip");
+                connection.setRequestProperty("X-Client-Id",
+                        Long.toHexString(queue.getClientId()));
+                connection.setRequestProperty("X-First-Sequence",
+                        Long.toString(batch.firstSequence));
+                connection.setFixedLengthStreamingMode(batch.payload.length);
+                OutputStream out = connection.getOutputStream();
+                try {
+                    out.write(batch.payload);
+                } finally {
+                    out.close();
+                }
+                status = connection.getResponseCode();
+                retryAfterMillis = parseRetryAfter(connection.getHeaderField("Retry-After"));
+                discardBody(connection, status);
+            } catch (IOException e) {
+                failedAttempts++;
+                return backoff(0);
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+            sendNanos += System.nanoTime() - started;
+
+            boolean accepted = status / 100 == 2;
+            boolean rejected = status == 400 || status == 422;
+            if (!accepted && !rejected) {
+                failedAttempts++;
+                return backoff(retryAfterMillis);
+            }
+            try {
+                queue.acknowledge(batch);
+            } catch (IOException e) {
+                // The batch will be sent again and dropped by the server as a repeat
+                return backoff(0);
+            }
+            failures = 0;
+            if (accepted) {
+                gamesSent += batch.count;
+                batchesSent++;
+                bytesSent += batch.payload.length;
+                rawBytesSent += batch.rawBytes;
+            } else {
+                gamesRejected += batch.count;
+            }
+        }
+    }
+
+    private long backoff(long retryAfterMillis) {
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(failures, 20));
+        failures++;
+        long jittered = delay / 2 + (long) (random.nextDouble() * (delay / 2));
+        return Math.max(jittered, retryAfterMillis);
+    }
+
+    // Only the delta-seconds form of the header; dates are rare and ignored
+    private static long parseRetryAfter(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.min(MAX_BACKOFF_MS, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Reading the response to the end lets the connection be reused for the next batch
+    private static void discardBody(HttpURLConnection connection, int status) throws IOException {
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[512];
+            while (in.read(buffer) >= 0) {
+                // Discard
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    public synchronized long getGamesSent() {
+        return gamesSent;
+    }
+
+    // Games in batches the server refused outright
+    public synchronized long getGamesRejected() {
+        return gamesRejected;
+    }
+
+    public synchronized long getBatchesSent() {
+        return batchesSent;
+    }
+
+    // Request bodies of acknowledged batches, and their size before compression
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    public synchronized long getRawBytesSent() {
+        return rawBytesSent;
+    }
+
+    public synchronized long getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    // Time spent in requests that got an answer
+    public synchronized long getSendNanos() {
+        return sendNanos;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.game_2048;
+
+// Which cell a spawn lands in and what tile it is, both from one 64-bit draw: the high half
+// picks among the empty cells by multiply-shift and a select over the empty-cell mask, the
+// low half picks the tile. Taking exactly one draw per spawn is what lets GameRandom be
+// stepped back for undo and a replay be checked from its seed.
+//
+// A distribution is a table of integer weights per exponent, turned into 32-bit thresholds
+// once, so a spawn is a couple of compares and never allocates. Game modes differ only in
+// the table; the same seed and moves give the same game under the same distribution.
+public final class SpawnDistribution {
+
+    // One spawn in ten is a 4
+    public static final SpawnDistribution CLASSIC = new SpawnDistribution("classic", 9, 1);
+    // Only 2s, for a relaxed game
+    public static final SpawnDistribution TWOS = new SpawnDistribution("twos", 1);
+    // More 4s and the odd 8
+    public static final SpawnDistribution HARD = new SpawnDistribution("hard", 15, 4, 1);
+
+    private static final SpawnDistribution[] ALL = {CLASSIC, TWOS, HARD};
+
+    private final String name;
+    // A draw whose low half is below thresholds[i], and no earlier one, spawns exponent
+    // thresholds.length - i; the largest tile comes first and the last threshold is 2^32
+    private final long[] thresholds;
+
+    // weights[i] is the relative chance of spawning exponent i + 1 (a 2, a 4, an 8, ...)
+    public SpawnDistribution(String name, int... weights) {
+        if (weights.length == 0) {
+            throw new IllegalArgumentException("No spawn weights");
+        }
+        long total = 0;
+        for (int weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative spawn weight: " + weight);
+            }
+            total += weight;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Spawn weights are all zero");
+        }
+        this.name = name;
+        thresholds = new long[weights.length];
+        long cumulative = 0;
+        for (int i = 0; i < weights.length; i++) {
+            cumulative += weights[weights.length - 1 - i];
+            thresholds[i] = (cumulative << 32) / total;
+        }
+    }
+
+    // The built-in distribution of that name, or null
+    public static SpawnDistribution forName(String name) {
+        for (SpawnDistribution distribution : ALL) {
+            if (distribution.name.equals(name)) {
+                return distribution;
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Largest exponent this distribution spawns
+    public int maxExponent() {
+        return thresholds.length;
+    }
+
+    // Exponent of the tile a draw spawns
+    public int exponent(long draw) {
+        long low = draw & 0xFFFFFFFFL;
+        // Thresholds only grow, so the exponent is how many lie above low; counted without
+        // branches (the sign bit of low - threshold) since the outcome is random
+        int exponent = 1;
+        for (int i = 0; i < thresholds.length - 1; i++) {
+            exponent += (int) ((low - thresholds[i]) >>> 63);
+        }
+        return exponent;
+    }
+
+    // Cell a draw spawns into among the set bits of emptyMask, which must not be 0
+    public static int cell(long emptyMask, long draw) {
+        return GridEngine.nthSetBit(emptyMask, pick(Long.bitCount(emptyMask), draw));
+    }
+
+    // Which of the given number of empty cells a draw spawns into, counted in row-major order
+    public static int pick(int emptyCount, long draw) {
+        return (int) (((draw >>> 32) * emptyCount) >>> 32);
+    }
+}
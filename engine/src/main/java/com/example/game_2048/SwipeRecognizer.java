@@ -0,0 +1,119 @@
+package com.example.game_2048;
+
+// Turns a stream of touch samples into at most one move per gesture, committing as soon as
+// the drag is far enough along one axis instead of waiting for the finger to lift. Fed from
+// MotionEvents by the app, but knows nothing about them, so it can be tested on the JVM.
+//
+// Only the first finger down is followed. A second finger before a move is committed cancels
+// the gesture (two-finger touches and palm contacts are not swipes); after a commit, or a
+// cancel, nothing more happens until every finger is up. A drag that lifts before it is
+// committed still moves if it went at least half the commit distance, so short flicks work.
+public final class SwipeRecognizer {
+
+    public static final int NONE = -1;
+    // The major axis has to beat the minor one by this much to commit mid-drag, so a
+    // diagonal start does not pick the wrong direction
+    static final float DOMINANCE = 1.5f;
+
+    private static final int IDLE = 0;
+    private static final int TRACKING = 1;
+    private static final int LOCKED = 2;
+
+    private final float commitDistance;
+    private int state = IDLE;
+    private int pointerId;
+    private float startX;
+    private float startY;
+    private long downNanos;
+    private long commitNanos;
+
+    // The distance is in pixels; the app scales it by the screen density
+    public SwipeRecognizer(float commitDistance) {
+        this.commitDistance = commitDistance;
+    }
+
+    // The first finger touched down
+    public void down(int pointerId, float x, float y, long timeNanos) {
+        this.pointerId = pointerId;
+        startX = x;
+        startY = y;
+        downNanos = timeNanos;
+        state = TRACKING;
+    }
+
+    // Another finger touched down while one is already down
+    public void pointerDown() {
+        if (state == TRACKING) {
+            state = LOCKED;
+        }
+    }
+
+    // One position of a finger that is down. Returns the direction to move in, once per
+    // gesture, or NONE.
+    public int move(int pointerId, float x, float y, long timeNanos) {
+        if (state != TRACKING || pointerId != this.pointerId) {
+            return NONE;
+        }
+        int direction = classify(x - startX, y - startY, commitDistance, DOMINANCE);
+        if (direction != NONE) {
+            commit(timeNanos);
+        }
+        return direction;
+    }
+
+    // A finger lifted while others stay down
+    public int pointerUp(int pointerId, float x, float y, long timeNanos) {
+        if (state != TRACKING || pointerId != this.pointerId) {
+            return NONE;
+        }
+        int direction = classify(x - startX, y - startY, commitDistance / 2, 1);
+        commit(timeNanos);
+        return direction;
+    }
+
+    // The last finger lifted
+    public int up(int pointerId, float x, float y, long timeNanos) {
+        int direction = pointerUp(pointerId, x, y, timeNanos);
+        state = IDLE;
+        return direction;
+    }
+
+    public void cancel() {
+        state = IDLE;
+    }
+
+    // Whether a finger is being followed, for finding its samples in a multi-pointer event
+    public boolean isTracking() {
+        return state == TRACKING;
+    }
+
+    public int getPointerId() {
+        return pointerId;
+    }
+
+    public long getDownNanos() {
+        return downNanos;
+    }
+
+    // Time of the sample that decided the last gesture
+    public long getCommitNanos() {
+        return commitNanos;
+    }
+
+    private void commit(long timeNanos) {
+        commitNanos = timeNanos;
+        state = LOCKED;
+    }
+
+    private static int classify(float dx, float dy, float distance, float dominance) {
+        float ax = Math.abs(dx);
+        float ay = Math.abs(dy);
+        if (ax >= distance && ax > ay * dominance) {
+            return dx > 0 ? BoardEngine.RIGHT : BoardEngine.LEFT;
+        }
+        if (ay >= distance && ay > ax * dominance) {
+            return dy > 0 ? BoardEngine.DOWN : BoardEngine.UP;
+        }
+        return NONE;
+    }
+}
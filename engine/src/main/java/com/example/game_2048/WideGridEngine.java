@@ -0,0 +1,185 @@
+package com.example.game_2048;
+
+// Zen boards of 9x9 to 32x32: 8 bits per cell, eight cells to a long in row-major order (cell
+// i at bits 8 * (i % 8) of word i / 8), so rows no longer line up with words. Lines are slid
+// cell by cell through precomputed line-to-cell maps, as in ByteGridEngine. There are more
+// cells than a long has bits, so nothing here works with cell masks: empty cells are counted
+// and found a word at a time with a SWAR zero-byte test instead.
+final class WideGridEngine extends GridEngine {
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private final int words;
+    // Zero-byte bits of the last word that belong to cells; the bytes past the board are
+    // always 0 and must not count as empty
+    private final long lastWordCells;
+    // Cell of the k-th position of each line, per direction: [direction][line * size + k]
+    private final short[][] lineCells = new short[4][];
+
+    WideGridEngine(int size) {
+        super(size);
+        if (size <= MAX_SIZE || size > MAX_WIDE_SIZE) {
+            throw new IllegalArgumentException("Not a wide grid size: " + size);
+        }
+        words = (cells + 7) / 8;
+        int tail = cells - 8 * (words - 1);
+        lastWordCells = tail == 8 ? -1L : (1L << (8 * tail)) - 1;
+        for (int direction = 0; direction < 4; direction++) {
+            short[] order = new short[cells];
+            for (int line = 0; line < size; line++) {
+                for (int k = 0; k < size; k++) {
+                    order[line * size + k] = (short) lineCell(direction, line, k);
+                }
+            }
+            lineCells[direction] = order;
+        }
+    }
+
+    // 0x80 in every byte of the word that is 0, nothing anywhere else
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | word | LOW_SEVEN_BITS);
+    }
+
+    private long emptyBytes(long[] board, int word) {
+        long empty = zeroBytes(board[word]);
+        return word == words - 1 ? empty & lastWordCells : empty;
+    }
+
+    @Override
+    public int words() {
+        return words;
+    }
+
+    @Override
+    public int exponentLimit() {
+        return ByteGridEngine.EXPONENT_LIMIT;
+    }
+
+    @Override
+    public int move(long[] from, int direction, long[] to) {
+        if (direction < 0 || direction > 3) {
+            throw new IllegalArgumentException("Unknown direction: " + direction);
+        }
+        short[] order = lineCells[direction];
+        for (int w = 0; w < words; w++) {
+            to[w] = 0;
+        }
+        int score = 0;
+        for (int line = 0, base = 0; line < size; line++, base += size) {
+            int out = base;
+            int last = 0;
+            for (int k = base; k < base + size; k++) {
+                int index = order[k];
+                int value = (int) (from[index >>> 3] >>> ((index & 7) << 3)) & 0xFF;
+                if (value == 0) {
+                    continue;
+                }
+                if (value == last && value < ByteGridEngine.EXPONENT_LIMIT) {
+                    // Bump the tile just written by one exponent
+                    int target = order[out - 1];
+                    to[target >>> 3] += 1L << ((target & 7) << 3);
+                    score += 1 << (value + 1);
+                    last = 0;
+                } else {
+                    int target = order[out++];
+                    to[target >>> 3] |= (long) value << ((target & 7) << 3);
+                    last = value;
+                }
+            }
+        }
+        for (int w = 0; w < words; w++) {
+            if (to[w] != from[w]) {
+                return score;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int exponentAt(long[] board, int index) {
+        return (int) (board[index >>> 3] >>> ((index & 7) << 3)) & 0xFF;
+    }
+
+    @Override
+    public void placeTile(long[] board, int index, int exponent) {
+        board[index >>> 3] |= (long) exponent << ((index & 7) << 3);
+    }
+
+    @Override
+    public long emptyMask(long[] board) {
+        throw new UnsupportedOperationException("No cell masks for " + size + "x" + size);
+    }
+
+    @Override
+    public int emptyCount(long[] board) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(emptyBytes(board, w));
+        }
+        return count;
+    }
+
+    @Override
+    public int nthEmptyCell(long[] board, int n) {
+        if (n < 0) {
+            return -1;
+        }
+        for (int w = 0; w < words; w++) {
+            long empty = emptyBytes(board, w);
+            int count = Long.bitCount(empty);
+            if (n < count) {
+                // The n-th zero-byte bit sits at bit 7 of its byte
+                return 8 * w + (nthSetBit(empty, n) >>> 3);
+            }
+            n -= count;
+        }
+        return -1;
+    }
+
+    @Override
+    public int maxExponent(long[] board) {
+        int max = 0;
+        for (int w = 0; w < words; w++) {
+            long word = board[w];
+            for (; word != 0; word >>>= 8) {
+                max = Math.max(max, (int) word & 0xFF);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public boolean hasAdjacentPair(long[] board) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int index = r * size + c;
+                int value = exponentAt(board, index);
+                if (value == 0) {
+                    continue;
+                }
+                if (c + 1 < size && value == exponentAt(board, index + 1)) {
+                    return true;
+                }
+                if (r + 1 < size && value == exponentAt(board, index + size)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean canMove(long[] board) {
+        return emptyCount(board) != 0 || hasAdjacentPair(board);
+    }
+
+    @Override
+    public long traceMove(long[] board, int direction, byte[] destinations) {
+        throw new UnsupportedOperationException("No cell masks for " + size + "x" + size);
+    }
+
+    @Override
+    public long changedMask(long[] before, long[] after) {
+        throw new UnsupportedOperationException("No cell masks for " + size + "x" + size);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.game_2048;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoardEngineTest {
+
+    // Builds a board from rows of tile values (0 = empty)
+    private static long board(int[][] values) {
+        long board = 0;
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                int value = values[i][j];
+                if (value != 0) {
+                    board |= (long) Integer.numberOfTrailingZeros(value) << (4 * (i * 4 + j));
+                }
+            }
+        }
+        return board;
+    }
+
+    @Test
+    public void moveLeft_mergesEachPairOnce() {
+        long start = board(new int[][]{
+                {2, 2, 2, 2},
+                {4, 0, 4, 8},
+                {0, 0, 0, 2},
+                {2, 4, 8, 16}});
+        long expected = board(new int[][]{
+                {4, 4, 0, 0},
+                {8, 8, 0, 0},
+                {2, 0, 0, 0},
+                {2, 4, 8, 16}});
+
+        assertEquals(expected, BoardEngine.move(start, BoardEngine.LEFT));
+        assertEquals(4 + 4 + 8, BoardEngine.moveScore(start, BoardEngine.LEFT));
+    }
+
+    @Test
+    public void moveRight_mergesFromTheFarEdge() {
+        long start = board(new int[][]{
+                {2, 2, 2, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0}});
+        long expected = board(new int[][]{
+                {0, 0, 2, 4},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0}});
+
+        assertEquals(expected, BoardEngine.move(start, BoardEngine.RIGHT));
+    }
+
+    @Test
+    public void verticalMoves_matchTransposedHorizontalMoves() {
+        long start = board(new int[][]{
+                {2, 0, 4, 8},
+                {2, 4, 0, 8},
+                {0, 4, 4, 16},
+                {4, 0, 4, 16}});
+        long t = BoardEngine.transpose(start);
+
+        assertEquals(BoardEngine.transpose(BoardEngine.move(t, BoardEngine.LEFT)),
+                BoardEngine.move(start, BoardEngine.UP));
+        assertEquals(BoardEngine.transpose(BoardEngine.move(t, BoardEngine.RIGHT)),
+                BoardEngine.move(start, BoardEngine.DOWN));
+        assertEquals(BoardEngine.moveScore(t, BoardEngine.LEFT),
+                BoardEngine.moveScore(start, BoardEngine.UP));
+    }
+
+    @Test
+    public void canMove_falseOnlyForLockedFullBoard() {
+        long locked = board(new int[][]{
+                {2, 4, 2, 4},
+                {4, 2, 4, 2},
+                {2, 4, 2, 4},
+                {4, 2, 4, 2}});
+        long mergeable = board(new int[][]{
+                {2, 4, 2, 4},
+                {4, 2, 4, 2},
+                {2, 4, 2, 4},
+                {4, 2, 4, 4}});
+
+        assertFalse(BoardEngine.canMove(locked));
+        assertTrue(BoardEngine.canMove(mergeable));
+        assertTrue(BoardEngine.canMove(0L | 1L));
+    }
+
+    @Test
+    public void insertTile_fillsNthEmptyCell() {
+        long start = board(new int[][]{
+                {2, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0}});
+
+        long next = BoardEngine.insertTile(start, 1, 2);
+
+        assertEquals(4, BoardEngine.valueAt(next, 0, 2));
+        assertEquals(14, BoardEngine.emptyCount(next));
+        assertEquals(2, BoardEngine.maxExponent(next));
+    }
+
+    @Test
+    public void traceMove_replaysToSameBoardAsMove() {
+        long start = board(new int[][]{
+                {2, 2, 4, 0},
+                {0, 4, 4, 4},
+                {8, 0, 8, 2},
+                {2, 4, 2, 4}});
+        byte[] destinations = new byte[BoardEngine.CELLS];
+
+        for (int direction = 0; direction < 4; direction++) {
+            int mergeMask = BoardEngine.traceMove(start, direction, destinations);
+
+            long replayed = 0;
+            for (int i = 0; i < BoardEngine.CELLS; i++) {
+                int exponent = BoardEngine.exponentAt(start, i);
+                if (exponent != 0) {
+                    int destination = destinations[i];
+                    boolean merged = (mergeMask & (1 << destination)) != 0;
+                    replayed &= ~(0xFL << (4 * destination));
+                    replayed |= (long) (merged ? exponent + 1 : exponent) << (4 * destination);
+                }
+            }
+            assertEquals(BoardEngine.move(start, direction), replayed);
+        }
+    }
+}
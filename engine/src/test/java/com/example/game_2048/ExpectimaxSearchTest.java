@@ -0,0 +1,57 @@
+package com.example.game_2048;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ExpectimaxSearchTest {
+
+    private final ExpectimaxSearch search = new ExpectimaxSearch(2);
+
+    @After
+    public void tearDown() {
+        search.shutdown();
+    }
+
+    @Test
+    public void searchNow_returnsLegalMoveWithinBudget() {
+        // 2 4 8 16 / 0 ... with a single 2 below, only some moves are legal
+        long board = 0x0000000000104321L;
+
+        ExpectimaxSearch.Result result = search.searchNow(board, 50);
+
+        assertTrue(result.direction >= 0);
+        assertNotEquals(board, BoardEngine.move(board, result.direction));
+        assertTrue(result.depth >= 1);
+        assertTrue(result.nodes > 0);
+        assertTrue(result.elapsedNanos < 500_000_000L);
+    }
+
+    @Test
+    public void searchNow_reportsNoMoveForLockedBoard() {
+        long locked = 0x1212212112122121L;
+
+        assertEquals(-1, search.searchNow(locked, 20).direction);
+    }
+
+    @Test
+    public void transpositionTable_hitsOnRepeatedSearch() {
+        long board = 0x0000000100210432L;
+        search.searchNow(board, 30);
+
+        ExpectimaxSearch.Result again = search.searchNow(board, 30);
+
+        assertTrue(again.cacheHitRate() > 0);
+    }
+
+    @Test
+    public void evaluate_isSymmetryInvariant() {
+        long board = 0x0001002103210432L;
+
+        assertEquals(ExpectimaxSearch.evaluate(board),
+                ExpectimaxSearch.evaluate(BoardEngine.canonical(board)), 1e-3);
+        assertEquals(BoardEngine.canonical(board),
+                BoardEngine.canonical(BoardEngine.flipHorizontal(BoardEngine.transpose(board))));
+    }
+}
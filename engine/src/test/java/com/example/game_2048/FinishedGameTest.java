@@ -0,0 +1,51 @@
+package com.example.game_2048;
+
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FinishedGameTest {
+
+    @Test
+    public void undoAfterGameOver_thenGameOverAgain_isANewEnd() {
+        long gameId = 0x2048L;
+        Game game = new Game(new Random(3));
+        MoveHistory history = new MoveHistory();
+        history.reset(game.getBoard());
+        MovePolicy policy = new CornerPolicy();
+        playToTheEnd(game, history, policy);
+        String first = FinishedGame.key(gameId, game.getMoveCount(), game.getScore());
+        int firstScore = game.getScore();
+
+        // Looking at the same end again is the same end
+        assertEquals(first, FinishedGame.key(gameId, game.getMoveCount(), game.getScore()));
+
+        // Undo a few moves, as the app does, and play on along another line
+        for (int i = 0; i < 20; i++) {
+            int delta = history.undo();
+            game.restore(history.getBoard(), game.getScore() - delta, game.getMoveCount() - 1);
+        }
+        assertFalse(game.isGameOver());
+        playToTheEnd(game, history, new GreedyPolicy());
+        String second = FinishedGame.key(gameId, game.getMoveCount(), game.getScore());
+
+        assertNotEquals(first, second);
+        assertNotEquals(firstScore, game.getScore());
+    }
+
+    @Test
+    public void otherGame_isANewEnd() {
+        assertNotEquals(FinishedGame.key(1, 300, 4000), FinishedGame.key(2, 300, 4000));
+        assertNotEquals(FinishedGame.key(1, 300, 4000), FinishedGame.key(1, 301, 4000));
+        assertNotEquals(FinishedGame.key(1, 300, 4000), FinishedGame.key(1, 300, 4004));
+    }
+
+    private static void playToTheEnd(Game game, MoveHistory history, MovePolicy policy) {
+        while (!game.isGameOver()) {
+            int before = game.getScore();
+            assertTrue(game.move(policy.chooseMove(game.getBoard())));
+            history.push(game.getBoard(), game.getScore() - before);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.game_2048;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class GameEventBusTest {
+
+    @Test
+    public void consumers_readEveryEventInOrderAtTheirOwnPace() {
+        GameEventBus bus = new GameEventBus(16);
+        GameEventBus.Consumer early = bus.newConsumer(null);
+        bus.publish(GameEventBus.TILE_MERGED, 5, 8);
+        GameEventBus.Consumer late = bus.newConsumer(null);
+        bus.publish(GameEventBus.SPAWN, 1023, 2);
+        bus.publish(GameEventBus.GAME_OVER, GameEventBus.NO_CELL, -7);
+
+        assertTrue(early.next());
+        assertEquals(GameEventBus.TILE_MERGED, early.type());
+        assertEquals(5, early.cell());
+        assertEquals(8, early.value());
+
+        // Only sees what was published after it was made
+        assertTrue(late.next());
+        assertEquals(GameEventBus.SPAWN, late.type());
+        assertEquals(1023, late.cell());
+        assertTrue(late.next());
+        assertEquals(GameEventBus.GAME_OVER, late.type());
+        assertEquals(GameEventBus.NO_CELL, late.cell());
+        assertEquals(-7, late.value());
+        assertFalse(late.next());
+
+        assertTrue(early.next());
+        assertEquals(2, early.value());
+        assertTrue(early.next());
+        assertFalse(early.hasNext());
+        assertEquals(0, early.getMissed());
+    }
+
+    @Test
+    public void lappedConsumer_skipsToOldestAndCountsMissed() {
+        GameEventBus bus = new GameEventBus(8);
+        GameEventBus.Consumer consumer = bus.newConsumer(null);
+        for (int i = 0; i < 20; i++) {
+            bus.publish(GameEventBus.SCORE, GameEventBus.NO_CELL, i);
+        }
+
+        for (int i = 12; i < 20; i++) {
+            assertTrue(consumer.next());
+            assertEquals(i, consumer.value());
+        }
+        assertFalse(consumer.next());
+        assertEquals(12, consumer.getMissed());
+    }
+
+    @Test
+    public void flush_runsWakersUntilClosed() {
+        GameEventBus bus = new GameEventBus(8);
+        final AtomicInteger woken = new AtomicInteger();
+        GameEventBus.Consumer consumer = bus.newConsumer(new Runnable() {
+            @Override
+            public void run() {
+                woken.incrementAndGet();
+            }
+        });
+        bus.flush();
+        consumer.close();
+        bus.flush();
+
+        assertEquals(1, woken.get());
+    }
+
+    @Test
+    public void concurrentConsumer_neverSeesTornOrReorderedEvents() throws InterruptedException {
+        final GameEventBus bus = new GameEventBus(64);
+        final GameEventBus.Consumer consumer = bus.newConsumer(null);
+        final int events = 2_000_000;
+        final long[] seen = new long[2];
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int last = -1;
+                long read = 0;
+                while (last < events - 1) {
+                    if (!consumer.next()) {
+                        continue;
+                    }
+                    // The cell and type are derived from the value, so a torn slot shows
+                    if (consumer.value() <= last || consumer.cell() != (consumer.value() & 0x3FF)
+                            || consumer.type() != GameEventBus.SCORE) {
+                        break;
+                    }
+                    last = consumer.value();
+                    read++;
+                }
+                seen[0] = last;
+                seen[1] = read;
+            }
+        });
+        reader.start();
+        for (int i = 0; i < events; i++) {
+            bus.publish(GameEventBus.SCORE, i & 0x3FF, i);
+        }
+        reader.join(60_000);
+
+        assertEquals(events - 1, seen[0]);
+        assertEquals(events, seen[1] + consumer.getMissed());
+    }
+}
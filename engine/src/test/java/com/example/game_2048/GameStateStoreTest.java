@@ -0,0 +1,89 @@
+package com.example.game_2048;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class GameStateStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void flush_roundTripsTheLatestUpdate() throws Exception {
+        File file = new File(folder.getRoot(), "game.bin");
+        GameStateStore store = new GameStateStore(file);
+        assertNull(store.load());
+
+        store.update(new GameStateStore.Snapshot(1L, 4, 1, 100, 2048, 9L));
+        store.update(new GameStateStore.Snapshot(0x1234L, 8, 2, 100, 4096, -5L));
+        store.flush().get();
+        // Nothing new since the last flush, so nothing is written
+        store.flush().get();
+
+        assertEquals(1, store.getWriteCount());
+        assertEquals(GameStateStore.recordBytes(1), file.length());
+        GameStateStore.Snapshot loaded = new GameStateStore(file).load();
+        assertEquals(4, loaded.size);
+        assertEquals(0x1234L, loaded.cells[0]);
+        assertEquals(8, loaded.score);
+        assertEquals(2, loaded.moveCount);
+        assertEquals(100, loaded.bestScore);
+        assertEquals(4096, loaded.winTile);
+        assertEquals(-5L, loaded.randomState);
+    }
+
+    @Test
+    public void largeBoard_roundTrips() throws Exception {
+        File file = new File(folder.getRoot(), "game-8x8.bin");
+        GameStateStore store = new GameStateStore(file);
+        long[] cells = {1, 2, 3, 4, 5, 6, 7, -8};
+        store.update(new GameStateStore.Snapshot(8, cells, 12, 3, 40, 2048, 77L));
+        store.flush().get();
+
+        GameStateStore.Snapshot loaded = new GameStateStore(file).load();
+        assertEquals(8, loaded.size);
+        assertArrayEquals(cells, loaded.cells);
+        assertEquals(77L, loaded.randomState);
+    }
+
+    @Test
+    public void load_rejectsCorruptedSnapshot() throws Exception {
+        File file = new File(folder.getRoot(), "game.bin");
+        byte[] bytes = GameStateStore.encode(new GameStateStore.Snapshot(7L, 4, 1, 4, 2048, 1L));
+        bytes[10] ^= 1;
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(bytes);
+        out.close();
+
+        assertNull(new GameStateStore(file).load());
+    }
+
+    @Test
+    public void restoredGame_spawnsLikeTheOriginal() {
+        GameRandom random = new GameRandom(11);
+        Game game = new Game(random);
+        MovePolicy policy = new CornerPolicy();
+        for (int i = 0; i < 50; i++) {
+            game.move(policy.chooseMove(game.getBoard()));
+        }
+
+        GameRandom resumedRandom = new GameRandom();
+        resumedRandom.setState(random.getState());
+        Game resumed = new Game(resumedRandom);
+        resumedRandom.setState(random.getState());
+        resumed.restore(game.getBoard(), game.getScore(), game.getMoveCount());
+
+        while (!game.isGameOver()) {
+            int direction = policy.chooseMove(game.getBoard());
+            assertEquals(game.move(direction), resumed.move(direction));
+            assertEquals(game.getBoard(), resumed.getBoard());
+            assertEquals(game.getScore(), resumed.getScore());
+        }
+        assertTrue(resumed.isGameOver());
+    }
+}
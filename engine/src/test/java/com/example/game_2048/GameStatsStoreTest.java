@@ -0,0 +1,169 @@
+package com.example.game_2048;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class GameStatsStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static GameStatsStore.Record record(Random random) {
+        int size = GridEngine.MIN_SIZE + random.nextInt(GridEngine.MAX_SIZE - GridEngine.MIN_SIZE + 1);
+        int[] merges = new int[GameStatsStore.MAX_EXPONENT + 1];
+        for (int e = 2; e < 12; e++) {
+            merges[e] = random.nextInt(500);
+        }
+        return new GameStatsStore.Record(random.nextLong(), size, random.nextInt(100_000),
+                random.nextInt(5000), random.nextInt(1_000_000), 1 + random.nextInt(16), merges);
+    }
+
+    private static void assertSameSummary(GameStatsStore.Summary expected,
+                                          GameStatsStore.Summary actual) {
+        assertEquals(expected.getGames(), actual.getGames());
+        assertEquals(expected.getMeanScore(), actual.getMeanScore(), 0);
+        assertEquals(expected.getMeanMillis(), actual.getMeanMillis(), 0);
+        assertEquals(expected.getBestScore(), actual.getBestScore());
+        assertEquals(expected.getScorePercentile(0.5), actual.getScorePercentile(0.5));
+        assertEquals(expected.getScorePercentile(0.99), actual.getScorePercentile(0.99));
+        for (int e = 0; e <= GameStatsStore.MAX_EXPONENT; e++) {
+            assertEquals(expected.getMaxTileCount(e), actual.getMaxTileCount(e));
+            assertEquals(expected.getMerges(e), actual.getMerges(e));
+        }
+    }
+
+    @Test
+    public void append_keepsAggregatesAcrossReopen() throws Exception {
+        File file = new File(folder.getRoot(), "stats.bin");
+        GameStatsStore store = new GameStatsStore(file);
+        Random random = new Random(1);
+        long scoreSum = 0;
+        int games = 0;
+        for (int i = 0; i < 100; i++) {
+            GameStatsStore.Record record = record(random);
+            store.append(record);
+            if (record.size == 4) {
+                scoreSum += record.score;
+                games++;
+            }
+        }
+
+        GameStatsStore.Summary summary = store.getSummary(4);
+        assertEquals(games, summary.getGames());
+        assertEquals((double) scoreSum / games, summary.getMeanScore(), 1e-9);
+        assertEquals(100, store.size());
+        assertEquals(100L * GameStatsStore.RECORD_BYTES, file.length());
+
+        // The summary was saved at 96 records, so only the last 4 are read again
+        GameStatsStore reopened = new GameStatsStore(file);
+        assertSameSummary(summary, reopened.getSummary(4));
+        assertEquals(100 % GameStatsStore.SUMMARY_INTERVAL, reopened.scanned);
+
+        List<GameStatsStore.Record> last = reopened.getRecords(98, 10);
+        assertEquals(2, last.size());
+        random = new Random(1);
+        for (int i = 0; i < 99; i++) {
+            record(random);
+        }
+        GameStatsStore.Record expected = record(random);
+        assertEquals(expected.score, last.get(1).score);
+        assertEquals(expected.endedAt, last.get(1).endedAt);
+        assertEquals(expected.merges[7], last.get(1).merges[7]);
+    }
+
+    @Test
+    public void load_rebuildsLostSummaryAndTrimsTornRecord() throws Exception {
+        File file = new File(folder.getRoot(), "stats.bin");
+        GameStatsStore store = new GameStatsStore(file);
+        Random random = new Random(2);
+        for (int i = 0; i < 70; i++) {
+            store.append(record(random));
+        }
+        GameStatsStore.Summary before = store.getSummary(6);
+
+        assertTrue(new File(file.getPath() + ".summary").delete());
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[GameStatsStore.RECORD_BYTES / 2]);
+        out.close();
+
+        GameStatsStore reopened = new GameStatsStore(file);
+        assertSameSummary(before, reopened.getSummary(6));
+        assertEquals(70, reopened.scanned);
+        assertEquals(70L * GameStatsStore.RECORD_BYTES, file.length());
+    }
+
+    @Test
+    public void manyGames_openWithoutRescanning() throws Exception {
+        File file = new File(folder.getRoot(), "stats.bin");
+        Random random = new Random(3);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        for (int i = 0; i < 200_000; i++) {
+            out.write(GameStatsStore.encode(record(random)));
+        }
+        out.close();
+
+        // No summary yet: the first open scans everything once and saves one
+        GameStatsStore store = new GameStatsStore(file);
+        store.load();
+        assertEquals(200_000, store.scanned);
+        store.append(record(random));
+
+        GameStatsStore reopened = new GameStatsStore(file);
+        long started = System.nanoTime();
+        reopened.load();
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        assertEquals(1, reopened.scanned);
+        assertEquals(200_001, reopened.size());
+        assertSameSummary(store.getSummary(8), reopened.getSummary(8));
+        assertTrue("Reopening took " + millis + " ms", millis < 500);
+    }
+
+    @Test
+    public void recordOf_countsMergesLikeTracingEveryMove() {
+        for (int size : new int[] {3, 4, 6}) {
+            Game game = new Game(new GameRandom(size), size);
+            GridEngine engine = game.getEngine();
+            MovePolicy policy = new CornerPolicy();
+            Random random = new Random(size);
+            long[] board = new long[engine.words()];
+            byte[] destinations = new byte[engine.getCells()];
+            int[] traced = new int[GameStatsStore.MAX_EXPONENT + 1];
+
+            while (engine.canMove(board(game, board))) {
+                int direction = size == 4 ? policy.chooseMove(game.getBoard()) : random.nextInt(4);
+                long mergeMask = engine.traceMove(board, direction, destinations);
+                if (!game.move(direction)) {
+                    continue;
+                }
+                for (long m = mergeMask; m != 0; m &= m - 1) {
+                    traced[game.exponentAt(Long.numberOfTrailingZeros(m))]++;
+                }
+            }
+
+            GameStatsStore.Record record = GameStatsStore.Record.of(game, 1234, 99L);
+            assertArrayEquals("size " + size, traced, record.merges);
+            assertEquals(Integer.numberOfTrailingZeros(game.getMaxTile()), record.maxExponent);
+            assertEquals(game.getScore(), record.score);
+            assertEquals(game.getMoveCount(), record.moves);
+            long points = 0;
+            for (int e = 2; e <= GameStatsStore.MAX_EXPONENT; e++) {
+                points += (long) record.merges[e] << e;
+            }
+            assertEquals(game.getScore(), points);
+        }
+    }
+
+    private static long[] board(Game game, long[] out) {
+        game.copyBoard(out);
+        return out;
+    }
+}
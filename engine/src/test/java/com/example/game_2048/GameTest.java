@@ -0,0 +1,223 @@
+package com.example.game_2048;
+
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameTest {
+
+    @Test
+    public void newGame_startsWithTwoTiles() {
+        Game game = new Game(new Random(1));
+
+        assertEquals(14, BoardEngine.emptyCount(game.getBoard()));
+        assertEquals(0, game.getScore());
+        assertEquals(0, game.getMoveCount());
+    }
+
+    @Test
+    public void sameSeed_playsSameGame() {
+        Game a = new Game(new Random(7));
+        Game b = new Game(new Random(7));
+        MovePolicy policy = new CornerPolicy();
+
+        while (!a.isGameOver()) {
+            int direction = policy.chooseMove(a.getBoard());
+            assertTrue(a.move(direction));
+            assertTrue(b.move(direction));
+            assertEquals(a.getBoard(), b.getBoard());
+        }
+        assertEquals(a.getScore(), b.getScore());
+        assertTrue(b.isGameOver());
+    }
+
+    @Test
+    public void sameSeed_playsSameGameUnderEveryDistribution() {
+        SpawnDistribution[] distributions = {
+                SpawnDistribution.CLASSIC, SpawnDistribution.TWOS, SpawnDistribution.HARD
+        };
+        for (SpawnDistribution spawns : distributions) {
+            Game a = new Game(new GameRandom(9), 4, spawns);
+            Game b = new Game(new GameRandom(9), 4, spawns);
+            MovePolicy policy = new CornerPolicy();
+            while (!a.isGameOver()) {
+                int direction = policy.chooseMove(a.getBoard());
+                assertTrue(a.move(direction));
+                assertTrue(b.move(direction));
+                assertEquals(a.getBoard(), b.getBoard());
+            }
+        }
+    }
+
+    @Test
+    public void classicSpawns_keepTheTenPercentFourRule() {
+        // Saved games and replays depend on the same draw spawning the same tile
+        long fourThreshold = (1L << 32) / 10;
+        long[] lows = {0, fourThreshold - 1, fourThreshold, fourThreshold + 1, 0xFFFFFFFFL};
+        for (long low : lows) {
+            long draw = 0x1234567800000000L | low;
+            assertEquals(low < fourThreshold ? 2 : 1, SpawnDistribution.CLASSIC.exponent(draw));
+        }
+        assertSame(SpawnDistribution.CLASSIC, new Game(new Random(1)).getSpawnDistribution());
+    }
+
+    @Test
+    public void spawnDistributions_spawnOnlyTheirTiles() {
+        Random random = new Random(4);
+        int[] hardCounts = new int[4];
+        for (int i = 0; i < 100_000; i++) {
+            long draw = random.nextLong();
+            assertEquals(1, SpawnDistribution.TWOS.exponent(draw));
+            hardCounts[SpawnDistribution.HARD.exponent(draw)]++;
+        }
+        assertEquals(0, hardCounts[0]);
+        assertEquals(75_000, hardCounts[1], 1_000);
+        assertEquals(20_000, hardCounts[2], 1_000);
+        assertEquals(5_000, hardCounts[3], 500);
+        assertSame(SpawnDistribution.HARD, SpawnDistribution.forName("hard"));
+        assertNull(SpawnDistribution.forName("none"));
+    }
+
+    @Test
+    public void move_returnsFalseWithoutSpawningWhenNothingMoves() {
+        Game game = new Game(new Random(3));
+        long board = game.getBoard();
+        for (int direction = 0; direction < 4; direction++) {
+            if (BoardEngine.move(board, direction) == board) {
+                assertFalse(game.move(direction));
+                assertEquals(board, game.getBoard());
+                return;
+            }
+        }
+    }
+
+    @Test
+    public void policies_onlyChooseLegalMoves() {
+        MovePolicy[] policies = {new RandomPolicy(new Random(5)), new GreedyPolicy(), new CornerPolicy()};
+        for (MovePolicy policy : policies) {
+            Game game = new Game(new Random(11));
+            while (!game.isGameOver()) {
+                assertTrue(game.move(policy.chooseMove(game.getBoard())));
+            }
+            assertEquals(-1, policy.chooseMove(game.getBoard()));
+        }
+    }
+
+    @Test
+    public void invariants_matchFullScanAfterEveryMove() {
+        Game game = new Game(new Random(21));
+        MovePolicy policy = new RandomPolicy(new Random(22));
+
+        do {
+            long board = game.getBoard();
+            int emptyMask = 0;
+            int max = 0;
+            for (int i = 0; i < BoardEngine.CELLS; i++) {
+                int exponent = BoardEngine.exponentAt(board, i);
+                if (exponent == 0) {
+                    emptyMask |= 1 << i;
+                }
+                max = Math.max(max, exponent);
+            }
+            boolean stuck = true;
+            for (int direction = 0; direction < 4; direction++) {
+                stuck &= BoardEngine.move(board, direction) == board;
+            }
+
+            assertEquals(emptyMask, game.getEmptyMask());
+            assertEquals(max == 0 ? 0 : 1 << max, game.getMaxTile());
+            assertEquals(stuck, game.isGameOver());
+        } while (game.move(Math.max(0, policy.chooseMove(game.getBoard()))));
+        assertTrue(game.isGameOver());
+    }
+
+    @Test
+    public void moveDiff_describesEveryMoveOnEverySize() {
+        Random random = new Random(8);
+        for (int size = GridEngine.MIN_SIZE; size <= GridEngine.MAX_SIZE; size++) {
+            Game game = new Game(random, size);
+            GridEngine engine = game.getEngine();
+            MoveDiff diff = new MoveDiff(engine.getCells());
+            long[] before = new long[engine.words()];
+            long[] after = new long[engine.words()];
+            long[] slid = new long[engine.words()];
+            byte[] destinations = new byte[engine.getCells()];
+            for (int moves = 0; moves < 300 && !game.isGameOver(); moves++) {
+                game.copyBoard(before);
+                int direction = random.nextInt(4);
+                if (!game.move(direction, diff)) {
+                    continue;
+                }
+                game.copyBoard(after);
+                engine.move(before, direction, slid);
+
+                long changed = 0;
+                for (int i = 0; i < engine.getCells(); i++) {
+                    if (engine.exponentAt(before, i) != engine.exponentAt(after, i)) {
+                        changed |= 1L << i;
+                    }
+                }
+                assertEquals(changed | 1L << diff.getSpawnIndex(), diff.getChangedMask());
+                assertEquals(engine.traceMove(before, direction, destinations), diff.getMergeMask());
+                for (int i = 0; i < engine.getCells(); i++) {
+                    assertEquals(destinations[i], diff.getDestination(i));
+                }
+                // The spawn is the one cell the slide left empty that is now taken
+                assertEquals(engine.emptyMask(slid) & ~engine.emptyMask(after),
+                        1L << diff.getSpawnIndex());
+            }
+        }
+    }
+
+    @Test
+    public void wideBoard_spawnsIntoEmptyCellsAndPlaysOn() {
+        Game game = new Game(new GameRandom(16), 16);
+        GridEngine engine = game.getEngine();
+        long[] before = new long[engine.words()];
+        long[] slid = new long[engine.words()];
+        long[] after = new long[engine.words()];
+        Random random = new Random(17);
+        for (int moves = 0; moves < 2000 && !game.isGameOver(); moves++) {
+            game.copyBoard(before);
+            int direction = random.nextInt(4);
+            if (!game.move(direction)) {
+                continue;
+            }
+            game.copyBoard(after);
+            engine.move(before, direction, slid);
+            // Exactly one tile was added to the slid board, in a cell it left empty
+            assertEquals(engine.emptyCount(slid) - 1, engine.emptyCount(after));
+            int spawned = 0;
+            for (int i = 0; i < engine.getCells(); i++) {
+                if (engine.exponentAt(slid, i) != engine.exponentAt(after, i)) {
+                    assertEquals(0, engine.exponentAt(slid, i));
+                    spawned++;
+                }
+            }
+            assertEquals(1, spawned);
+        }
+        assertEquals(0, game.getEmptyMask());
+        assertTrue(game.getMoveCount() > 1000);
+    }
+
+    @Test
+    public void winTile_isConfigurable() {
+        Game game = new Game(new Random(1));
+        game.setWinTile(4);
+        MovePolicy policy = new CornerPolicy();
+        while (game.getMaxTile() < 4) {
+            assertFalse(game.hasWon());
+            assertTrue(game.move(policy.chooseMove(game.getBoard())));
+        }
+
+        assertTrue(game.hasWon());
+        game.setWinTile(Game.DEFAULT_WIN_TILE);
+        assertFalse(game.hasWon());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void winTile_rejectsNonPowerOfTwo() {
+        new Game(new Random(1)).setWinTile(3000);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.game_2048;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GridEngineTest {
+
+    // Straightforward int[][] rules to check every representation against
+    private static int referenceMove(int[][] grid, int direction, int limit) {
+        int size = grid.length;
+        int score = 0;
+        for (int line = 0; line < size; line++) {
+            int[] values = new int[size];
+            int count = 0;
+            for (int k = 0; k < size; k++) {
+                int value = grid[row(direction, line, k, size)][col(direction, line, k, size)];
+                if (value != 0) {
+                    values[count++] = value;
+                }
+            }
+            int[] result = new int[size];
+            int out = 0;
+            for (int i = 0; i < count; i++) {
+                if (i + 1 < count && values[i] == values[i + 1] && values[i] < limit) {
+                    result[out++] = values[i] + 1;
+                    score += 1 << (values[i] + 1);
+                    i++;
+                } else {
+                    result[out++] = values[i];
+                }
+            }
+            for (int k = 0; k < size; k++) {
+                grid[row(direction, line, k, size)][col(direction, line, k, size)] = result[k];
+            }
+        }
+        return score;
+    }
+
+    private static int row(int direction, int line, int k, int size) {
+        switch (direction) {
+            case BoardEngine.UP: return k;
+            case BoardEngine.DOWN: return size - 1 - k;
+            default: return line;
+        }
+    }
+
+    private static int col(int direction, int line, int k, int size) {
+        switch (direction) {
+            case BoardEngine.LEFT: return k;
+            case BoardEngine.RIGHT: return size - 1 - k;
+            default: return line;
+        }
+    }
+
+    private static void checkAgainstReference(GridEngine engine, long seed) {
+        checkAgainstReference(engine, seed, 20_000);
+    }
+
+    private static void checkAgainstReference(GridEngine engine, long seed, int trials) {
+        int size = engine.getSize();
+        int limit = engine.exponentLimit();
+        Random random = new Random(seed);
+        long[] board = new long[engine.words()];
+        long[] moved = new long[engine.words()];
+        int[] emptyCells = new int[size * size];
+        for (int trial = 0; trial < trials; trial++) {
+            int[][] grid = new int[size][size];
+            Arrays.fill(board, 0);
+            long empty = 0;
+            int emptyCount = 0;
+            int max = 0;
+            // Some boards nearly full, so the last empty cells are found as well
+            int emptyOdds = 1 + random.nextInt(random.nextBoolean() ? 3 : size * size);
+            for (int i = 0; i < size * size; i++) {
+                // Mostly small exponents so merges are common
+                int value = random.nextInt(emptyOdds) == 0 ? 0
+                        : 1 + random.nextInt(random.nextBoolean() ? 3 : limit);
+                grid[i / size][i % size] = value;
+                if (value == 0) {
+                    empty |= 1L << i;
+                    emptyCells[emptyCount++] = i;
+                } else {
+                    engine.placeTile(board, i, value);
+                }
+                max = Math.max(max, value);
+            }
+            if (engine.hasCellMasks()) {
+                assertEquals(empty, engine.emptyMask(board));
+            }
+            assertEquals(emptyCount, engine.emptyCount(board));
+            for (int n = 0; n < emptyCount; n++) {
+                assertEquals(emptyCells[n], engine.nthEmptyCell(board, n));
+            }
+            assertEquals(-1, engine.nthEmptyCell(board, emptyCount));
+            assertEquals(max, engine.maxExponent(board));
+            boolean pair = false;
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    int value = grid[r][c];
+                    pair |= value != 0 && ((c + 1 < size && grid[r][c + 1] == value)
+                            || (r + 1 < size && grid[r + 1][c] == value));
+                }
+            }
+            assertEquals(pair, engine.hasAdjacentPair(board));
+
+            int direction = random.nextInt(4);
+            int[][] expected = new int[size][];
+            for (int r = 0; r < size; r++) {
+                expected[r] = grid[r].clone();
+            }
+            int score = referenceMove(expected, direction, limit);
+            boolean changed = !Arrays.deepEquals(grid, expected);
+
+            int points = engine.move(board, direction, moved);
+            assertEquals(changed ? score : -1, points);
+            if (changed) {
+                for (int i = 0; i < size * size; i++) {
+                    assertEquals(expected[i / size][i % size], engine.exponentAt(moved, i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void everySize_matchesReferenceRules() {
+        for (int size = GridEngine.MIN_SIZE; size <= GridEngine.MAX_SIZE; size++) {
+            checkAgainstReference(GridEngine.forSize(size), size);
+        }
+    }
+
+    @Test
+    public void wideSizes_matchReferenceRules() {
+        // Odd sizes leave part of the last word outside the board
+        for (int size : new int[] {9, 15, 16, 23, GridEngine.MAX_WIDE_SIZE}) {
+            GridEngine engine = GridEngine.forSize(size);
+            assertFalse(engine.hasCellMasks());
+            checkAgainstReference(engine, size, 1000);
+        }
+    }
+
+    @Test
+    public void genericLayouts_agreeWithBoardEngineOn4x4() {
+        checkAgainstReference(new NibbleGridEngine(4), 41);
+        checkAgainstReference(new ByteGridEngine(4), 42);
+    }
+
+    @Test
+    public void nthSetBit_selectsEachSetBitInOrder() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 1000; trial++) {
+            long mask = random.nextLong() & random.nextLong();
+            int n = 0;
+            for (int bit = 0; bit < 64; bit++) {
+                if ((mask & (1L << bit)) != 0) {
+                    assertEquals(bit, GridEngine.nthSetBit(mask, n++));
+                }
+            }
+            assertEquals(-1, GridEngine.nthSetBit(mask, n));
+        }
+        assertEquals(63, GridEngine.nthSetBit(-1L, 63));
+        assertEquals(-1, GridEngine.nthSetBit(0, 0));
+    }
+
+    @Test
+    public void largeBoardGame_playsToTheEnd() {
+        Game game = new Game(new GameRandom(1), 8);
+        int moves = 0;
+        while (!game.isGameOver() && moves < 100_000) {
+            for (int direction = 0; direction < 4; direction++) {
+                if (game.move(direction)) {
+                    break;
+                }
+            }
+            moves++;
+        }
+        assertTrue(game.isGameOver());
+        assertTrue(game.getMaxTile() >= 256);
+    }
+}
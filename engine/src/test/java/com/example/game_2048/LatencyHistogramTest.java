@@ -0,0 +1,48 @@
+package com.example.game_2048;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_coverTheirValues() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1000, 999_999, 123_456_789L, 1L << 39};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.bucketLimit(bucket));
+            if (bucket > 0) {
+                assertTrue(value > LatencyHistogram.bucketLimit(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean());
+        assertEquals(5_000_000, histogram.percentile(0.5), 5_000_000 / 16.0);
+        assertEquals(9_900_000, histogram.percentile(0.99), 9_900_000 / 16.0);
+        assertEquals(10_000_000, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void hugeValues_keepExactMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertEquals(Long.MAX_VALUE, histogram.percentile(1.0));
+        assertEquals(0, histogram.percentile(0.5));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentile(0.99));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.game_2048;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class LeaderboardStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void submit_keepsPersonalBestAndRanks() throws Exception {
+        File file = new File(folder.getRoot(), "leaderboard.bin");
+        LeaderboardStore store = new LeaderboardStore(file);
+
+        assertTrue(store.submit("ann", 500));
+        assertTrue(store.submit("bob", 900));
+        assertTrue(store.submit("cid", 500));
+        assertFalse(store.submit("bob", 100));
+        assertTrue(store.submit("ann", 1000));
+
+        assertEquals(3, store.size());
+        assertEquals(1000, store.getBest("ann"));
+        assertEquals(1, store.getRank("ann"));
+        assertEquals(2, store.getRank("bob"));
+        assertEquals(3, store.getRank("cid"));
+        assertEquals(-1, store.getRank("dan"));
+
+        List<LeaderboardStore.Entry> page = store.getPage(1, 10);
+        assertEquals(2, page.size());
+        assertEquals("bob", page.get(0).name);
+        assertEquals(2, page.get(0).rank);
+        assertEquals("cid", page.get(1).name);
+
+        LeaderboardStore reopened = new LeaderboardStore(file);
+        assertEquals(3, reopened.size());
+        assertEquals(1000, reopened.getBest("ann"));
+        assertEquals(3, reopened.getRank("cid"));
+    }
+
+    @Test
+    public void load_dropsTornTrailingRecord() throws Exception {
+        File file = new File(folder.getRoot(), "leaderboard.bin");
+        LeaderboardStore store = new LeaderboardStore(file);
+        store.submit("ann", 500);
+        store.submit("bob", 900);
+        long length = file.length();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(length - 2);
+        raf.close();
+
+        LeaderboardStore reopened = new LeaderboardStore(file);
+        assertEquals(1, reopened.size());
+        assertTrue(reopened.submit("bob", 900));
+        assertEquals(2, new LeaderboardStore(file).size());
+    }
+
+    @Test
+    public void ranking_matchesSortedScores() throws Exception {
+        LeaderboardStore store = new LeaderboardStore(new File(folder.getRoot(), "leaderboard.bin"));
+        Random random = new Random(5);
+        int[] bests = new int[200];
+        for (int i = 0; i < 2000; i++) {
+            int player = random.nextInt(bests.length);
+            int score = random.nextInt(100_000);
+            store.submit("p" + player, score);
+            bests[player] = Math.max(bests[player], score);
+        }
+
+        List<LeaderboardStore.Entry> all = store.getPage(0, Integer.MAX_VALUE);
+        assertEquals(bests.length, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            LeaderboardStore.Entry entry = all.get(i);
+            assertEquals(i + 1, entry.rank);
+            assertEquals(i + 1, store.getRank(entry.name));
+            assertEquals(bests[Integer.parseInt(entry.name.substring(1))], entry.score);
+            if (i > 0) {
+                assertTrue(all.get(i - 1).score >= entry.score);
+            }
+        }
+    }
+}
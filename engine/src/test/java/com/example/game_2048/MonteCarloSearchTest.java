@@ -0,0 +1,61 @@
+package com.example.game_2048;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MonteCarloSearchTest {
+
+    @Test
+    public void chooseMove_returnsLegalMoveAndCountsRollouts() {
+        MonteCarloSearch search = new MonteCarloSearch(3, 100, 7);
+        try {
+            // 2 4 8 16 / 0 ... with a single 2 below: up is the only move that changes nothing
+            long board = 0x0000000000104321L;
+
+            int direction = search.chooseMove(board);
+
+            assertTrue(direction >= 0);
+            assertNotEquals(board, BoardEngine.move(board, direction));
+            assertEquals(300, search.getRollouts());
+            assertTrue(search.getRolloutMoves() > 0);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void chooseMove_skipsRolloutsWithoutAChoice() {
+        MonteCarloSearch search = new MonteCarloSearch(2, 100, 7);
+        try {
+            long locked = 0x1212212112122121L;
+            assertEquals(-1, search.chooseMove(locked));
+
+            // A full bottom row without pairs can only go up
+            long bottomRow = 0x2121000000000000L;
+            assertEquals(BoardEngine.UP, search.chooseMove(bottomRow));
+            assertEquals(0, search.getRollouts());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void chooseMove_isReproducibleForSeedAndParallelism() {
+        MonteCarloSearch first = new MonteCarloSearch(4, 50, 2048);
+        MonteCarloSearch second = new MonteCarloSearch(4, 50, 2048);
+        try {
+            GameRandom spawns = new GameRandom(1);
+            Game game = new Game(spawns);
+            int direction;
+            for (int i = 0; i < 40 && (direction = first.chooseMove(game.getBoard())) >= 0; i++) {
+                assertEquals(direction, second.chooseMove(game.getBoard()));
+                game.move(direction);
+            }
+            assertEquals(first.getRolloutMoves(), second.getRolloutMoves());
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+}
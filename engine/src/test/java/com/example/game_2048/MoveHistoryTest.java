@@ -0,0 +1,84 @@
+package com.example.game_2048;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MoveHistoryTest {
+
+    @Test
+    public void undoRedo_walkTheRecordedStates() {
+        MoveHistory history = new MoveHistory();
+        history.reset(1);
+        for (int i = 2; i <= 3000; i++) {
+            history.push(i, i * 10);
+        }
+
+        assertEquals(2999, history.getUndoDepth());
+        assertEquals(30000, history.undo());
+        assertEquals(29990, history.undo());
+        assertEquals(2998, history.getBoard());
+        assertEquals(2, history.getRedoDepth());
+        assertEquals(29990, history.redo());
+        assertEquals(2999, history.getBoard());
+
+        // A new move drops the redo step
+        history.push(42, 7);
+        assertFalse(history.canRedo());
+        assertEquals(7, history.undo());
+        assertEquals(2999, history.getBoard());
+    }
+
+    @Test
+    public void push_forgetsOldestStatesBeyondTheLimit() {
+        MoveHistory history = new MoveHistory(100);
+        history.reset(0);
+        for (int i = 1; i <= 250; i++) {
+            history.push(i, 1);
+        }
+
+        assertEquals(99, history.getUndoDepth());
+        while (history.canUndo()) {
+            history.undo();
+        }
+        assertEquals(151, history.getBoard());
+    }
+
+    @Test
+    public void export_roundTripsAroundTheCurrentState() {
+        MoveHistory history = new MoveHistory();
+        history.reset(0);
+        for (int i = 1; i <= 50; i++) {
+            history.push(i, i);
+        }
+        for (int i = 0; i < 30; i++) {
+            history.undo();
+        }
+
+        MoveHistory restored = new MoveHistory();
+        restored.restore(history.exportBoards(10), history.exportScoreDeltas(10),
+                history.exportCursor(10));
+        assertEquals(20, restored.getBoard());
+        assertEquals(9, restored.getRedoDepth());
+        assertEquals(21, restored.redo());
+        assertEquals(1, restored.getUndoDepth());
+        assertEquals(21, restored.undo());
+        assertFalse(restored.canUndo());
+    }
+
+    @Test
+    public void undoingAMove_rewindsItsSpawn() {
+        GameRandom random = new GameRandom(3);
+        Game game = new Game(random);
+        MovePolicy policy = new CornerPolicy();
+        long board = game.getBoard();
+        int direction = policy.chooseMove(board);
+        game.move(direction);
+        long after = game.getBoard();
+
+        random.skip(-1);
+        game.restore(board, 0, 0);
+        game.move(direction);
+        assertEquals(after, game.getBoard());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.game_2048;
+
+import java.io.File;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class NTupleNetworkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static long randomBoard(Random random) {
+        long board = 0;
+        for (int i = 0; i < BoardEngine.CELLS; i++) {
+            board |= (long) random.nextInt(12) << (4 * i);
+        }
+        return board;
+    }
+
+    @Test
+    public void evaluate_isSymmetric() {
+        NTupleNetwork network = NTupleNetwork.create();
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            network.update(randomBoard(random), random.nextFloat() - 0.5f);
+        }
+        for (int i = 0; i < 100; i++) {
+            long board = randomBoard(random);
+            float value = network.evaluate(board);
+            assertEquals(value, network.evaluate(BoardEngine.transpose(board)), 1e-3f);
+            assertEquals(value, network.evaluate(BoardEngine.flipHorizontal(board)), 1e-3f);
+            assertEquals(value, network.evaluate(BoardEngine.flipVertical(board)), 1e-3f);
+        }
+    }
+
+    @Test
+    public void update_movesValueByFeaturesTimesDelta() {
+        NTupleNetwork network = NTupleNetwork.create();
+        long board = randomBoard(new Random(1));
+        network.update(board, 0.5f);
+        assertEquals(0.5f * NTupleNetwork.FEATURES, network.evaluate(board), 1e-4f);
+    }
+
+    @Test
+    public void savedNetwork_mapsWithTheSameValues() throws Exception {
+        NTupleNetwork network = NTupleNetwork.create();
+        Random random = new Random(7);
+        new NTupleTrainer(network, NTupleTrainer.DEFAULT_LEARNING_RATE, new GameRandom(7)).playGame();
+        File file = folder.newFile("ntuple.bin");
+        network.save(file);
+
+        NTupleNetwork mapped = NTupleNetwork.map(file);
+        NTupleNetwork loaded = NTupleNetwork.load(file);
+        for (int i = 0; i < 100; i++) {
+            long board = randomBoard(random);
+            assertEquals(network.evaluate(board), mapped.evaluate(board), 0f);
+            assertEquals(network.evaluate(board), loaded.evaluate(board), 0f);
+        }
+        try {
+            mapped.update(0, 1f);
+            fail("Mapped weights must be read-only");
+        } catch (java.nio.ReadOnlyBufferException expected) {
+        }
+    }
+
+    @Test
+    public void training_beatsTheUntrainedNetwork() {
+        NTupleNetwork network = NTupleNetwork.create();
+        GameRandom random = new GameRandom(11);
+        NTupleTrainer trainer = new NTupleTrainer(network, NTupleTrainer.DEFAULT_LEARNING_RATE, random);
+        long early = 0;
+        long late = 0;
+        for (int i = 0; i < 600; i++) {
+            int score = trainer.playGame();
+            if (i < 100) {
+                early += score;
+            } else if (i >= 500) {
+                late += score;
+            }
+        }
+        assertTrue("early " + early / 100 + ", late " + late / 100, late > early * 3 / 2);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.game_2048;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class ReplayVerifierTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordedGame_verifiesWithUndoRedoAndClaims() throws Exception {
+        File file = new File(folder.getRoot(), "game.rpl");
+        long seed = 99;
+        GameRandom random = new GameRandom(seed);
+        Game game = new Game(random);
+        MoveHistory history = new MoveHistory();
+        history.reset(game.getBoard());
+        ReplayRecorder recorder = new ReplayRecorder(file, seed, 0);
+        MovePolicy policy = new CornerPolicy();
+
+        int step = 0;
+        while (!game.isGameOver()) {
+            step++;
+            if (step % 97 == 0 && history.getUndoDepth() >= 3) {
+                // Take three moves back, then redo one of them
+                for (int i = 0; i < 3; i++) {
+                    int delta = history.undo();
+                    random.skip(-1);
+                    game.restore(history.getBoard(), game.getScore() - delta, game.getMoveCount() - 1);
+                    recorder.undo();
+                }
+                int delta = history.redo();
+                random.skip(1);
+                game.restore(history.getBoard(), game.getScore() + delta, game.getMoveCount() + 1);
+                recorder.redo();
+                continue;
+            }
+            int direction = policy.chooseMove(game.getBoard());
+            int score = game.getScore();
+            assertTrue(game.move(direction));
+            history.push(game.getBoard(), game.getScore() - score);
+            recorder.move(direction);
+            if (step == 150) {
+                recorder.claim(game.getScore(), game.getMoveCount());
+            }
+        }
+        recorder.claim(game.getScore(), game.getMoveCount());
+        recorder.flush().get();
+
+        ReplayVerifier.Result result = new ReplayVerifier().verify(file);
+        assertNull(result.error);
+        assertEquals(seed, result.seed);
+        assertEquals(2, result.claims);
+        assertEquals(game.getScore(), result.score);
+        assertEquals(game.getMoveCount(), result.moves);
+        assertEquals(game.getBoard(), result.board);
+        // 2 bits per move plus a few record headers
+        assertTrue(file.length() < 14 + game.getMoveCount() / 4 + 200);
+    }
+
+    @Test
+    public void largeGrid_verifies() throws Exception {
+        File file = new File(folder.getRoot(), "game-6x6.rpl");
+        Game game = new Game(new GameRandom(21), 6);
+        ReplayRecorder recorder = new ReplayRecorder(file, 6, 21, 0);
+        int[] preference = {BoardEngine.DOWN, BoardEngine.LEFT, BoardEngine.RIGHT, BoardEngine.UP};
+        while (!game.isGameOver() && game.getMoveCount() < 2000) {
+            for (int direction : preference) {
+                if (game.move(direction)) {
+                    recorder.move(direction);
+                    break;
+                }
+            }
+        }
+        recorder.claim(game.getScore(), game.getMoveCount());
+        recorder.flush().get();
+
+        ReplayVerifier.Result result = new ReplayVerifier().verify(file);
+        assertNull(result.error);
+        assertEquals(6, result.size);
+        long[] board = new long[6];
+        game.copyBoard(board);
+        assertArrayEquals(board, result.cells);
+    }
+
+    @Test
+    public void inflatedClaim_isRejected() throws Exception {
+        File file = new File(folder.getRoot(), "game.rpl");
+        Game game = new Game(new GameRandom(5));
+        ReplayRecorder recorder = new ReplayRecorder(file, 5, 0);
+        MovePolicy policy = new CornerPolicy();
+        for (int i = 0; i < 100; i++) {
+            int direction = policy.chooseMove(game.getBoard());
+            game.move(direction);
+            recorder.move(direction);
+        }
+        recorder.claim(game.getScore() + 4, game.getMoveCount());
+        recorder.flush().get();
+
+        ReplayVerifier.Result result = new ReplayVerifier().verify(file);
+        assertFalse(result.isValid());
+        assertEquals(1, result.claims);
+    }
+
+    @Test
+    public void tamperedMove_isRejected() throws Exception {
+        File file = new File(folder.getRoot(), "game.rpl");
+        Game game = new Game(new GameRandom(8));
+        ReplayRecorder recorder = new ReplayRecorder(file, 8, 0);
+        MovePolicy policy = new CornerPolicy();
+        while (!game.isGameOver()) {
+            int direction = policy.chooseMove(game.getBoard());
+            game.move(direction);
+            recorder.move(direction);
+        }
+        recorder.claim(game.getScore(), game.getMoveCount());
+        recorder.flush().get();
+
+        // Flip one move in the middle of the first MOVES record
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(14 + 5 + 10);
+        int packed = raf.read();
+        raf.seek(14 + 5 + 10);
+        raf.write(packed ^ 1);
+        raf.close();
+
+        assertFalse(new ReplayVerifier().verify(file).isValid());
+    }
+
+    @Test
+    public void prune_keepsNewestClaimedAndInProgressReplays() throws Exception {
+        File dir = folder.newFolder("replays");
+        for (int i = 0; i < 6; i++) {
+            File file = new File(dir, "g" + i + ReplayRecorder.SUFFIX);
+            Game game = new Game(new GameRandom(i));
+            ReplayRecorder recorder = new ReplayRecorder(file, i, 0);
+            MovePolicy policy = new CornerPolicy();
+            // Past one flush, so the claim sits behind more than one MOVES record
+            for (int move = 0; move < 300 && !game.isGameOver(); move++) {
+                int direction = policy.chooseMove(game.getBoard());
+                game.move(direction);
+                recorder.move(direction);
+            }
+            if (i == 1 || i == 4) {
+                recorder.claim(game.getScore(), game.getMoveCount());
+            }
+            recorder.flush().get();
+            assertTrue(file.setLastModified(1_700_000_000_000L + i * 1000));
+        }
+        File other = new File(dir, "notes.txt");
+        assertTrue(other.createNewFile());
+        // Not recorded: nothing is written anywhere
+        ReplayRecorder unrecorded = new ReplayRecorder(null, 4, 1, 0);
+        unrecorded.move(0);
+        unrecorded.flush().get();
+
+        ReplayRecorder.prune(dir, 2, Collections.singletonList("g0" + ReplayRecorder.SUFFIX)).get();
+
+        // g0 is in progress, g1 and g4 are claimed, g3 and g5 are the newest of the rest
+        for (int i = 0; i < 6; i++) {
+            assertEquals("g" + i, i != 2, new File(dir, "g" + i + ReplayRecorder.SUFFIX).exists());
+        }
+        assertTrue(other.exists());
+        assertEquals(6, dir.listFiles().length);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.game_2048;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class ScoreSyncTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private URL endpoint;
+    // Stand-in score server: keeps what it accepts, and answers with the queued statuses
+    // first (a status of -200 stores the batch but answers 500, as if the reply was lost)
+    private final List<ScoreSyncQueue.Entry> stored = new ArrayList<>();
+    private final List<Integer> statuses = new ArrayList<>();
+    private long nextSequence;
+    private int requests;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/scores", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = readAll(exchange.getRequestBody());
+                int status;
+                synchronized (ScoreSyncTest.this) {
+                    requests++;
+                    status = statuses.isEmpty() ? 200 : statuses.remove(0);
+                    if (status == 200 || status == -200) {
+                        ScoreSyncQueue.Upload upload = ScoreSyncQueue.decode(body);
+                        assertEquals(Long.toHexString(upload.clientId),
+                                exchange.getRequestHeaders().getFirst("X-Client-Id"));
+                        // Repeats of a stored batch are acknowledged without storing again
+                        if (upload.firstSequence >= nextSequence) {
+                            stored.addAll(upload.entries);
+                            nextSequence = upload.firstSequence + upload.entries.size();
+                        }
+                        status = status == 200 ? 200 : 500;
+                    }
+                }
+                if (status == 503) {
+                    exchange.getResponseHeaders().add("Retry-After", "7");
+                }
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        endpoint = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/scores");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    // A few players with short sessions, minutes apart
+    private static List<ScoreSyncQueue.Entry> games(int count, long seed) {
+        Random random = new Random(seed);
+        String[] players = {"ann", "bob", "chlo\u00e9"};
+        List<ScoreSyncQueue.Entry> games = new ArrayList<>();
+        long endedAt = 1_700_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            endedAt += 30_000 + random.nextInt(600_000);
+            int moves = 100 + random.nextInt(1500);
+            games.add(new ScoreSyncQueue.Entry(players[random.nextInt(players.length)],
+                    4, moves * (8 + random.nextInt(8)), moves, 7 + random.nextInt(5), endedAt));
+        }
+        return games;
+    }
+
+    private static void assertSameGames(List<ScoreSyncQueue.Entry> expected,
+                                        List<ScoreSyncQueue.Entry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).name, actual.get(i).name);
+            assertEquals(expected.get(i).score, actual.get(i).score);
+            assertEquals(expected.get(i).moves, actual.get(i).moves);
+            assertEquals(expected.get(i).maxExponent, actual.get(i).maxExponent);
+            assertEquals(expected.get(i).endedAt, actual.get(i).endedAt);
+        }
+    }
+
+    @Test
+    public void drain_deliversEveryScoreOnceThroughFailures() throws Exception {
+        ScoreSyncQueue queue = new ScoreSyncQueue(new File(folder.getRoot(), "sync.bin"));
+        List<ScoreSyncQueue.Entry> games = games(1000, 1);
+        for (ScoreSyncQueue.Entry game : games) {
+            queue.add(game);
+        }
+        ScoreSyncer syncer = new ScoreSyncer(queue, endpoint, 256, new Random(2));
+
+        statuses.add(503);
+        statuses.add(-200);
+        assertEquals(7000, syncer.drain());
+        long delay = syncer.drain();
+        assertTrue(delay >= ScoreSyncer.BASE_BACKOFF_MS && delay <= 2 * ScoreSyncer.BASE_BACKOFF_MS);
+        assertEquals(0, syncer.drain());
+
+        assertSameGames(games, stored);
+        assertEquals(0, queue.pending());
+        assertEquals(6, requests);
+        assertEquals(1000, syncer.getGamesSent());
+        assertEquals(4, syncer.getBatchesSent());
+        // Gzipped deltas and varints; a fixed-width record alone would be 30 bytes
+        double bytesPerGame = (double) syncer.getBytesSent() / syncer.getGamesSent();
+        assertTrue("bytes per game: " + bytesPerGame, bytesPerGame < 10);
+    }
+
+    @Test
+    public void queue_survivesReopenAndKeepsSequenceNumbers() throws Exception {
+        File file = new File(folder.getRoot(), "sync.bin");
+        ScoreSyncQueue queue = new ScoreSyncQueue(file);
+        List<ScoreSyncQueue.Entry> games = games(10, 3);
+        for (ScoreSyncQueue.Entry game : games) {
+            queue.add(game);
+        }
+        long clientId = queue.getClientId();
+        queue.acknowledge(queue.nextBatch(4));
+        // A torn append from a crash
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[] {0, 3, 'd', 'a'});
+        out.close();
+
+        ScoreSyncQueue reopened = new ScoreSyncQueue(file);
+        assertEquals(6, reopened.pending());
+        assertEquals(clientId, reopened.getClientId());
+        ScoreSyncQueue.Batch batch = reopened.nextBatch(100);
+        assertEquals(4, batch.firstSequence);
+        assertSameGames(games.subList(4, 10), ScoreSyncQueue.decode(batch.payload).entries);
+
+        // Everything acknowledged empties the file, and numbering carries on
+        reopened.acknowledge(batch);
+        assertEquals(0, file.length());
+        reopened.add(games.get(0));
+        assertEquals(10, new ScoreSyncQueue(file).nextBatch(100).firstSequence);
+    }
+
+    @Test
+    public void drain_backsOffWhileServerIsDownAndDropsRejectedBatches() throws Exception {
+        ScoreSyncQueue queue = new ScoreSyncQueue(new File(folder.getRoot(), "sync.bin"));
+        for (ScoreSyncQueue.Entry game : games(3, 4)) {
+            queue.add(game);
+        }
+        ScoreSyncer syncer = new ScoreSyncer(queue, endpoint, 2, new Random(5));
+        for (int attempt = 0; attempt < 12; attempt++) {
+            statuses.add(502);
+        }
+        long previousCap = 0;
+        for (int attempt = 0; attempt < 12; attempt++) {
+            long cap = Math.min(ScoreSyncer.MAX_BACKOFF_MS, ScoreSyncer.BASE_BACKOFF_MS << attempt);
+            long delay = syncer.drain();
+            assertTrue(delay >= cap / 2 && delay <= cap);
+            assertTrue(cap >= previousCap);
+            previousCap = cap;
+        }
+        assertEquals(ScoreSyncer.MAX_BACKOFF_MS, previousCap);
+
+        statuses.add(400);
+        assertEquals(0, syncer.drain());
+        assertEquals(2, syncer.getGamesRejected());
+        assertEquals(1, syncer.getGamesSent());
+        assertEquals(0, queue.pending());
+        assertEquals(1, stored.size());
+    }
+
+    @Test
+    public void drain_keepsBatchesTheServerCannotTakeYet() throws Exception {
+        ScoreSyncQueue queue = new ScoreSyncQueue(new File(folder.getRoot(), "sync.bin"));
+        List<ScoreSyncQueue.Entry> games = games(5, 6);
+        for (ScoreSyncQueue.Entry game : games) {
+            queue.add(game);
+        }
+        ScoreSyncer syncer = new ScoreSyncer(queue, endpoint, 256, new Random(7));
+
+        // A mistyped path, then lost auth, then a body limit: a setup problem, not bad data
+        statuses.add(404);
+        statuses.add(401);
+        statuses.add(413);
+        for (int attempt = 0; attempt < 3; attempt++) {
+            assertTrue(syncer.drain() > 0);
+            assertEquals(5, queue.pending());
+        }
+        assertEquals(0, syncer.getGamesRejected());
+
+        assertEquals(0, syncer.drain());
+        assertSameGames(games, stored);
+        assertEquals(0, queue.pending());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.game_2048;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SwipeRecognizerTest {
+
+    private static final float DISTANCE = 60;
+
+    @Test
+    public void drag_commitsMidGestureOnceThenLocksUntilUp() {
+        SwipeRecognizer swipes = new SwipeRecognizer(DISTANCE);
+        swipes.down(0, 100, 100, 1_000);
+        assertEquals(SwipeRecognizer.NONE, swipes.move(0, 130, 105, 2_000));
+        assertEquals(BoardEngine.RIGHT, swipes.move(0, 161, 110, 3_000));
+        assertEquals(3_000, swipes.getCommitNanos());
+        assertEquals(1_000, swipes.getDownNanos());
+
+        // Carrying on, or turning, does not move again in the same gesture
+        assertEquals(SwipeRecognizer.NONE, swipes.move(0, 400, 110, 4_000));
+        assertEquals(SwipeRecognizer.NONE, swipes.move(0, 400, 400, 5_000));
+        assertEquals(SwipeRecognizer.NONE, swipes.up(0, 400, 400, 6_000));
+
+        swipes.down(0, 100, 100, 7_000);
+        assertEquals(BoardEngine.UP, swipes.move(0, 90, 30, 8_000));
+    }
+
+    @Test
+    public void diagonalDrag_waitsForOneAxisToDominate() {
+        SwipeRecognizer swipes = new SwipeRecognizer(DISTANCE);
+        swipes.down(0, 0, 0, 0);
+        assertEquals(SwipeRecognizer.NONE, swipes.move(0, -70, 65, 1));
+        assertEquals(SwipeRecognizer.NONE, swipes.move(0, -90, 80, 2));
+        assertEquals(BoardEngine.DOWN, swipes.move(0, -90, 140, 3));
+    }
+
+    @Test
+    public void shortFlick_movesOnLift() {
+        SwipeRecognizer swipes = new SwipeRecognizer(DISTANCE);
+        swipes.down(0, 0, 0, 0);
+        assertEquals(SwipeRecognizer.NONE, swipes.move(0, -20, 5, 1));
+        assertEquals(BoardEngine.LEFT, swipes.up(0, -35, 10, 2));
+
+        // A tap is not a swipe
+        swipes.down(0, 0, 0, 3);
+        assertEquals(SwipeRecognizer.NONE, swipes.up(0, 5, 3, 4));
+    }
+
+    @Test
+    public void extraFingers_areIgnoredOrCancel() {
+        SwipeRecognizer swipes = new SwipeRecognizer(DISTANCE);
+        // A second finger's samples do not count
+        swipes.down(3, 0, 0, 0);
+        assertEquals(SwipeRecognizer.NONE, swipes.move(4, 500, 0, 1));
+        assertTrue(swipes.isTracking());
+
+        // A second finger down before a commit cancels the gesture until every finger is up
+        swipes.pointerDown();
+        assertFalse(swipes.isTracking());
+        assertEquals(SwipeRecognizer.NONE, swipes.move(3, 0, 500, 2));
+        assertEquals(SwipeRecognizer.NONE, swipes.pointerUp(3, 0, 500, 3));
+        assertEquals(SwipeRecognizer.NONE, swipes.move(4, 500, 500, 4));
+        assertEquals(SwipeRecognizer.NONE, swipes.up(4, 500, 500, 5));
+
+        // The followed finger lifting first still completes its flick
+        swipes.down(1, 0, 0, 6);
+        assertEquals(BoardEngine.DOWN, swipes.pointerUp(1, 0, 40, 7));
+        assertEquals(SwipeRecognizer.NONE, swipes.up(2, 0, 500, 8));
+    }
+}
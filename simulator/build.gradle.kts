@@ -0,0 +1,22 @@
+// Headless batch simulator: plays seeded games on every core with a pluggable MovePolicy
+plugins {
+    application
+}
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    implementation("com.example.game_2048:engine")
+}
+
+application {
+    mainClass.set("com.example.game_2048.Simulator")
+    applicationDefaultJvmArgs = listOf("-Xms256m")
+}
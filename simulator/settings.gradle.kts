@@ -0,0 +1,3 @@
+rootProject.name = "simulator"
+
+includeBuild("../engine")
@@ -0,0 +1,95 @@
+package com.example.game_2048;
+
+import java.io.PrintStream;
+
+// Per-worker running aggregates, merged once all games are done
+final class SimulationStats {
+
+    // Log-linear score buckets: 16 sub-buckets per power of two, so percentiles are
+    // accurate to about 6% whatever the score range
+    private static final int SUB_BUCKETS = 16;
+    private static final int BUCKETS = 32 * SUB_BUCKETS;
+
+    long games;
+    long moves;
+    long scoreSum;
+    int minScore = Integer.MAX_VALUE;
+    int maxScore;
+    final long[] scoreBuckets = new long[BUCKETS];
+    final long[] maxTileCounts = new long[BoardEngine.MAX_EXPONENT + 1];
+
+    void add(int score, int moveCount, int maxExponent) {
+        games++;
+        moves += moveCount;
+        scoreSum += score;
+        minScore = Math.min(minScore, score);
+        maxScore = Math.max(maxScore, score);
+        scoreBuckets[bucket(score)]++;
+        maxTileCounts[maxExponent]++;
+    }
+
+    void merge(SimulationStats other) {
+        games += other.games;
+        moves += other.moves;
+        scoreSum += other.scoreSum;
+        minScore = Math.min(minScore, other.minScore);
+        maxScore = Math.max(maxScore, other.maxScore);
+        for (int i = 0; i < BUCKETS; i++) {
+            scoreBuckets[i] += other.scoreBuckets[i];
+        }
+        for (int i = 0; i < maxTileCounts.length; i++) {
+            maxTileCounts[i] += other.maxTileCounts[i];
+        }
+    }
+
+    static int bucket(int score) {
+        if (score < SUB_BUCKETS) {
+            return score;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(score);
+        int sub = (score >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+        return (exponent - 3) * SUB_BUCKETS + sub;
+    }
+
+    static int bucketLowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 3;
+        int sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - 4);
+    }
+
+    int percentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * games);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += scoreBuckets[i];
+            if (seen >= rank && scoreBuckets[i] > 0) {
+                return Math.max(minScore, Math.min(maxScore, bucketLowerBound(i)));
+            }
+        }
+        return maxScore;
+    }
+
+    void print(PrintStream out) {
+        if (games == 0) {
+            out.println("No games played");
+            return;
+        }
+        out.printf("Score: mean %.1f  min %d  p10 %d  p50 %d  p90 %d  p99 %d  max %d%n",
+                (double) scoreSum / games, minScore, percentile(0.10), percentile(0.50),
+                percentile(0.90), percentile(0.99), maxScore);
+        out.printf("Moves per game: mean %.1f%n", (double) moves / games);
+        out.println("Max tile distribution:");
+        long atLeast = games;
+        for (int exponent = 0; exponent < maxTileCounts.length; exponent++) {
+            long count = maxTileCounts[exponent];
+            if (count > 0) {
+                out.printf("  %6d  %10d  %6.2f%%  (reached by %6.2f%%)%n", 1 << exponent, count,
+                        100.0 * count / games, 100.0 * atLeast / games);
+            }
+            atLeast -= count;
+        }
+    }
+}
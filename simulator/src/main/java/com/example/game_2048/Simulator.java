@@ -0,0 +1,374 @@
+package com.example.game_2048;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Plays many seeded games in parallel and reports score and max-tile distributions.
+//
+//   gradle run --args="--games 1000000 --policy corner --out results.bin"
+//
+// Options: --games N, --seed S, --policy random|greedy|corner|expectimax|ntuple|montecarlo,
+// --threads T (default: all cores), --budget MS (expectimax only), --weights FILE (ntuple
+// only, a network saved by train), --rollouts N (montecarlo only, playouts per move, each
+// thread playing its own), --spawn classic|twos|hard (the SpawnDistribution),
+// --out FILE, --replays DIR (record every game as a ReplayRecorder file; meant for small
+// runs, classic spawns only).
+//
+//   gradle run --args="train --out ntuple.bin"
+//
+// trains an NTupleNetwork by self-play; see Trainer.
+//
+//   gradle run --args="sync --games 10000"
+//
+// measures leaderboard sync throughput and payload size per game; see SyncRunner.
+//
+//   gradle run --args="verify DIR_OR_FILE..."
+//
+// re-plays recorded games with ReplayVerifier and reports any whose claimed scores do not
+// hold up.
+//
+// Game i is seeded from (seed, i) alone, so results do not depend on the thread count.
+// The output file starts with a header (int magic "2048", byte version, long seed,
+// long games, UTF policy name) followed by chunks of (long firstGame, int count) and
+// count 9-byte records: int score, int moves, byte max tile exponent.
+public final class Simulator {
+
+    private static final int MAGIC = 0x32303438;
+    private static final int VERSION = 1;
+    private static final int CHUNK = 4096;
+    private static final int RECORD_BYTES = 9;
+
+    private final long games;
+    private final long seed;
+    private final String policy;
+    private final int threads;
+    private final long budgetMillis;
+    private static int rolloutsPerMove = MonteCarloSearch.DEFAULT_ROLLOUTS;
+    private final AtomicLong nextGame = new AtomicLong();
+    private DataOutputStream out;
+    private File replayDir;
+    private SpawnDistribution spawns = SpawnDistribution.CLASSIC;
+    // Shared by every thread for the ntuple policy; only read
+    private static NTupleNetwork network;
+
+    private Simulator(long games, long seed, String policy, int threads, long budgetMillis) {
+        this.games = games;
+        this.seed = seed;
+        this.policy = policy;
+        this.threads = threads;
+        this.budgetMillis = budgetMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("verify")) {
+            verify(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("train")) {
+            Trainer.main(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("sync")) {
+            SyncRunner.main(args);
+            return;
+        }
+        long games = 100_000;
+        long seed = 2048;
+        String policy = "corner";
+        int threads = Runtime.getRuntime().availableProcessors();
+        long budgetMillis = 1;
+        String outFile = null;
+        String replayDir = null;
+        String weightsFile = null;
+        String spawnName = SpawnDistribution.CLASSIC.getName();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--games": games = Long.parseLong(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--policy": policy = value; break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--budget": budgetMillis = Long.parseLong(value); break;
+                case "--out": outFile = value; break;
+                case "--replays": replayDir = value; break;
+                case "--weights": weightsFile = value; break;
+                case "--rollouts": rolloutsPerMove = Integer.parseInt(value); break;
+                case "--spawn": spawnName = value; break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+        if (weightsFile != null) {
+            network = NTupleNetwork.map(new File(weightsFile));
+        }
+        // Fail fast on a bad policy name
+        createPolicy(policy, new Random(), budgetMillis).close();
+        SpawnDistribution spawns = SpawnDistribution.forName(spawnName);
+        if (spawns == null) {
+            usage("Unknown spawn distribution " + spawnName);
+        }
+        // Replays are verified against the classic rules
+        if (replayDir != null && spawns != SpawnDistribution.CLASSIC) {
+            usage("--replays needs classic spawns");
+        }
+
+        Simulator simulator = new Simulator(games, seed, policy, threads, budgetMillis);
+        simulator.spawns = spawns;
+        if (outFile != null) {
+            simulator.out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(outFile), 1 << 16));
+            simulator.writeHeader();
+        }
+        if (replayDir != null) {
+            simulator.replayDir = new File(replayDir);
+            if (!simulator.replayDir.isDirectory() && !simulator.replayDir.mkdirs()) {
+                usage("Cannot create " + replayDir);
+            }
+        }
+
+        long started = System.nanoTime();
+        SimulationStats stats = simulator.run();
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        if (simulator.out != null) {
+            simulator.out.close();
+        }
+
+        System.out.printf("Simulated %d games with policy %s, %s spawns, on %d threads in %.2f s "
+                        + "(%.0f games/s, %.0f moves/s)%n", stats.games, policy, spawnName, threads,
+                seconds, stats.games / seconds, stats.moves / seconds);
+        stats.print(System.out);
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: Simulator [--games N] [--seed S] "
+                + "[--policy random|greedy|corner|expectimax|ntuple|montecarlo] [--threads T] "
+                + "[--budget MS] [--weights FILE] [--rollouts N] [--spawn classic|twos|hard] [--out FILE] [--replays DIR]");
+        System.err.println("       Simulator verify DIR_OR_FILE...");
+        System.err.println("       Simulator train --out FILE [options]");
+        System.err.println("       Simulator sync [options]");
+        System.exit(2);
+    }
+
+    // A policy plus whatever it needs releasing
+    private static final class Player {
+        final MovePolicy policy;
+        final ExpectimaxSearch search;
+        final MonteCarloSearch rollouts;
+
+        Player(MovePolicy policy, ExpectimaxSearch search) {
+            this(policy, search, null);
+        }
+
+        Player(MovePolicy policy, ExpectimaxSearch search, MonteCarloSearch rollouts) {
+            this.policy = policy;
+            this.search = search;
+            this.rollouts = rollouts;
+        }
+
+        void close() {
+            if (search != null) {
+                search.shutdown();
+            }
+            if (rollouts != null) {
+                rollouts.shutdown();
+            }
+        }
+    }
+
+    private static Player createPolicy(String name, Random random, final long budgetMillis) {
+        switch (name) {
+            case "random":
+                return new Player(new RandomPolicy(random), null);
+            case "greedy":
+                return new Player(new GreedyPolicy(), null);
+            case "corner":
+                return new Player(new CornerPolicy(), null);
+            case "ntuple":
+                if (network == null) {
+                    usage("The ntuple policy needs --weights");
+                }
+                return new Player(new NTuplePolicy(network), null);
+            case "expectimax":
+                final ExpectimaxSearch search = new ExpectimaxSearch(1);
+                return new Player(new MovePolicy() {
+                    @Override
+                    public int chooseMove(long board) {
+                        return search.searchNow(board, budgetMillis).direction;
+                    }
+                }, search);
+            case "montecarlo":
+                // The simulator's threads already fill the cores, so each plays on its own
+                MonteCarloSearch rollouts = new MonteCarloSearch(1, rolloutsPerMove,
+                        random.nextLong());
+                return new Player(rollouts, null, rollouts);
+            default:
+                usage("Unknown policy " + name);
+                return null;
+        }
+    }
+
+    // SplitMix64 finaliser, so neighbouring game indices get unrelated seeds
+    static long gameSeed(long seed, long game) {
+        long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void writeHeader() throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeLong(games);
+        out.writeUTF(policy);
+    }
+
+    private synchronized void writeChunk(long firstGame, ByteBuffer records) throws IOException {
+        out.writeLong(firstGame);
+        out.writeInt(records.position() / RECORD_BYTES);
+        out.write(records.array(), 0, records.position());
+    }
+
+    private SimulationStats run() throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        final List<SimulationStats> results = new ArrayList<>();
+        final Throwable[] failure = new Throwable[1];
+
+        for (int t = 0; t < threads; t++) {
+            final SimulationStats stats = new SimulationStats();
+            results.add(stats);
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        playChunks(stats);
+                    } catch (Throwable e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            }, "simulator-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure[0] != null) {
+            throw new IllegalStateException("Simulation failed", failure[0]);
+        }
+
+        SimulationStats total = new SimulationStats();
+        for (SimulationStats stats : results) {
+            total.merge(stats);
+        }
+        return total;
+    }
+
+    private static void verify(String[] args) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            File file = new File(args[i]);
+            File[] children = file.listFiles();
+            if (children == null) {
+                files.add(file);
+                continue;
+            }
+            for (File child : children) {
+                if (child.getName().endsWith(".rpl")) {
+                    files.add(child);
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            usage("No replays given");
+        }
+
+        ReplayVerifier verifier = new ReplayVerifier();
+        long moves = 0;
+        int invalid = 0;
+        long started = System.nanoTime();
+        for (File file : files) {
+            ReplayVerifier.Result result = verifier.verify(file);
+            moves += result.moves;
+            if (!result.isValid()) {
+                invalid++;
+                System.out.println(file + ": " + result.error);
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("Verified %d replays (%d invalid), %d moves in %.2f s (%.0f moves/s)%n",
+                files.size(), invalid, moves, seconds, moves / seconds);
+    }
+
+    private void playChunks(SimulationStats stats) throws IOException {
+        GameRandom gameRandom = new GameRandom();
+        Random policyRandom = new Random();
+        Player player = createPolicy(policy, policyRandom, budgetMillis);
+        Game game = new Game(gameRandom, BoardEngine.SIZE, spawns);
+        ByteBuffer records = ByteBuffer.allocate(CHUNK * RECORD_BYTES);
+        Future<?> lastWrite = null;
+
+        try {
+            long first;
+            while ((first = nextGame.getAndAdd(CHUNK)) < games) {
+                long last = Math.min(games, first + CHUNK);
+                records.clear();
+                for (long i = first; i < last; i++) {
+                    long s = gameSeed(seed, i);
+                    gameRandom.setSeed(s);
+                    policyRandom.setSeed(~s);
+                    game.restart();
+                    ReplayRecorder recorder = replayDir == null ? null
+                            : new ReplayRecorder(new File(replayDir, "game-" + i + ".rpl"), s, 0);
+
+                    int direction;
+                    while ((direction = player.policy.chooseMove(game.getBoard())) >= 0) {
+                        game.move(direction);
+                        if (recorder != null) {
+                            recorder.move(direction);
+                        }
+                    }
+                    if (recorder != null) {
+                        recorder.claim(game.getScore(), game.getMoveCount());
+                        lastWrite = recorder.flush();
+                    }
+
+                    int maxExponent = BoardEngine.maxExponent(game.getBoard());
+                    stats.add(game.getScore(), game.getMoveCount(), maxExponent);
+                    records.putInt(game.getScore());
+                    records.putInt(game.getMoveCount());
+                    records.put((byte) maxExponent);
+                }
+                if (out != null) {
+                    writeChunk(first, records);
+                }
+            }
+            // Replay files are appended in order on one thread, so the last write covers all
+            if (lastWrite != null) {
+                lastWrite.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Replay recording failed", e);
+        } finally {
+            player.close();
+        }
+    }
+}
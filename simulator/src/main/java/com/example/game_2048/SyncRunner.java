@@ -0,0 +1,268 @@
+package com.example.game_2048;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Measures leaderboard sync: plays seeded games, queues their scores in a ScoreSyncQueue as
+// the app does, and drains it with a ScoreSyncer into a local stand-in for the score server.
+//
+//   gradle run --args="sync --games 10000 --fail 0.2"
+//
+// Options: --games N, --seed S, --players P (names the games are spread over), --batch B
+// (games per request), --fail F (fraction of requests the stand-in answers 503), --latency MS
+// (stand-in delay per request), --url URL (a real server instead of the stand-in). Backoff
+// delays are added up rather than slept, so a lossy run still finishes quickly. The payload
+// size is compared with the same games as fixed-width records and as a plain JSON array.
+final class SyncRunner {
+
+    private final Random serverRandom;
+    private final double failRate;
+    private final long latencyMillis;
+    // What the stand-in has stored, and the next sequence number it expects
+    private final List<ScoreSyncQueue.Entry> stored = new ArrayList<>();
+    private long nextSequence;
+    private long repeats;
+
+    private SyncRunner(long seed, double failRate, long latencyMillis) {
+        this.serverRandom = new Random(seed);
+        this.failRate = failRate;
+        this.latencyMillis = latencyMillis;
+    }
+
+    static void main(String[] args) throws Exception {
+        int games = 10_000;
+        long seed = 2048;
+        int players = 4;
+        int batch = ScoreSyncer.DEFAULT_BATCH_SIZE;
+        double failRate = 0;
+        long latencyMillis = 0;
+        String url = null;
+
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--games": games = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--players": players = Integer.parseInt(value); break;
+                case "--batch": batch = Integer.parseInt(value); break;
+                case "--fail": failRate = Double.parseDouble(value); break;
+                case "--latency": latencyMillis = Long.parseLong(value); break;
+                case "--url": url = value; break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+        if (failRate < 0 || failRate >= 1) {
+            usage("--fail must be at least 0 and below 1");
+        }
+        if (players < 1 || batch < 1) {
+            usage("--players and --batch must be positive");
+        }
+
+        long started = System.nanoTime();
+        List<ScoreSyncQueue.Entry> entries = play(games, seed, players);
+        System.out.printf("Played %d games in %.2f s%n", games, (System.nanoTime() - started) / 1e9);
+
+        File file = File.createTempFile("score_sync", ".bin");
+        file.deleteOnExit();
+        new File(file.getPath() + ".state").deleteOnExit();
+        ScoreSyncQueue queue = new ScoreSyncQueue(file);
+        queue.load();
+        started = System.nanoTime();
+        for (ScoreSyncQueue.Entry entry : entries) {
+            queue.add(entry);
+        }
+        double queueSeconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("Queued %d games in %.2f s (%.0f games/s, %.1f bytes/game on disk)%n",
+                games, queueSeconds, games / queueSeconds, (double) file.length() / games);
+
+        SyncRunner runner = new SyncRunner(seed, failRate, latencyMillis);
+        HttpServer server = null;
+        URL endpoint;
+        if (url == null) {
+            server = runner.startServer();
+            endpoint = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/scores");
+        } else {
+            endpoint = new URL(url);
+        }
+
+        ScoreSyncer syncer = new ScoreSyncer(queue, endpoint, batch, new Random(seed));
+        long backoffMillis = 0;
+        int drains = 0;
+        started = System.nanoTime();
+        while (true) {
+            long delay = syncer.drain();
+            drains++;
+            if (delay == 0) {
+                break;
+            }
+            backoffMillis += delay;
+        }
+        double syncSeconds = (System.nanoTime() - started) / 1e9;
+        if (server != null) {
+            server.stop(0);
+        }
+
+        long sent = syncer.getGamesSent();
+        System.out.printf("Synced %d games in %d batches, %d failed requests, %d drains, "
+                        + "in %.2f s (%.0f games/s, %.2f ms/request; %.1f s of backoff not slept)%n",
+                sent, syncer.getBatchesSent(), syncer.getFailedAttempts(), drains, syncSeconds,
+                sent / syncSeconds, syncer.getSendNanos() / 1e6
+                        / (syncer.getBatchesSent() + syncer.getFailedAttempts()),
+                backoffMillis / 1e3);
+        System.out.printf("Payload per game: %.2f bytes sent, %.2f before gzip, %.1f as "
+                        + "fixed-width records, %.1f as JSON%n",
+                (double) syncer.getBytesSent() / sent, (double) syncer.getRawBytesSent() / sent,
+                fixedWidthBytes(entries) / games,
+                (double) jsonBytes(entries) / games);
+        if (server != null) {
+            System.out.printf("Server stored %d games, dropped %d repeated batches%n",
+                    runner.stored.size(), runner.repeats);
+            if (!sameGames(entries, runner.stored)) {
+                System.out.println("MISMATCH: the server did not store every game exactly once");
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: Simulator sync [--games N] [--seed S] [--players P] [--batch B] "
+                + "[--fail F] [--latency MS] [--url URL]");
+        System.exit(2);
+    }
+
+    // Corner-policy games on the 4x4 board; each player's sessions are a few games minutes
+    // apart, with hours between sessions
+    private static List<ScoreSyncQueue.Entry> play(int games, long seed, int players) {
+        String[] names = new String[players];
+        for (int p = 0; p < players; p++) {
+            names[p] = "player" + (p + 1);
+        }
+        Random random = new Random(seed);
+        MovePolicy policy = new CornerPolicy();
+        GameRandom gameRandom = new GameRandom();
+        Game game = new Game(gameRandom);
+        List<ScoreSyncQueue.Entry> entries = new ArrayList<>(games);
+        long endedAt = 1_700_000_000_000L;
+        String name = names[0];
+        for (int i = 0; i < games; i++) {
+            gameRandom.setSeed(Simulator.gameSeed(seed, i));
+            game.restart();
+            int direction;
+            while ((direction = policy.chooseMove(game.getBoard())) >= 0) {
+                game.move(direction);
+            }
+            if (random.nextInt(5) == 0) {
+                name = names[random.nextInt(players)];
+                endedAt += 3_600_000 + random.nextInt(8 * 3_600_000);
+            } else {
+                endedAt += 60_000 + random.nextInt(240_000);
+            }
+            entries.add(new ScoreSyncQueue.Entry(name, BoardEngine.SIZE, game.getScore(),
+                    game.getMoveCount(), Integer.numberOfTrailingZeros(game.getMaxTile()), endedAt));
+        }
+        return entries;
+    }
+
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/scores", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = readAll(exchange.getRequestBody());
+                if (latencyMillis > 0) {
+                    try {
+                        Thread.sleep(latencyMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                int status = 200;
+                synchronized (SyncRunner.this) {
+                    if (serverRandom.nextDouble() < failRate) {
+                        status = 503;
+                    } else {
+                        ScoreSyncQueue.Upload upload = ScoreSyncQueue.decode(body);
+                        if (upload.firstSequence >= nextSequence) {
+                            stored.addAll(upload.entries);
+                            nextSequence = upload.firstSequence + upload.entries.size();
+                        } else {
+                            repeats++;
+                        }
+                    }
+                }
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    // As the queue file stores them: u16 name length, name, size, score, moves, tile, time
+    private static double fixedWidthBytes(List<ScoreSyncQueue.Entry> entries) {
+        long bytes = 0;
+        for (ScoreSyncQueue.Entry entry : entries) {
+            bytes += 2 + entry.name.getBytes(StandardCharsets.UTF_8).length + 1 + 4 + 4 + 1 + 8;
+        }
+        return bytes;
+    }
+
+    private static long jsonBytes(List<ScoreSyncQueue.Entry> entries) {
+        StringBuilder json = new StringBuilder("[");
+        for (ScoreSyncQueue.Entry entry : entries) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(entry.name)
+                    .append("\",\"size\":").append(entry.size)
+                    .append(",\"score\":").append(entry.score)
+                    .append(",\"moves\":").append(entry.moves)
+                    .append(",\"maxTile\":").append(1 << entry.maxExponent)
+                    .append(",\"endedAt\":").append(entry.endedAt).append('}');
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static boolean sameGames(List<ScoreSyncQueue.Entry> expected,
+                                     List<ScoreSyncQueue.Entry> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            ScoreSyncQueue.Entry a = expected.get(i);
+            ScoreSyncQueue.Entry b = actual.get(i);
+            if (!a.name.equals(b.name) || a.size != b.size || a.score != b.score
+                    || a.moves != b.moves || a.maxExponent != b.maxExponent
+                    || a.endedAt != b.endedAt) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
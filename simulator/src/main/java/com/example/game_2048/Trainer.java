@@ -0,0 +1,179 @@
+package com.example.game_2048;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Trains an NTupleNetwork by TD self-play on every core and saves it for the app to map.
+//
+//   gradle run --args="train --games 200000 --out ntuple.bin"
+//
+// Options: --games N, --seed S, --threads T (default: all cores), --alpha A (learning
+// rate), --in FILE (continue from a saved network), --report N (games between progress
+// lines). All threads update one shared network without locking. Afterwards the saved
+// file is mapped back and its evaluation latency is measured.
+final class Trainer {
+
+    private final NTupleNetwork network;
+    private final long games;
+    private final long seed;
+    private final float alpha;
+    private final long report;
+    private final AtomicLong nextGame = new AtomicLong();
+    // Progress since the last report
+    private final AtomicLong windowGames = new AtomicLong();
+    private final AtomicLong windowScore = new AtomicLong();
+    private final AtomicLong windowWins = new AtomicLong();
+    private long started;
+
+    private Trainer(NTupleNetwork network, long games, long seed, float alpha, long report) {
+        this.network = network;
+        this.games = games;
+        this.seed = seed;
+        this.alpha = alpha;
+        this.report = report;
+    }
+
+    static void main(String[] args) throws Exception {
+        long games = 100_000;
+        long seed = 2048;
+        int threads = Runtime.getRuntime().availableProcessors();
+        float alpha = NTupleTrainer.DEFAULT_LEARNING_RATE;
+        String inFile = null;
+        String outFile = null;
+        long report = 10_000;
+
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--games": games = Long.parseLong(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--alpha": alpha = Float.parseFloat(value); break;
+                case "--in": inFile = value; break;
+                case "--out": outFile = value; break;
+                case "--report": report = Long.parseLong(value); break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+        if (outFile == null) {
+            usage("--out is required");
+        }
+
+        NTupleNetwork network = inFile == null ? NTupleNetwork.create()
+                : NTupleNetwork.load(new File(inFile));
+        Trainer trainer = new Trainer(network, games, seed, alpha, Math.max(1, report));
+        trainer.started = System.nanoTime();
+        trainer.run(threads);
+        double seconds = (System.nanoTime() - trainer.started) / 1e9;
+        System.out.printf("Trained %d games on %d threads in %.1f s (%.0f games/s)%n",
+                games, threads, seconds, games / seconds);
+
+        File file = new File(outFile);
+        network.save(file);
+        measureEvaluation(NTupleNetwork.map(file), seed);
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: Simulator train --out FILE [--games N] [--seed S] [--threads T] "
+                + "[--alpha A] [--in FILE] [--report N]");
+        System.exit(2);
+    }
+
+    private void run(int threads) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        final Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        train();
+                    } catch (Throwable e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            }, "trainer-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure[0] != null) {
+            throw new IllegalStateException("Training failed", failure[0]);
+        }
+    }
+
+    private void train() {
+        GameRandom random = new GameRandom();
+        NTupleTrainer trainer = new NTupleTrainer(network, alpha, random);
+        long i;
+        while ((i = nextGame.getAndIncrement()) < games) {
+            random.setSeed(Simulator.gameSeed(seed, i));
+            int score = trainer.playGame();
+            windowScore.addAndGet(score);
+            if (trainer.getGame().getMaxTile() >= Game.DEFAULT_WIN_TILE) {
+                windowWins.incrementAndGet();
+            }
+            if (windowGames.incrementAndGet() == report) {
+                printProgress(i + 1);
+            }
+        }
+    }
+
+    // Runs on whichever thread completes the window; the others keep adding to the next one
+    private void printProgress(long played) {
+        long count = windowGames.getAndSet(0);
+        long score = windowScore.getAndSet(0);
+        long wins = windowWins.getAndSet(0);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("%10d games  %6.0f games/s  mean score %8.0f  2048 rate %5.1f%%%n",
+                played, played / seconds, (double) score / count, 100.0 * wins / count);
+    }
+
+    // Times evaluate() and bestMove() over positions from a few games the network plays
+    private static void measureEvaluation(NTupleNetwork network, long seed) {
+        long[] boards = new long[1 << 16];
+        int count = 0;
+        Game game = new Game(new GameRandom(seed));
+        while (count < boards.length) {
+            int direction = network.bestMove(game.getBoard());
+            if (direction < 0) {
+                game.restart();
+                continue;
+            }
+            game.move(direction);
+            boards[count++] = game.getBoard();
+        }
+
+        float sink = 0;
+        int rounds = 20;
+        long evaluateNanos = Long.MAX_VALUE;
+        long bestMoveNanos = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long t0 = System.nanoTime();
+            for (long board : boards) {
+                sink += network.evaluate(board);
+            }
+            long t1 = System.nanoTime();
+            for (long board : boards) {
+                sink += network.bestMove(board);
+            }
+            long t2 = System.nanoTime();
+            evaluateNanos = Math.min(evaluateNanos, t1 - t0);
+            bestMoveNanos = Math.min(bestMoveNanos, t2 - t1);
+        }
+        System.out.printf("Mapped network: evaluate %.0f ns, bestMove %.2f us (checksum %.1f)%n",
+                (double) evaluateNanos / boards.length, bestMoveNanos / 1e3 / boards.length, sink);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.game_2048;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+// Times the full redraw ZenBoard makes of a new surface: every cell of a 16x16 and a 32x32
+// board blitted from one TileAtlas. lockCanvas hands the render thread a software canvas,
+// so a bitmap-backed canvas here does the same work. The numbers are logged under TAG.
+@RunWith(AndroidJUnit4.class)
+public class TileAtlasFrameTest {
+
+    private static final String TAG = "TileAtlasFrameTest";
+    // A 1080 px wide board, the common phone width
+    private static final int BOARD_PX = 1080;
+    private static final int WARMUP_FRAMES = 30;
+    private static final int FRAMES = 300;
+    private static final long BUDGET_NANOS = 16_666_667L;
+
+    @Test
+    public void fullRedraw16x16_staysUnderFrameBudget() {
+        checkFullRedraw(16);
+    }
+
+    @Test
+    public void fullRedraw32x32_staysUnderFrameBudget() {
+        checkFullRedraw(32);
+    }
+
+    private static void checkFullRedraw(int size) {
+        int cellSize = BOARD_PX / size;
+        TileAtlas atlas = new TileAtlas(cellSize, cellSize * 0.1f);
+        int inset = (cellSize - atlas.getTileSize()) / 2;
+        Bitmap target = Bitmap.createBitmap(BOARD_PX, BOARD_PX, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(target);
+        // Every glyph, up to the largest exponent a zen board holds
+        int[] exponents = new int[size * size];
+        for (int i = 0; i < exponents.length; i++) {
+            exponents[i] = i % (ByteGridEngine.EXPONENT_LIMIT + 1);
+        }
+
+        long[] frames = new long[FRAMES];
+        for (int frame = -WARMUP_FRAMES; frame < FRAMES; frame++) {
+            long started = System.nanoTime();
+            canvas.drawColor(0xFFBBADA0);
+            for (int row = 0; row < size; row++) {
+                int top = row * cellSize + inset;
+                for (int column = 0; column < size; column++) {
+                    atlas.draw(canvas, exponents[row * size + column], column * cellSize + inset,
+                            top);
+                }
+            }
+            if (frame >= 0) {
+                frames[frame] = System.nanoTime() - started;
+            }
+        }
+        atlas.recycle();
+        target.recycle();
+
+        Arrays.sort(frames);
+        long median = frames[FRAMES / 2];
+        long p99 = frames[FRAMES * 99 / 100];
+        long max = frames[FRAMES - 1];
+        Log.i(TAG, String.format(Locale.US, "%dx%d full redraw (%d cells): median=%.2f ms "
+                        + "p99=%.2f ms max=%.2f ms",
+                size, size, size * size, median / 1e6, p99 / 1e6, max / 1e6));
+        assertTrue(String.format(Locale.US, "p99 %.2f ms", p99 / 1e6), p99 < BUDGET_NANOS);
+    }
+}
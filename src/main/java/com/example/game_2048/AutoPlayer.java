@@ -0,0 +1,158 @@
+package com.example.game_2048;
+
+import android.os.Process;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Monte Carlo auto-play, as a demo and as a soak test of the game code. A driver thread
+// takes the model's latest snapshot, has a MonteCarloSearch pick the move on every core,
+// queues it on the logic thread and waits for it to be applied, at a set number of moves per
+// second or as fast as the search goes. Drawing keeps its own pace: while this runs the
+// model is frame paced, so the UI thread handles at most one snapshot a frame however many
+// moves it covers. Only plays the 4x4 bitboard game.
+final class AutoPlayer {
+
+    // Rates offered in the speed menu, in moves per second; 0 is uncapped
+    static final int[] RATES = {1, 4, 15, 60, 0};
+    static final int DEFAULT_RATE = 4;
+
+    // While the game is over, or a move waits for its turn, the driver checks this often for
+    // the next game or for being stopped
+    private static final long POLL_NANOS = 50_000_000L;
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private static final ThreadFactory BACKGROUND = new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "auto-play");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final GameModel model;
+    // One driver at a time: a restarted driver queues behind the one being stopped
+    private final ExecutorService driver = Executors.newSingleThreadExecutor(BACKGROUND);
+    // Driver thread only. Its helpers run at background priority as well, and leave the UI
+    // thread a core of its own.
+    private MonteCarloSearch search;
+    private volatile MonteCarloSearch published;
+    private volatile long generation;
+    private volatile boolean running;
+    private volatile long intervalNanos;
+    private volatile long moves;
+
+    AutoPlayer(GameModel model) {
+        this.model = model;
+        setRate(DEFAULT_RATE);
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    // Moves per second, or 0 for as fast as the search decides
+    void setRate(int movesPerSecond) {
+        intervalNanos = movesPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / movesPerSecond;
+    }
+
+    // Totals since creation, for rates shown on screen
+    long getRollouts() {
+        MonteCarloSearch current = published;
+        return current == null ? 0 : current.getRollouts();
+    }
+
+    long getMoves() {
+        return moves;
+    }
+
+    void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        final long started = ++generation;
+        model.setFramePaced(true);
+        driver.execute(new Runnable() {
+            @Override
+            public void run() {
+                play(started);
+            }
+        });
+    }
+
+    // Returns at once; the driver stops before its next move
+    void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        generation++;
+        model.setFramePaced(false);
+    }
+
+    // Stops for good and lets the rollout threads go
+    void shutdown() {
+        stop();
+        driver.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (search != null) {
+                    search.shutdown();
+                }
+            }
+        });
+        driver.shutdown();
+    }
+
+    private void play(long started) {
+        if (search == null) {
+            int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            search = new MonteCarloSearch(parallelism, MonteCarloSearch.DEFAULT_ROLLOUTS,
+                    System.nanoTime(), BACKGROUND);
+            published = search;
+        }
+
+        long nextMoveAt = System.nanoTime();
+        while (generation == started) {
+            GameModel.Snapshot snapshot = model.getSnapshot();
+            int direction = snapshot.gameOver ? -1 : search.chooseMove(snapshot.getBoard());
+            // The activity starts the next game
+            if (direction < 0) {
+                LockSupport.parkNanos(POLL_NANOS);
+                continue;
+            }
+            long wait;
+            while ((wait = nextMoveAt - System.nanoTime()) > 0 && generation == started) {
+                LockSupport.parkNanos(Math.min(wait, POLL_NANOS));
+            }
+            if (generation != started) {
+                break;
+            }
+            model.move(direction, 0, 0);
+            // The next decision needs the board this move leads to
+            try {
+                GameModel.LOGIC.submit(NOTHING).get();
+            } catch (InterruptedException | ExecutionException e) {
+                return;
+            }
+            moves++;
+            // A slow decision is caught up with by at most one move, not a burst
+            nextMoveAt = Math.max(nextMoveAt, System.nanoTime() - intervalNanos) + intervalNanos;
+        }
+    }
+}
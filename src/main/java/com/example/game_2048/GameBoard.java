@@ -1,28 +1,49 @@
 package com.example.game_2048;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.RectF;
+import android.os.Bundle;
+import android.os.Trace;
 import android.util.AttributeSet;
+import android.view.Display;
 import android.view.View;
 import androidx.annotation.Nullable;
-import java.util.ArrayList;
-import java.util.Random;
 
 public class GameBoard extends View {
 
+    // Declared in BoardEngine order so ordinal() can be handed to the engine
     public enum Direction { UP, DOWN, LEFT, RIGHT }
 
-    private static final int GRID_SIZE = 4;
-    private Tile[][] tiles;
-    private int score;
-    private int bestScore;
+    // The game lives in the model, on its own thread; the view draws its snapshots and
+    // forwards commands to it. Handed over by the activity with setModel() before the view
+    // is attached, so inflating the view reads neither prefs nor the saved game.
+    private GameModel model;
+    private int gridSize;
+    // The last snapshot delivered to this view. Frames draw it rather than the model's
+    // latest, so a frame never shows a move whose animation has not been queued yet.
+    private GameModel.Snapshot shown;
+    private GameModel.Listener snapshotListener;
+    private final GameModel.Listener snapshots = new GameModel.Listener() {
+        @Override
+        public void onSnapshot(GameModel.Snapshot snapshot) {
+            show(snapshot);
+        }
+    };
+    // Scratch copies of the boards of a move, so queueing its animation does not allocate
+    private long[] board;
+    private long[] previous;
     private final Paint gridPaint;
-    private final Paint textPaint;
-    private final Random random;
-    private SharedPreferences prefs;
+    private final TileBitmapCache tileCache = new TileBitmapCache();
+    // The board background with every cell empty, drawn once per size; frames draw the
+    // tiles over it, so an idle board costs one blit plus one per tile
+    private Bitmap backgroundLayer;
+    private TileAnimator animator;
+    private MetricsOverlay metricsOverlay;
+    private float[] cellOffsets;
+    private float cellSize;
+    private float padding;
 
     // Constructor for creating view programmatically
     public GameBoard(Context context) {
@@ -37,280 +58,303 @@ public class GameBoard extends View {
     // Constructor for XML inflation with style
     public GameBoard(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        Trace.beginSection("GameBoard.init");
 
         gridPaint = new Paint();
         gridPaint.setStyle(Paint.Style.FILL);
         gridPaint.setAntiAlias(true);
+        gridPaint.setColor(0xFFBBADA0);
+        Trace.endSection();
+    }
 
-        textPaint = new Paint();
-        textPaint.setStyle(Paint.Style.FILL);
-        textPaint.setTextAlign(Paint.Align.CENTER);
-        textPaint.setAntiAlias(true);
-
-        random = new Random();
-
-        prefs = context.getSharedPreferences("GameState", Context.MODE_PRIVATE);
-        bestScore = prefs.getInt("bestScore", 0);
-
-        initGame();
+    void setModel(GameModel model) {
+        this.model = model;
+        gridSize = model.getGridSize();
+        shown = model.getSnapshot();
+        GridEngine engine = GridEngine.forSize(gridSize);
+        board = new long[engine.words()];
+        previous = new long[engine.words()];
+        animator = new TileAnimator(this, engine);
+        cellOffsets = new float[gridSize];
     }
 
-    private void initGame() {
-        tiles = new Tile[GRID_SIZE][GRID_SIZE];
-        score = 0;
+    // False until the model has read the saved game; until then only the empty grid is drawn
+    boolean isLoaded() {
+        return shown.loaded;
+    }
 
-        // Add initial tiles
-        addRandomTile();
-        addRandomTile();
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
 
-        invalidate();
+        int size = Math.min(getMeasuredWidth(), getMeasuredHeight());
+        setMeasuredDimension(size, size);
     }
 
-    private void addRandomTile() {
-        ArrayList<int[]> emptyCells = new ArrayList<>();
-
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                if (tiles[i][j] == null) {
-                    emptyCells.add(new int[]{i, j});
-                }
-            }
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        // Cell geometry only changes with the view size, so it is computed here once
+        cellSize = w / gridSize;
+        padding = cellSize * 0.1f;
+        for (int i = 0; i < gridSize; i++) {
+            cellOffsets[i] = i * cellSize + padding;
         }
+        tileCache.resize(cellSize, padding);
+        dropBackgroundLayer();
+    }
 
-        if (!emptyCells.isEmpty()) {
-            int[] cell = emptyCells.get(random.nextInt(emptyCells.size()));
-            tiles[cell[0]][cell[1]] = new Tile(random.nextFloat() < 0.9 ? 2 : 4);
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // Snapshots published while detached are not animated; the latest is shown as it is
+        model.addListener(snapshots);
+        shown = model.getSnapshot();
+        invalidate();
+        Display display = getDisplay();
+        if (display != null && display.getRefreshRate() > 0) {
+            animator.setFrameBudgetNanos((long) (1_000_000_000L / display.getRefreshRate()));
         }
     }
 
     @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-
-        int size = Math.min(getMeasuredWidth(), getMeasuredHeight());
-        setMeasuredDimension(size, size);
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        model.removeListener(snapshots);
+        animator.cancel();
+        tileCache.clear();
+        dropBackgroundLayer();
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        PerfMetrics.drawStarted();
+        long drawStarted = PerfMetrics.start();
+
+        canvas.drawBitmap(backgroundLayer(), 0, 0, null);
+        if (animator.isRunning()) {
+            animator.draw(canvas, tileCache, cellOffsets);
+        } else if (shown.loaded) {
+            // Blit the cached glyph for each tile
+            GameModel.Snapshot snapshot = shown;
+            long tiles = ~snapshot.emptyMask() & cellMask();
+            while (tiles != 0) {
+                int i = Long.numberOfTrailingZeros(tiles);
+                tiles &= tiles - 1;
+                canvas.drawBitmap(tileCache.get(snapshot.exponentAt(i)),
+                        cellOffsets[i % gridSize], cellOffsets[i / gridSize], null);
+            }
+        }
+        PerfMetrics.stop(PerfMetrics.DRAW, drawStarted);
 
-        float cellSize = getWidth() / GRID_SIZE;
-        float padding = cellSize * 0.1f;
+        if (PerfMetrics.isEnabled()) {
+            if (metricsOverlay == null) {
+                metricsOverlay = new MetricsOverlay();
+            }
+            metricsOverlay.draw(canvas, getWidth());
+        }
+    }
 
-        // Draw background
-        gridPaint.setColor(0xFFBBADA0);
-        canvas.drawRoundRect(0, 0, getWidth(), getHeight(), padding, padding, gridPaint);
-
-        // Draw grid cells
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                RectF rect = new RectF(
-                        j * cellSize + padding,
-                        i * cellSize + padding,
-                        (j + 1) * cellSize - padding,
-                        (i + 1) * cellSize - padding
-                );
-
-                if (tiles[i][j] != null) {
-                    // Draw tile
-                    gridPaint.setColor(getTileColor(tiles[i][j].getValue()));
-                    canvas.drawRoundRect(rect, padding, padding, gridPaint);
-
-                    // Draw number
-                    String value = String.valueOf(tiles[i][j].getValue());
-                    textPaint.setColor(tiles[i][j].getValue() <= 4 ? 0xFF776E65 : 0xFFF9F6F2);
-                    textPaint.setTextSize(cellSize * (value.length() <= 2 ? 0.4f : 0.3f));
-                    canvas.drawText(value,
-                            rect.centerX(),
-                            rect.centerY() - ((textPaint.descent() + textPaint.ascent()) / 2),
-                            textPaint
-                    );
-                } else {
-                    // Draw empty cell
-                    gridPaint.setColor(0xFFCDC1B4);
-                    canvas.drawRoundRect(rect, padding, padding, gridPaint);
+    private Bitmap backgroundLayer() {
+        if (backgroundLayer == null) {
+            backgroundLayer = Bitmap.createBitmap(Math.max(1, getWidth()), Math.max(1, getHeight()),
+                    Bitmap.Config.ARGB_8888);
+            Canvas layer = new Canvas(backgroundLayer);
+            layer.drawRoundRect(0, 0, getWidth(), getHeight(), padding, padding, gridPaint);
+            Bitmap empty = tileCache.get(0);
+            for (int i = 0; i < gridSize; i++) {
+                for (int j = 0; j < gridSize; j++) {
+                    layer.drawBitmap(empty, cellOffsets[j], cellOffsets[i], null);
                 }
             }
         }
+        return backgroundLayer;
     }
 
-    private int getTileColor(int value) {
-        switch (value) {
-            case 2: return 0xFFEEE4DA;
-            case 4: return 0xFFEDE0C8;
-            case 8: return 0xFFF2B179;
-            case 16: return 0xFFF59563;
-            case 32: return 0xFFF67C5F;
-            case 64: return 0xFFF65E3B;
-            case 128: return 0xFFEDCF72;
-            case 256: return 0xFFEDCC61;
-            case 512: return 0xFFEDC850;
-            case 1024: return 0xFFEDC53F;
-            case 2048: return 0xFFEDC22E;
-            default: return 0xFFCDC1B4;
+    private void dropBackgroundLayer() {
+        if (backgroundLayer != null) {
+            backgroundLayer.recycle();
+            backgroundLayer = null;
         }
     }
 
-    public void move(Direction direction) {
-        boolean moved = false;
-        boolean[][] merged = new boolean[GRID_SIZE][GRID_SIZE];
-
-        switch (direction) {
-            case UP:
-                for (int j = 0; j < GRID_SIZE; j++) {
-                    for (int i = 1; i < GRID_SIZE; i++) {
-                        if (tiles[i][j] != null) {
-                            moved |= moveTile(i, j, -1, 0, merged);
-                        }
-                    }
-                }
-                break;
-
-            case DOWN:
-                for (int j = 0; j < GRID_SIZE; j++) {
-                    for (int i = GRID_SIZE - 2; i >= 0; i--) {
-                        if (tiles[i][j] != null) {
-                            moved |= moveTile(i, j, 1, 0, merged);
-                        }
-                    }
-                }
-                break;
-
-            case LEFT:
-                for (int i = 0; i < GRID_SIZE; i++) {
-                    for (int j = 1; j < GRID_SIZE; j++) {
-                        if (tiles[i][j] != null) {
-                            moved |= moveTile(i, j, 0, -1, merged);
-                        }
-                    }
-                }
-                break;
-
-            case RIGHT:
-                for (int i = 0; i < GRID_SIZE; i++) {
-                    for (int j = GRID_SIZE - 2; j >= 0; j--) {
-                        if (tiles[i][j] != null) {
-                            moved |= moveTile(i, j, 0, 1, merged);
-                        }
-                    }
-                }
-                break;
+    private long cellMask() {
+        int cells = gridSize * gridSize;
+        return cells == 64 ? -1L : (1L << cells) - 1;
+    }
+
+    // Invalidates only the rows and columns spanned by the given cells. Each cell's square
+    // includes its padding, which leaves room for the merge pop. With hardware rendering
+    // the whole board is still re-recorded, but that is one blit plus the tiles; software
+    // rendering clips to the rectangle. The metrics overlay spans the board, so while it is
+    // shown everything is redrawn.
+    void invalidateCells(long mask) {
+        if (mask == 0) {
+            return;
+        }
+        if (PerfMetrics.isEnabled()) {
+            invalidate();
+            return;
         }
+        int minRow = gridSize;
+        int maxRow = -1;
+        int minColumn = gridSize;
+        int maxColumn = -1;
+        while (mask != 0) {
+            int i = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            int row = i / gridSize;
+            int column = i % gridSize;
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minColumn = Math.min(minColumn, column);
+            maxColumn = Math.max(maxColumn, column);
+        }
+        invalidate((int) (minColumn * cellSize), (int) (minRow * cellSize),
+                (int) Math.ceil((maxColumn + 1) * cellSize), (int) Math.ceil((maxRow + 1) * cellSize));
+    }
 
-        if (moved) {
-            addRandomTile();
-            if (score > bestScore) {
-                bestScore = score;
-                prefs.edit().putInt("bestScore", bestScore).apply();
-            }
+    // A snapshot from the model, on the main thread. The next move in line is animated;
+    // anything else (undo, restart, a snapshot missed while detached) is shown at once.
+    private void show(GameModel.Snapshot snapshot) {
+        // Already past it: attaching to the window jumps to the latest snapshot
+        if (snapshot.version < shown.version) {
+            return;
+        }
+        PerfMetrics.stop(PerfMetrics.LOGIC, snapshot.inputNanos);
+        if (snapshot.isMove() && snapshot.version == shown.version + 1) {
+            PerfMetrics.record(PerfMetrics.MOVE, snapshot.moveNanos);
+            snapshot.copyBefore(previous);
+            snapshot.copyCells(board);
+            animator.enqueue(previous, snapshot.diff, board);
+            invalidateCells(snapshot.diff.getChangedMask());
+            PerfMetrics.inputPending(snapshot.inputNanos, snapshot.touchNanos);
+        } else {
+            animator.cancel();
             invalidate();
         }
+        shown = snapshot;
+        if (snapshotListener != null) {
+            snapshotListener.onSnapshot(snapshot);
+        }
     }
 
-    private boolean moveTile(int row, int col, int rowDelta, int colDelta, boolean[][] merged) {
-        boolean moved = false;
-        int newRow = row;
-        int newCol = col;
+    // Told of every snapshot after the board has handled it
+    void setSnapshotListener(GameModel.Listener listener) {
+        snapshotListener = listener;
+    }
 
-        while (true) {
-            int nextRow = newRow + rowDelta;
-            int nextCol = newCol + colDelta;
+    // The model's latest snapshot, which may be ahead of the one on screen
+    GameModel.Snapshot getSnapshot() {
+        return model.getSnapshot();
+    }
 
-            if (nextRow < 0 || nextRow >= GRID_SIZE ||
-                    nextCol < 0 || nextCol >= GRID_SIZE) {
-                break;
-            }
+    // Queues the move; the animation and the listener follow when the model publishes it.
+    // The times are a PerfMetrics.start() and the touch sample's time, or 0.
+    public void move(Direction direction, long inputNanos, long touchNanos) {
+        model.move(direction.ordinal(), inputNanos, touchNanos);
+    }
 
-            if (tiles[nextRow][nextCol] == null) {
-                tiles[nextRow][nextCol] = tiles[newRow][newCol];
-                tiles[newRow][newCol] = null;
-                newRow = nextRow;
-                newCol = nextCol;
-                moved = true;
-            } else if (!merged[nextRow][nextCol] &&
-                    tiles[nextRow][nextCol].getValue() == tiles[newRow][newCol].getValue()) {
-                int mergedValue = tiles[newRow][newCol].getValue() * 2;
-                tiles[nextRow][nextCol].setValue(mergedValue);
-                tiles[newRow][newCol] = null;
-                merged[nextRow][nextCol] = true;
-                score += mergedValue;
-                moved = true;
-                break;
-            } else {
-                break;
-            }
-        }
+    public void move(Direction direction) {
+        move(direction, 0, 0);
+    }
 
-        return moved;
+    public void undo() {
+        model.undo();
     }
 
-    public boolean isGameOver() {
-        // Check for empty cells
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                if (tiles[i][j] == null) {
-                    return false;
-                }
-            }
-        }
+    public void redo() {
+        model.redo();
+    }
 
-        // Check for possible merges
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                int value = tiles[i][j].getValue();
+    public boolean canUndo() {
+        return getSnapshot().canUndo;
+    }
 
-                // Check right neighbor
-                if (j < GRID_SIZE - 1 && tiles[i][j + 1].getValue() == value) {
-                    return false;
-                }
+    public boolean canRedo() {
+        return getSnapshot().canRedo;
+    }
 
-                // Check bottom neighbor
-                if (i < GRID_SIZE - 1 && tiles[i + 1][j].getValue() == value) {
-                    return false;
-                }
-            }
-        }
+    public void saveInstanceState(Bundle outState) {
+        model.saveInstanceState(outState);
+    }
+
+    public void restoreInstanceState(Bundle savedState) {
+        model.restoreInstanceState(savedState);
+    }
 
-        return true;
+    public boolean isGameOver() {
+        return getSnapshot().gameOver;
     }
 
     public boolean hasWon() {
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                if (tiles[i][j] != null && tiles[i][j].getValue() == 2048) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return getSnapshot().won;
+    }
+
+    public int getWinTile() {
+        return getSnapshot().winTile;
+    }
+
+    public void setWinTile(int value) {
+        model.setWinTile(value);
     }
 
     public void restart() {
-        initGame();
+        model.restart();
     }
 
-    public int getScore() {
-        return score;
+    // For auto-play, whose games are not recorded
+    public void restart(boolean recorded) {
+        model.restart(recorded);
     }
 
-    public int getBestScore() {
-        return bestScore;
+    public void saveState() {
+        model.saveState();
     }
 
-    private static class Tile {
-        private int value;
+    public void claimScore() {
+        model.claimScore();
+    }
 
-        Tile(int value) {
-            this.value = value;
-        }
+    // The current game as a statistics record, for when it has ended
+    public GameStatsStore.Record toStatsRecord() {
+        return getSnapshot().toStatsRecord(System.currentTimeMillis());
+    }
 
-        int getValue() {
-            return value;
-        }
+    // What the moves did, for effects that react to merges and new tiles
+    GameEventBus getEvents() {
+        return model.getEvents();
+    }
 
-        void setValue(int value) {
-            this.value = value;
-        }
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    // Packed BoardEngine representation of the current grid; only meaningful for 4x4
+    public long getBoard() {
+        return getSnapshot().getBoard();
+    }
+
+    // Frame-time and queue-depth counters of the tile animation
+    TileAnimator getAnimator() {
+        return animator;
+    }
+
+    public int getScore() {
+        return getSnapshot().score;
+    }
+
+    public int getMaxTile() {
+        return getSnapshot().maxTile;
+    }
+
+    public int getMoveCount() {
+        return getSnapshot().moveCount;
+    }
+
+    public int getBestScore() {
+        return getSnapshot().bestScore;
     }
-}
\ No newline at end of file
+}
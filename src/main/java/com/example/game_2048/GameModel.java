@@ -0,0 +1,659 @@
+package com.example.game_2048;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// The game behind a GameBoard, run on its own thread. There is one model per grid size for
+// the life of the process, so a recreated activity picks up the game and its undo history
+// where the old one left off, without reading anything back.
+//
+// Commands (moves, undo, restart and so on) are queued to the single logic thread in call
+// order and return at once; the game, its history, the replay and the saved state are only
+// touched there. Every change is published as an immutable Snapshot: renderers read the
+// latest one through an AtomicReference, and listeners get each one in order on the main
+// thread. Anything slow that needs the game can go on LOGIC as well, where it delays the
+// next move but never a frame. A driver that moves faster than frames (auto-play) turns on
+// frame pacing, and listeners then get only the latest snapshot, once a frame. A renderer
+// with a thread of its own (ZenBoard) is woken by the publish callback instead.
+//
+// What each move did also goes out as GameEventBus events, published on the logic thread
+// before the move's snapshot, for effects such as sound that read them at their own pace.
+// Whether the game is over or won is state, and is read from the snapshot.
+//
+// The zen sizes above 8x8 have no cell masks, so their moves come without a MoveDiff.
+final class GameModel {
+
+    static final ExecutorService LOGIC = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "game-logic");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private static final String STATE_FILE = "game_state.bin";
+    private static final String REPLAY_DIR = "replays";
+    // Replays kept besides the claimed ones and the games in progress
+    private static final int KEPT_REPLAYS = 100;
+    // Undo history handed to onSaveInstanceState is kept to about 100 KB
+    private static final int MAX_SAVED_HISTORY = 8192;
+    private static final int MAX_SAVED_HISTORY_BYTES = 100 * 1024;
+    // A zen board is up to 1 KB a move, so its undo history is capped by size instead
+    private static final int MAX_WIDE_HISTORY_BYTES = 16 << 20;
+    // Room for a couple of moves with every tile of a 32x32 board merging
+    private static final int EVENT_CAPACITY = GameEventBus.MAX_CAPACITY;
+    // Time spent on the current game, for the statistics. Each gap between moves counts for
+    // at most MAX_MOVE_GAP_MS, so time away from the game is not charged to it.
+    private static final long MAX_MOVE_GAP_MS = 30_000;
+
+    private static final GameModel[] MODELS = new GameModel[GridEngine.MAX_WIDE_SIZE + 1];
+    // Saved games read ahead by preload(), by size, for the models of those sizes to pick up
+    private static final Map<Integer, Future<GameStateStore.Snapshot>> PRELOADED = new HashMap<>();
+
+    // Called on the main thread with every snapshot, in the order they were published
+    interface Listener {
+        void onSnapshot(Snapshot snapshot);
+    }
+
+    // The game at one point in time. Never changed once published; the arrays are only
+    // handed out as copies.
+    static final class Snapshot {
+        // Counts the snapshots of a model, so a listener can tell if it missed one
+        final long version;
+        // The seed of the game's replay, which tells one game from the next
+        final long gameId;
+        // False for the placeholder a model publishes while it reads the saved game; the
+        // board is not the player's and is not drawn
+        final boolean loaded;
+        final GridEngine engine;
+        private final long[] cells;
+        final int score;
+        final int bestScore;
+        final int moveCount;
+        final int maxTile;
+        final int winTile;
+        final boolean gameOver;
+        final boolean won;
+        final boolean canUndo;
+        final boolean canRedo;
+        final int playMillis;
+        // Set when the snapshot is the result of a move: the board before it, what changed,
+        // the time the logic thread spent on it, and the caller's timestamps for PerfMetrics
+        private final long[] before;
+        final MoveDiff diff;
+        final long moveNanos;
+        final long inputNanos;
+        final long touchNanos;
+
+        private Snapshot(long version, long gameId, boolean loaded, Game game, int bestScore, boolean canUndo, boolean canRedo,
+                         int playMillis, long[] before, MoveDiff diff, long moveNanos,
+                         long inputNanos, long touchNanos) {
+            this.version = version;
+            this.gameId = gameId;
+            this.loaded = loaded;
+            engine = game.getEngine();
+            cells = new long[engine.words()];
+            game.copyBoard(cells);
+            score = game.getScore();
+            this.bestScore = bestScore;
+            moveCount = game.getMoveCount();
+            maxTile = game.getMaxTile();
+            winTile = game.getWinTile();
+            gameOver = game.isGameOver();
+            won = game.hasWon();
+            this.canUndo = canUndo;
+            this.canRedo = canRedo;
+            this.playMillis = playMillis;
+            this.before = before;
+            this.diff = diff;
+            this.moveNanos = moveNanos;
+            this.inputNanos = inputNanos;
+            this.touchNanos = touchNanos;
+        }
+
+        boolean isMove() {
+            return diff != null;
+        }
+
+        int exponentAt(int index) {
+            return engine.exponentAt(cells, index);
+        }
+
+        long emptyMask() {
+            return engine.emptyMask(cells);
+        }
+
+        // Packed BoardEngine representation; only meaningful for 4x4
+        long getBoard() {
+            return cells[0];
+        }
+
+        void copyCells(long[] into) {
+            System.arraycopy(cells, 0, into, 0, cells.length);
+        }
+
+        void copyBefore(long[] into) {
+            System.arraycopy(before, 0, into, 0, before.length);
+        }
+
+        // The game as a statistics record, for when it has ended
+        GameStatsStore.Record toStatsRecord(long endedAt) {
+            return GameStatsStore.Record.of(engine, cells, score, moveCount, playMillis, endedAt);
+        }
+    }
+
+    private final int gridSize;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    // Published to on the logic thread only
+    private final GameEventBus events = new GameEventBus(EVENT_CAPACITY);
+    // Main thread only
+    private final List<Listener> listeners = new ArrayList<>();
+    private volatile boolean framePaced;
+    private volatile Runnable publishedCallback;
+    // A paced delivery is on its way to the main thread
+    private final AtomicBoolean deliveryPending = new AtomicBoolean();
+    private final Choreographer.FrameCallback pacedDelivery = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // Cleared first: a snapshot published from here on gets a delivery of its own
+            deliveryPending.set(false);
+            deliver(snapshot.get());
+        }
+    };
+    private final Runnable schedulePacedDelivery = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(pacedDelivery);
+        }
+    };
+
+    // Logic thread only, once the constructor has returned
+    private final GameRandom seeds = new GameRandom();
+    private final GameRandom random = new GameRandom();
+    private final Game game;
+    private final long[] board;
+    private final long[] previous;
+    // Null for the zen sizes
+    private final MoveDiff diff;
+    private final MoveHistory history;
+    private final int savedHistory;
+    private final Context context;
+    // Set up by load(), the first task the model queues, so nothing before it touches disk
+    private GameStateStore stateStore;
+    private SharedPreferences prefs;
+    private File replayDir;
+    private ReplayRecorder recorder;
+    private boolean loaded;
+    private int bestScore;
+    private long playMillis;
+    private long lastMoveAt;
+    private long version;
+    // Nothing has changed since the model was created, so a saved instance state may replace it
+    private boolean fresh = true;
+
+    // The model for the size. Called on the main thread, and never waits for the disk: the
+    // first snapshot of a new model is a placeholder (Snapshot.loaded false), and the saved
+    // game follows once the logic thread has read it, or taken it from preload().
+    static synchronized GameModel get(Context context, int size) {
+        GameModel model = MODELS[size];
+        if (model == null) {
+            model = new GameModel(context.getApplicationContext(), size);
+            MODELS[size] = model;
+        }
+        return model;
+    }
+
+    // Reads the saved game of the given size in the background, so the board has it by the
+    // time it is shown. Sizes that already have a model are skipped: once a model has saved
+    // a game, a read ahead could race its write.
+    static synchronized void preload(Context context, int size) {
+        if (MODELS[size] != null || PRELOADED.containsKey(size)) {
+            return;
+        }
+        final File file = new File(context.getFilesDir(), stateFile(size));
+        PRELOADED.put(size, StartupScheduler.submit("GameModel.preload",
+                new Callable<GameStateStore.Snapshot>() {
+                    @Override
+                    public GameStateStore.Snapshot call() {
+                        return new GameStateStore(file).load();
+                    }
+                }));
+    }
+
+    // The preloaded snapshot, waiting for it if it is still being read, or null if there is
+    // none for this size. Called on the logic thread, without the lock held while it waits.
+    private static GameStateStore.Snapshot takePreloaded(int size) {
+        Future<GameStateStore.Snapshot> pending;
+        synchronized (GameModel.class) {
+            pending = PRELOADED.remove(size);
+        }
+        if (pending == null) {
+            return null;
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return null;
+        }
+    }
+
+    private GameModel(Context context, int size) {
+        gridSize = size;
+        this.context = context;
+        final long seed = seeds.nextLong();
+        random.setSeed(seed);
+        game = new Game(random, size);
+        GridEngine engine = game.getEngine();
+        board = new long[engine.words()];
+        previous = new long[engine.words()];
+        if (engine.hasCellMasks()) {
+            diff = new MoveDiff(engine.getCells());
+            history = new MoveHistory(engine.words(), MoveHistory.DEFAULT_MAX_STATES);
+            savedHistory = MAX_SAVED_HISTORY;
+        } else {
+            diff = null;
+            history = new MoveHistory(engine.words(), MAX_WIDE_HISTORY_BYTES / (8 * engine.words()));
+            savedHistory = Math.max(2, MAX_SAVED_HISTORY_BYTES / (8 * engine.words() + 4));
+        }
+
+        publish(null, null, 0, 0, 0);
+        LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                load(seed);
+            }
+        });
+    }
+
+    // Resumes the game in progress, or keeps the new one dealt from the seed; older installs
+    // only kept the 4x4 best score in prefs. Commands queued meanwhile run after this.
+    private void load(long seed) {
+        prefs = context.getSharedPreferences("GameState", Context.MODE_PRIVATE);
+        stateStore = new GameStateStore(new File(context.getFilesDir(), stateFile(gridSize)));
+        GameStateStore.Snapshot saved = takePreloaded(gridSize);
+        if (saved == null) {
+            saved = stateStore.load();
+        }
+        if (saved != null && saved.size == gridSize) {
+            random.setState(saved.randomState);
+            game.restore(saved.cells, saved.score, saved.moveCount);
+            game.setWinTile(saved.winTile);
+            bestScore = saved.bestScore;
+            seed = seedOf(saved.randomState, saved.moveCount);
+            playMillis = prefs.getLong(playTimeKey(gridSize), 0);
+        } else if (gridSize == BoardEngine.SIZE) {
+            bestScore = prefs.getInt("bestScore", 0);
+        }
+        game.copyBoard(board);
+        history.reset(board);
+        replayDir = new File(context.getFilesDir(), REPLAY_DIR);
+        recorder = newRecorder(seed, game.getMoveCount(), true);
+        loaded = true;
+        publish(null, null, 0, 0, 0);
+    }
+
+    // 4x4 keeps the file name it had before other sizes existed
+    private static String stateFile(int size) {
+        return size == BoardEngine.SIZE ? STATE_FILE : "game_state-" + size + "x" + size + ".bin";
+    }
+
+    private static String playTimeKey(int size) {
+        return "playMillis-" + size;
+    }
+
+    // Two draws for the opening tiles and one per move that is still on the board (undo
+    // rewinds its draw), so the seed can be recovered from the current RNG state
+    private static long seedOf(long randomState, int moveCount) {
+        GameRandom probe = new GameRandom(randomState);
+        probe.skip(-(moveCount + 2));
+        return probe.getState();
+    }
+
+    private File replayFile(long seed) {
+        return new File(replayDir, Long.toHexString(seed) + ReplayRecorder.SUFFIX);
+    }
+
+    // Names each size's game in progress in prefs, for prune() to leave alone. A game
+    // that is not recorded gets a recorder without a file.
+    private ReplayRecorder newRecorder(long seed, int movesSoFar, boolean recorded) {
+        if (!recorded) {
+            prefs.edit().remove(replayKey(gridSize)).apply();
+            return new ReplayRecorder(null, gridSize, seed, movesSoFar);
+        }
+        prefs.edit().putString(replayKey(gridSize), replayFile(seed).getName()).apply();
+        return new ReplayRecorder(replayFile(seed), gridSize, seed, movesSoFar);
+    }
+
+    private static String replayKey(int size) {
+        return "replay-" + size;
+    }
+
+    // A replay is added with every game, so older ones go once the next game starts
+    private void pruneReplays() {
+        List<String> inProgress = new ArrayList<>();
+        for (int size = GridEngine.MIN_SIZE; size <= GridEngine.MAX_WIDE_SIZE; size++) {
+            String name = prefs.getString(replayKey(size), null);
+            if (name != null) {
+                inProgress.add(name);
+            }
+        }
+        ReplayRecorder.prune(replayDir, KEPT_REPLAYS, inProgress);
+    }
+
+    int getGridSize() {
+        return gridSize;
+    }
+
+    // The latest snapshot, from any thread
+    Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    // Consumers are made from any thread; their wakers run on the logic thread
+    GameEventBus getEvents() {
+        return events;
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // While on, snapshots published between two frames reach the listeners as one. Snapshots
+    // already on their way are still delivered; listeners skip the ones a newer one replaced.
+    void setFramePaced(boolean paced) {
+        framePaced = paced;
+    }
+
+    // Run on the logic thread after every publish, for a renderer that draws the latest
+    // snapshot on a thread of its own. One callback at a time; null removes it.
+    void setPublishedCallback(Runnable callback) {
+        publishedCallback = callback;
+    }
+
+    private void publish(long[] before, MoveDiff moveDiff, long moveNanos, long inputNanos,
+                         long touchNanos) {
+        final Snapshot published = new Snapshot(++version, loaded ? recorder.getSeed() : 0,
+                loaded, game, bestScore, history.canUndo(), history.canRedo(),
+                (int) Math.min(Integer.MAX_VALUE, playMillis), before, moveDiff, moveNanos,
+                inputNanos, touchNanos);
+        snapshot.set(published);
+        Runnable callback = publishedCallback;
+        if (callback != null) {
+            callback.run();
+        }
+        if (framePaced) {
+            if (deliveryPending.compareAndSet(false, true)) {
+                MAIN.post(schedulePacedDelivery);
+            }
+            return;
+        }
+        MAIN.post(new Runnable() {
+            @Override
+            public void run() {
+                deliver(published);
+            }
+        });
+    }
+
+    private void deliver(Snapshot published) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onSnapshot(published);
+        }
+    }
+
+    // The input and touch times are only carried through to the snapshot, for PerfMetrics
+    void move(final int direction, final long inputNanos, final long touchNanos) {
+        LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                long started = System.nanoTime();
+                game.copyBoard(previous);
+                int scoreBefore = game.getScore();
+                int maxTileBefore = game.getMaxTile();
+                if (diff == null ? !game.move(direction) : !game.move(direction, diff)) {
+                    return;
+                }
+                publishEvents(scoreBefore, maxTileBefore);
+                fresh = false;
+                game.copyBoard(board);
+                history.push(board, game.getScore() - scoreBefore);
+                recorder.move(direction);
+                long now = SystemClock.uptimeMillis();
+                if (lastMoveAt != 0) {
+                    playMillis += Math.min(now - lastMoveAt, MAX_MOVE_GAP_MS);
+                }
+                lastMoveAt = now;
+                bestScore = Math.max(bestScore, game.getScore());
+                recordState();
+                if (diff == null) {
+                    publish(null, null, System.nanoTime() - started, inputNanos, touchNanos);
+                    return;
+                }
+                // The snapshot keeps its own copies; the scratch buffers are reused
+                MoveDiff published = new MoveDiff(game.getEngine().getCells());
+                published.copyFrom(diff);
+                publish(previous.clone(), published, System.nanoTime() - started, inputNanos,
+                        touchNanos);
+            }
+        });
+    }
+
+    // Merges and the spawn come from the MoveDiff, so the zen sizes only get the rest
+    private void publishEvents(int scoreBefore, int maxTileBefore) {
+        if (diff != null) {
+            for (long merges = diff.getMergeMask(); merges != 0; merges &= merges - 1) {
+                int cell = Long.numberOfTrailingZeros(merges);
+                events.publish(GameEventBus.TILE_MERGED, cell, 1 << game.exponentAt(cell));
+            }
+            int spawn = diff.getSpawnIndex();
+            if (spawn >= 0) {
+                events.publish(GameEventBus.SPAWN, spawn, 1 << game.exponentAt(spawn));
+            }
+        }
+        if (game.getScore() > scoreBefore) {
+            events.publish(GameEventBus.SCORE, GameEventBus.NO_CELL, game.getScore() - scoreBefore);
+        }
+        if (game.getMaxTile() > maxTileBefore) {
+            events.publish(GameEventBus.MAX_TILE, GameEventBus.NO_CELL, game.getMaxTile());
+        }
+        if (game.isGameOver()) {
+            events.publish(GameEventBus.GAME_OVER, GameEventBus.NO_CELL, game.getScore());
+        }
+        events.flush();
+    }
+
+    // Every move takes exactly one draw from the RNG, so stepping through the history
+    // rewinds or replays it by one draw and a move made after an undo spawns the same tile
+    void undo() {
+        LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!history.canUndo()) {
+                    return;
+                }
+                int delta = history.undo();
+                random.skip(-1);
+                recorder.undo();
+                jumpTo(game.getScore() - delta, game.getMoveCount() - 1);
+            }
+        });
+    }
+
+    void redo() {
+        LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!history.canRedo()) {
+                    return;
+                }
+                int delta = history.redo();
+                random.skip(1);
+                recorder.redo();
+                jumpTo(game.getScore() + delta, game.getMoveCount() + 1);
+            }
+        });
+    }
+
+    private void jumpTo(int score, int moveCount) {
+        fresh = false;
+        history.getBoard(board);
+        game.restore(board, score, moveCount);
+        recordState();
+        publish(null, null, 0, 0, 0);
+    }
+
+    void setWinTile(final int value) {
+        LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                game.setWinTile(value);
+                recordState();
+                publish(null, null, 0, 0, 0);
+            }
+        });
+    }
+
+    void restart() {
+        restart(true);
+    }
+
+    // Games auto-play starts are not recorded: it plays them by the thousand, and none of
+    // them goes to the leaderboard to be checked against its replay
+    void restart(final boolean recorded) {
+        LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                fresh = false;
+                recorder.flush();
+                long seed = seeds.nextLong();
+                random.setSeed(seed);
+                game.restart();
+                game.copyBoard(board);
+                history.reset(board);
+                recorder = newRecorder(seed, 0, recorded);
+                pruneReplays();
+                playMillis = 0;
+                lastMoveAt = 0;
+                recordState();
+                publish(null, null, 0, 0, 0);
+            }
+        });
+    }
+
+    // Moves only update the store's in-memory copy; nothing touches the disk until this is
+    // called from onPause, and then the write happens off the logic thread too
+    void saveState() {
+        LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                stateStore.flush();
+                recorder.flush();
+                prefs.edit().putLong(playTimeKey(gridSize), playMillis).apply();
+            }
+        });
+    }
+
+    // Marks the current score in the replay, so a leaderboard entry can be checked against it
+    void claimScore() {
+        LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                recorder.claim(game.getScore(), game.getMoveCount());
+            }
+        });
+    }
+
+    private void recordState() {
+        // The store hands the snapshot to its writer thread, so it gets its own copy
+        long[] cells = new long[board.length];
+        game.copyBoard(cells);
+        stateStore.update(new GameStateStore.Snapshot(gridSize, cells, game.getScore(),
+                game.getMoveCount(), bestScore, game.getWinTile(), random.getState()));
+    }
+
+    // The history and the game are saved together so they always agree. This waits for the
+    // logic thread, which is fine when the activity is being stopped but not in a frame.
+    void saveInstanceState(final Bundle outState) {
+        Future<?> saved = LOGIC.submit(new Runnable() {
+            @Override
+            public void run() {
+                outState.putInt("gridSize", gridSize);
+                outState.putLongArray("historyBoards", history.exportBoards(savedHistory));
+                outState.putIntArray("historyScores", history.exportScoreDeltas(savedHistory));
+                outState.putInt("historyCursor", history.exportCursor(savedHistory));
+                outState.putInt("gameScore", game.getScore());
+                outState.putInt("gameMoves", game.getMoveCount());
+                outState.putLong("randomState", random.getState());
+                outState.putLong("replaySeed", recorder.getSeed());
+                outState.putByteArray("replayState", recorder.saveState());
+            }
+        });
+        try {
+            saved.get();
+        } catch (InterruptedException | ExecutionException e) {
+            // Nothing is saved; the state file still has the game
+        }
+    }
+
+    // Only used by a model that has not changed since it was created: after the process was
+    // killed, the saved instance state has the undo history the state file lacks. A model
+    // that outlived its activity already has everything.
+    void restoreInstanceState(Bundle savedState) {
+        final long[] boards = savedState.getLongArray("historyBoards");
+        final int[] scores = savedState.getIntArray("historyScores");
+        if (boards == null || scores == null
+                || savedState.getInt("gridSize", BoardEngine.SIZE) != gridSize) {
+            return;
+        }
+        final int cursor = savedState.getInt("historyCursor");
+        final long randomState = savedState.getLong("randomState");
+        final byte[] replayState = savedState.getByteArray("replayState");
+        final long replaySeed = savedState.getLong("replaySeed");
+        final int score = savedState.getInt("gameScore");
+        final int moves = savedState.getInt("gameMoves");
+        LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!fresh) {
+                    return;
+                }
+                history.restore(boards, scores, cursor);
+                random.setState(randomState);
+                if (replayState != null) {
+                    recorder = ReplayRecorder.restore(replayFile(replaySeed), gridSize,
+                            replaySeed, replayState);
+                    prefs.edit().putString(replayKey(gridSize),
+                            replayFile(replaySeed).getName()).apply();
+                }
+                history.getBoard(board);
+                game.restore(board, score, moves);
+                bestScore = Math.max(bestScore, game.getScore());
+                publish(null, null, 0, 0, 0);
+            }
+        });
+    }
+}
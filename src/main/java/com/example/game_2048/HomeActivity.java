@@ -1,26 +1,92 @@
 package com.example.game_2048;
 
+import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
+import android.widget.RadioGroup;
 import androidx.appcompat.app.AppCompatActivity;
 
 public class HomeActivity extends AppCompatActivity {
 
+    // Grid size of each button, GridEngine.MIN_SIZE first
+    private static final int[] SIZE_BUTTONS = {
+            R.id.size3, R.id.size4, R.id.size5, R.id.size6, R.id.size7, R.id.size8
+    };
+
+    // The sizes the buttons start, handed to the game in the intent so it reads no prefs
+    // on the UI thread; the saved ones once the background read is done
+    private int gridSize = BoardEngine.SIZE;
+    private int zenSize = ZenBoard.SIZES[0];
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_home);
 
         Button playButton = findViewById(R.id.playButton);
+        Button zenButton = findViewById(R.id.zenButton);
         Button leaderboardButton = findViewById(R.id.leaderboardButton);
+        Button statisticsButton = findViewById(R.id.statisticsButton);
         Button howToPlayButton = findViewById(R.id.howToPlayButton);
+        final RadioGroup sizeGroup = findViewById(R.id.gridSizeGroup);
+
+        // The leaderboard reads the size from prefs. The first read of a prefs file loads it
+        // from disk, so it happens in the background; checking the saved size then reads
+        // ahead the saved game the Play button is about to show.
+        final Context app = getApplicationContext();
+        StartupScheduler.submit("HomeActivity.loadPrefs", new Runnable() {
+            @Override
+            public void run() {
+                SharedPreferences prefs = app.getSharedPreferences("GameState", MODE_PRIVATE);
+                final int size = prefs.getInt("gridSize", BoardEngine.SIZE);
+                final int savedZenSize = prefs.getInt("zenSize", ZenBoard.SIZES[0]);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        zenSize = savedZenSize;
+                        // Unless the player already picked one
+                        if (sizeGroup.getCheckedRadioButtonId() == -1
+                                && size >= GridEngine.MIN_SIZE && size <= GridEngine.MAX_SIZE) {
+                            sizeGroup.check(SIZE_BUTTONS[size - GridEngine.MIN_SIZE]);
+                        }
+                    }
+                });
+            }
+        });
+        // Every size picked is read ahead, not only the one saved last time
+        sizeGroup.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(RadioGroup group, int checkedId) {
+                for (int i = 0; i < SIZE_BUTTONS.length; i++) {
+                    if (SIZE_BUTTONS[i] == checkedId) {
+                        gridSize = GridEngine.MIN_SIZE + i;
+                        app.getSharedPreferences("GameState", MODE_PRIVATE).edit()
+                                .putInt("gridSize", gridSize).apply();
+                        GameModel.preload(app, gridSize);
+                    }
+                }
+            }
+        });
 
         playButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
+                StartupScheduler.markLaunch();
                 Intent intent = new Intent(HomeActivity.this, MainActivity.class);
+                intent.putExtra(MainActivity.EXTRA_GRID_SIZE, gridSize);
+                startActivity(intent);
+            }
+        });
+
+        // The big boards have a screen of their own; the size is picked there
+        zenButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Intent intent = new Intent(HomeActivity.this, ZenActivity.class);
+                intent.putExtra(ZenActivity.EXTRA_ZEN_SIZE, zenSize);
                 startActivity(intent);
             }
         });
@@ -33,6 +99,14 @@ public class HomeActivity extends AppCompatActivity {
             }
         });
 
+        statisticsButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Intent intent = new Intent(HomeActivity.this, StatisticsActivity.class);
+                startActivity(intent);
+            }
+        });
+
         howToPlayButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -41,4 +115,12 @@ public class HomeActivity extends AppCompatActivity {
             }
         });
     }
-}
\ No newline at end of file
+
+    // Back from the zen screen, whose size dialog may have changed the size; the prefs are
+    // in memory by then
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+        zenSize = getSharedPreferences("GameState", MODE_PRIVATE).getInt("zenSize", zenSize);
+    }
+}
@@ -2,62 +2,68 @@ package com.example.game_2048;
 
 import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.widget.ListView;
-import android.widget.SimpleAdapter;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Collections;
-import java.util.Comparator;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import java.io.IOException;
 
 public class LeaderboardActivity extends AppCompatActivity {
 
+    private static final String TAG = "LeaderboardActivity";
+
+    private RecyclerView leaderboardList;
+    private TextView titleView;
+    private TextView playerRankView;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_leaderboard);
 
-        ListView leaderboardList = findViewById(R.id.leaderboardList);
-        ArrayList<Map<String, String>> leaderboardData = getLeaderboardData();
+        leaderboardList = findViewById(R.id.leaderboardList);
+        leaderboardList.setLayoutManager(new LinearLayoutManager(this));
+        leaderboardList.setHasFixedSize(true);
+        playerRankView = findViewById(R.id.playerRank);
+        titleView = findViewById(R.id.leaderboardTitle);
 
-        SimpleAdapter adapter = new SimpleAdapter(
-                this,
-                leaderboardData,
-                android.R.layout.simple_list_item_2,
-                new String[]{"name", "score"},
-                new int[]{android.R.id.text1, android.R.id.text2}
-        );
-
-        leaderboardList.setAdapter(adapter);
-    }
+        SharedPreferences prefs = getSharedPreferences("GameState", MODE_PRIVATE);
+        final String playerName = prefs.getString("playerName", null);
+        // Scores are only comparable within a grid size; show the one selected at home
+        final int gridSize = prefs.getInt("gridSize", BoardEngine.SIZE);
+        titleView.setText("Top Players " + gridSize + "x" + gridSize);
 
-    private ArrayList<Map<String, String>> getLeaderboardData() {
-        ArrayList<Map<String, String>> list = new ArrayList<>();
-        SharedPreferences prefs = getSharedPreferences("Leaderboard", MODE_PRIVATE);
-        Map<String, ?> entries = prefs.getAll();
-
-        for (Map.Entry<String, ?> entry : entries.entrySet()) {
-            HashMap<String, String> item = new HashMap<>();
-            item.put("name", entry.getKey()); // Player name
-            item.put("score", entry.getValue().toString()); // High score
-            list.add(item);
-        }
-
-        // Sort by score (descending order)
-        Collections.sort(list, new Comparator<Map<String, String>>() {
+        // Opening the store replays its file, so only the row count and the player's own
+        // rank are fetched here; the rows themselves are paged in by the adapter
+        Leaderboards.IO.execute(new Runnable() {
             @Override
-            public int compare(Map<String, String> o1, Map<String, String> o2) {
+            public void run() {
                 try {
-                    int score1 = Integer.parseInt(o1.get("score"));
-                    int score2 = Integer.parseInt(o2.get("score"));
-                    return Integer.compare(score2, score1); // Descending order
-                } catch (NumberFormatException e) {
-                    return 0;
+                    final LeaderboardStore store = Leaderboards.get(LeaderboardActivity.this, gridSize);
+                    final int count = store.size();
+                    final int rank = playerName == null ? -1 : store.getRank(playerName);
+                    final int best = playerName == null ? -1 : store.getBest(playerName);
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (isDestroyed()) {
+                                return;
+                            }
+                            leaderboardList.setAdapter(new LeaderboardAdapter(store, count));
+                            if (rank > 0) {
+                                playerRankView.setText(playerName + ": #" + rank + " of " + count
+                                        + " with " + best);
+                            }
+                        }
+                    });
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot open leaderboard", e);
                 }
             }
         });
-
-        return list;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package com.example.game_2048;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.recyclerview.widget.RecyclerView;
+import java.io.IOException;
+import java.util.List;
+
+// Shows the ranking a page at a time. Only the row count is known up front; a page is
+// fetched on the IO thread the first time one of its rows is bound, and the next page is
+// requested ahead so scrolling rarely shows a placeholder.
+final class LeaderboardAdapter extends RecyclerView.Adapter<LeaderboardAdapter.Holder> {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 10;
+
+    static final class Holder extends RecyclerView.ViewHolder {
+        final TextView name;
+        final TextView score;
+
+        Holder(View itemView) {
+            super(itemView);
+            name = itemView.findViewById(android.R.id.text1);
+            score = itemView.findViewById(android.R.id.text2);
+        }
+    }
+
+    private final LeaderboardStore store;
+    private final int count;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Touched on the main thread only
+    private final SparseArray<List<LeaderboardStore.Entry>> pages = new SparseArray<>();
+    private final SparseBooleanArray requested = new SparseBooleanArray();
+
+    LeaderboardAdapter(LeaderboardStore store, int count) {
+        this.store = store;
+        this.count = count;
+    }
+
+    @Override
+    public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(android.R.layout.simple_list_item_2, parent, false);
+        return new Holder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(Holder holder, int position) {
+        int page = position / PAGE_SIZE;
+        if (position % PAGE_SIZE >= PAGE_SIZE - PREFETCH_DISTANCE) {
+            requestPage(page + 1);
+        }
+
+        List<LeaderboardStore.Entry> entries = pages.get(page);
+        if (entries == null || position % PAGE_SIZE >= entries.size()) {
+            requestPage(page);
+            holder.name.setText("#" + (position + 1));
+            holder.score.setText("…");
+            return;
+        }
+        LeaderboardStore.Entry entry = entries.get(position % PAGE_SIZE);
+        holder.name.setText("#" + entry.rank + "  " + entry.name);
+        holder.score.setText(String.valueOf(entry.score));
+    }
+
+    @Override
+    public int getItemCount() {
+        return count;
+    }
+
+    private void requestPage(final int page) {
+        if (page * PAGE_SIZE >= count || requested.get(page)) {
+            return;
+        }
+        requested.put(page, true);
+        Leaderboards.IO.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final List<LeaderboardStore.Entry> entries =
+                            store.getPage(page * PAGE_SIZE, PAGE_SIZE);
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            pages.put(page, entries);
+                            notifyItemRangeChanged(page * PAGE_SIZE, entries.size());
+                        }
+                    });
+                } catch (IOException e) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            // Allow a retry the next time a row of this page is bound
+                            requested.delete(page);
+                        }
+                    });
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.game_2048;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.annotation.WorkerThread;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Process-wide leaderboards, one per grid size, shared by the game and the leaderboard
+// screen. All disk work goes through the single IO thread, so opening and appending never
+// block the UI.
+final class Leaderboards {
+
+    private static final String FILE_NAME = "leaderboard.bin";
+    // Scores used to live in a flat SharedPreferences map of name -> score
+    private static final String LEGACY_PREFS = "Leaderboard";
+
+    static final ExecutorService IO = Executors.newSingleThreadExecutor();
+
+    private static final LeaderboardStore[] STORES = new LeaderboardStore[GridEngine.MAX_SIZE + 1];
+
+    private Leaderboards() {
+    }
+
+    @WorkerThread
+    static synchronized LeaderboardStore get(Context context, int size) throws IOException {
+        LeaderboardStore store = STORES[size];
+        if (store == null) {
+            Context app = context.getApplicationContext();
+            // 4x4 keeps the file it had before other sizes existed, and the legacy scores
+            String name = size == BoardEngine.SIZE ? FILE_NAME
+                    : "leaderboard-" + size + "x" + size + ".bin";
+            store = new LeaderboardStore(new File(app.getFilesDir(), name));
+            store.load();
+            if (size == BoardEngine.SIZE) {
+                migrateLegacyPrefs(app, store);
+            }
+            STORES[size] = store;
+        }
+        return store;
+    }
+
+    // Submitting only keeps the better score, so an import interrupted halfway is safe to redo
+    private static void migrateLegacyPrefs(Context context, LeaderboardStore store)
+            throws IOException {
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+        Map<String, ?> entries = prefs.getAll();
+        if (entries.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            if (entry.getValue() instanceof Integer) {
+                store.submit(entry.getKey(), (Integer) entry.getValue());
+            }
+        }
+        prefs.edit().clear().commit();
+    }
+}
@@ -2,79 +2,195 @@ package com.example.game_2048;
 
 import android.app.AlertDialog;
 import android.content.DialogInterface;
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.res.AssetFileDescriptor;
 import android.os.Bundle;
-import android.view.GestureDetector;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.MotionEvent;
+import android.view.View;
 import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.core.view.GestureDetectorCompat;
-import android.media.MediaPlayer;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Locale;
 
-public class MainActivity extends AppCompatActivity implements
-        GestureDetector.OnGestureListener {
+public class MainActivity extends AppCompatActivity {
 
     private GameBoard gameBoard;
-    private GestureDetectorCompat gestureDetector;
+    private SwipeInput swipes;
     private TextView scoreTextView;
     private TextView bestScoreTextView;
+    // Grid size to play, from the home screen
+    static final String EXTRA_GRID_SIZE = "gridSize";
+    private static final String FINISHED_GAME = "finishedGameEnd";
+
     private boolean gameOverChecked = false;
+    // The old activity had a game over or win dialog up, which this one shows again
+    private boolean reshowDialog;
     private SharedPreferences prefs;
-    private MediaPlayer mediaPlayer;
+    private SoundEngine sounds;
+
+    private static final String TAG = "MainActivity";
+    private static final long HINT_BUDGET_MS = 50;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ExpectimaxSearch hintSearch;
+    private ExpectimaxSearch.Search pendingHint;
+
+    // Trained offline by the simulator's train command; a copy in files/ overrides the one
+    // shipped in assets/
+    private static final String NETWORK_FILE = "ntuple.bin";
+    private static final long AUTO_PLAY_STEP_MS = 120;
+    private static final GameBoard.Direction[] DIRECTIONS = GameBoard.Direction.values();
+    private NTupleNetwork network;
+    private boolean autoPlaying;
+    // Bumped whenever n-tuple auto-play starts or stops, so a step still on its way from the
+    // logic thread cannot run in a later session
+    private int autoPlaySession;
+    private final Runnable autoPlayStep = new Runnable() {
+        @Override
+        public void run() {
+            autoPlayStep();
+        }
+    };
+
+    // Monte Carlo auto-play runs off the UI thread; this only shows how fast it goes
+    private static final long AUTO_PLAY_STATUS_MS = 500;
+    private AutoPlayer autoPlayer;
+    private TextView autoPlayStatus;
+    private long statusAt;
+    private long statusRollouts;
+    private long statusMoves;
+    private int autoPlayGames;
+    private final Runnable autoPlayStatusUpdate = new Runnable() {
+        @Override
+        public void run() {
+            updateAutoPlayStatus();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        final long createdAt = SystemClock.uptimeMillis();
+        Trace.beginSection("MainActivity.onCreate");
         setContentView(R.layout.activity_main);
 
-        mediaPlayer = MediaPlayer.create(this, R.raw.background_music);
-        mediaPlayer.setLooping(true); // Set looping to true if you want continuous play
-        mediaPlayer.start(); // Start playing the music
-
         gameBoard = findViewById(R.id.gameBoard);
+        // The intent is kept when the process is restored straight into this activity
+        int size = Math.max(GridEngine.MIN_SIZE, Math.min(GridEngine.MAX_SIZE,
+                getIntent().getIntExtra(EXTRA_GRID_SIZE, BoardEngine.SIZE)));
+        gameBoard.setModel(GameModel.get(this, size));
         scoreTextView = findViewById(R.id.score);
         bestScoreTextView = findViewById(R.id.bestScore);
-        gestureDetector = new GestureDetectorCompat(this, this);
+        autoPlayStatus = findViewById(R.id.autoPlayStatus);
+        swipes = new SwipeInput(SwipeInput.COMMIT_DP * getResources().getDisplayMetrics().density);
+        sounds = new SoundEngine(this, gameBoard.getEvents());
         prefs = getSharedPreferences("GameState", MODE_PRIVATE);
-
-        // Check if we need to ask for name (first launch)
-//        if (!prefs.contains("playerName")) {
-            showNameInputDialog();
-
-
+        if (savedInstanceState != null) {
+            gameBoard.restoreInstanceState(savedInstanceState);
+            gameOverChecked = savedInstanceState.getBoolean("gameOverChecked");
+            reshowDialog = gameOverChecked;
+        }
+        // Moves are made on the logic thread; the score and the end of the game are checked
+        // when their snapshot comes back. Snapshots that a newer one has already replaced
+        // are skipped, so a stale one cannot reopen a dialog the player has dealt with.
+        gameBoard.setSnapshotListener(new GameModel.Listener() {
+            @Override
+            public void onSnapshot(GameModel.Snapshot snapshot) {
+                if (snapshot != gameBoard.getSnapshot()) {
+                    return;
+                }
+                long stage = PerfMetrics.start();
+                updateScore();
+                PerfMetrics.stop(PerfMetrics.SCORE, stage);
+                stage = PerfMetrics.start();
+                checkGameState();
+                PerfMetrics.stop(PerfMetrics.CHECK, stage);
+            }
+        });
         updateScore();
+
+        // Only the board is needed for the first frame; music and the name prompt follow it
+        StartupScheduler.afterFirstDraw(gameBoard, new Runnable() {
+            @Override
+            public void run() {
+                long sinceLaunch = StartupScheduler.takeMillisSinceLaunch();
+                Log.i(TAG, String.format("Time to first frame: %d ms since onCreate, %d ms since tap",
+                        SystemClock.uptimeMillis() - createdAt, sinceLaunch));
+                reportFullyDrawn();
+                if (isDestroyed()) {
+                    return;
+                }
+                sounds.load();
+                sounds.startMusic();
+                ScoreSync.start(MainActivity.this);
+                // Ask for a name on first launch only
+                if (!prefs.contains("playerName")) {
+                    showNameInputDialog();
+                }
+            }
+        });
+        Trace.endSection();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
         // Pause the music when the activity goes into the background
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-            mediaPlayer.pause();
-        }
+        sounds.pause();
+        stopAutoPlay();
+        gameBoard.saveState();
+
+        TileAnimator animator = gameBoard.getAnimator();
+        Log.d(TAG, String.format("Animation frames=%d overBudget=%d maxFrameMs=%.1f "
+                        + "maxDrawMs=%.2f maxQueueDepth=%d droppedSteps=%d",
+                animator.getFrames(), animator.getFramesOverBudget(),
+                animator.getMaxFrameNanos() / 1e6, animator.getMaxDrawNanos() / 1e6,
+                animator.getMaxQueueDepth(), animator.getDroppedSteps()));
+        animator.resetStats();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
         // Resume the music when the activity comes to the foreground
-        if (mediaPlayer != null) {
-            mediaPlayer.start();
-        }
+        sounds.resume();
+        // Moves on a finished board publish nothing, so a game that ended before this
+        // activity saw it is only caught here
+        checkGameState();
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        gameBoard.saveInstanceState(outState);
+        outState.putBoolean("gameOverChecked", gameOverChecked);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Release the MediaPlayer resources when the activity is destroyed
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
-            mediaPlayer = null;
+        // Release the audio resources when the activity is destroyed
+        sounds.release();
+        cancelHint();
+        if (hintSearch != null) {
+            hintSearch.shutdown();
+            hintSearch = null;
+        }
+        if (autoPlayer != null) {
+            autoPlayer.shutdown();
+            autoPlayer = null;
         }
     }
 
@@ -104,36 +220,132 @@ public class MainActivity extends AppCompatActivity implements
 
 
     private void saveScore() {
-        String playerName = prefs.getString("playerName", "Player");
-        int currentScore = gameBoard.getScore();
+        final String playerName = prefs.getString("playerName", "Player");
+        final int currentScore = gameBoard.getScore();
+        final int gridSize = gameBoard.getGridSize();
+        gameBoard.claimScore();
+        final Context appContext = getApplicationContext();
+        ScoreSync.enqueue(appContext, new ScoreSyncQueue.Entry(playerName, gridSize, currentScore,
+                gameBoard.getMoveCount(), Integer.numberOfTrailingZeros(gameBoard.getMaxTile()),
+                System.currentTimeMillis()));
+
+        // The leaderboard only keeps a player's best, and appends to disk off the main thread
+        Leaderboards.IO.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (Leaderboards.get(appContext, gridSize).submit(playerName, currentScore)) {
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                Toast.makeText(appContext, "New High Score: " + currentScore,
+                                        Toast.LENGTH_SHORT).show();
+                            }
+                        });
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot save score", e);
+                }
+            }
+        });
+    }
 
-        // Get the leaderboard preferences
-        SharedPreferences leaderboard = getSharedPreferences("Leaderboard", MODE_PRIVATE);
+    // The end of a game is handled once however often it is looked at: its score is
+    // submitted and it goes into the statistics. The last end handled is kept in prefs, so a
+    // game that is still over when an activity comes back to it (rotation, Main Menu and
+    // Play again, a cold start) only gets its dialog again, while one continued by undo
+    // counts again when it ends anew.
+    private void finishGame() {
+        String end = FinishedGame.key(gameBoard.getSnapshot().gameId, gameBoard.getMoveCount(),
+                gameBoard.getScore());
+        if (end.equals(prefs.getString(FINISHED_GAME, null))) {
+            return;
+        }
+        prefs.edit().putString(FINISHED_GAME, end).apply();
+        saveScore();
+        recordGame();
+    }
 
-        // Get player's current high score
-        int previousHighScore = leaderboard.getInt(playerName, 0);
+    // A game counts once it is over, or once it is given up after reaching 2048; games
+    // abandoned before that would only drag the averages down
+    private void recordGame() {
+        final GameStatsStore.Record record = gameBoard.toStatsRecord();
+        final Context appContext = getApplicationContext();
+        Leaderboards.IO.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Statistics.get(appContext).append(record);
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot record game", e);
+                }
+            }
+        });
+    }
 
-        // Only update if current score is higher than previous high score
-        if (currentScore > previousHighScore) {
-            leaderboard.edit().putInt(playerName, currentScore).apply();
-            Toast.makeText(this, "New High Score: " + currentScore, Toast.LENGTH_SHORT).show();
-        }
+    // Writes the current histograms to files/metrics/ for offline comparison
+    private void dumpMetrics() {
+        final String dump = PerfMetrics.dump();
+        final File file = new File(new File(getFilesDir(), "metrics"),
+                "metrics-" + System.currentTimeMillis() + ".csv");
+        final Context appContext = getApplicationContext();
+        StartupScheduler.submit("PerfMetrics.dump", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PerfMetrics.write(file, dump);
+                    Log.i(TAG, "Metrics written to " + file + "\n" + dump);
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            Toast.makeText(appContext, "Metrics saved to " + file.getName(),
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot write metrics", e);
+                }
+            }
+        });
     }
 
+    // Decided from the latest snapshot rather than from move events, so a game that ended
+    // before this activity existed is caught as well
     private void checkGameState() {
-        if (!gameOverChecked) {
+        // The saved game is still being read; its snapshot calls this again
+        if (!gameBoard.isLoaded()) {
+            return;
+        }
+        if (autoPlaying || (autoPlayer != null && autoPlayer.isRunning())) {
+            continueAutoPlay();
+            return;
+        }
+        if (reshowDialog) {
+            reshowDialog = false;
             if (gameBoard.isGameOver()) {
-                gameOverChecked = true;
-                saveScore();
                 showGameOverDialog();
             } else if (gameBoard.hasWon()) {
+                showWinDialog();
+            } else {
+                gameOverChecked = false;
+            }
+        } else if (!gameOverChecked) {
+            if (gameBoard.isGameOver()) {
+                endGame();
+            } else if (gameBoard.hasWon()) {
+                // The score is submitted when the game ends, not at every milestone
                 gameOverChecked = true;
-                saveScore();
                 showWinDialog();
             }
         }
     }
 
+    private void endGame() {
+        gameOverChecked = true;
+        finishGame();
+        showGameOverDialog();
+    }
+
     private void showGameOverDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Game Over!")
@@ -157,10 +369,12 @@ public class MainActivity extends AppCompatActivity implements
     private void showWinDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Congratulations!")
-                .setMessage("You've reached 2048!\nDo you want to continue playing?")
+                .setMessage("You've reached " + gameBoard.getWinTile() + "!\nDo you want to continue playing?")
                 .setPositiveButton("Continue", new DialogInterface.OnClickListener() {
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
+                        // Next milestone, so the dialog does not come back on every swipe
+                        gameBoard.setWinTile(gameBoard.getWinTile() * 2);
                         gameOverChecked = false;
                     }
                 })
@@ -175,11 +389,14 @@ public class MainActivity extends AppCompatActivity implements
     }
 
     private void restartGame() {
+        if (gameBoard.getMaxTile() >= Game.DEFAULT_WIN_TILE) {
+            finishGame();
+        }
         gameBoard.restart();
+        gameBoard.setWinTile(Game.DEFAULT_WIN_TILE);
         gameOverChecked = false;
         // Ask for name when starting a new game
         showNameInputDialog();
-        updateScore();
     }
 
     @Override
@@ -188,72 +405,337 @@ public class MainActivity extends AppCompatActivity implements
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        // The search and the network only know the 4x4 bitboard
+        boolean classic = gameBoard.getGridSize() == BoardEngine.SIZE && gameBoard.isLoaded();
+        menu.findItem(R.id.action_hint).setVisible(classic);
+        menu.findItem(R.id.action_auto_play).setVisible(classic).setChecked(autoPlaying);
+        menu.findItem(R.id.action_rollout_play).setVisible(classic)
+                .setChecked(autoPlayer != null && autoPlayer.isRunning());
+        menu.findItem(R.id.action_auto_play_speed).setVisible(classic);
+        menu.findItem(R.id.action_undo).setEnabled(gameBoard.canUndo());
+        menu.findItem(R.id.action_metrics).setChecked(PerfMetrics.isEnabled());
+        menu.findItem(R.id.action_redo).setEnabled(gameBoard.canRedo());
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
-        if (id == R.id.action_new_game) {
+        if (id == R.id.action_hint) {
+            showHint();
+            return true;
+        } else if (id == R.id.action_undo || id == R.id.action_redo) {
+            cancelHint();
+            if (id == R.id.action_undo ? gameBoard.canUndo() : gameBoard.canRedo()) {
+                if (id == R.id.action_undo) {
+                    gameBoard.undo();
+                } else {
+                    gameBoard.redo();
+                }
+                // Undoing out of a finished game lets play go on
+                gameOverChecked = false;
+            }
+            return true;
+        } else if (id == R.id.action_new_game) {
             restartGame();
             return true;
         } else if (id == R.id.action_leaderboard) {
             startActivity(new Intent(this, LeaderboardActivity.class));
             return true;
+        } else if (id == R.id.action_statistics) {
+            startActivity(new Intent(this, StatisticsActivity.class));
+            return true;
         } else if (id == R.id.action_change_name) {
             showNameInputDialog();
             return true;
+        } else if (id == R.id.action_auto_play) {
+            if (autoPlaying) {
+                stopAutoPlay();
+            } else {
+                startAutoPlay();
+            }
+            return true;
+        } else if (id == R.id.action_rollout_play) {
+            if (autoPlayer != null && autoPlayer.isRunning()) {
+                stopAutoPlay();
+            } else {
+                startRolloutPlay();
+            }
+            return true;
+        } else if (id == R.id.action_auto_play_speed) {
+            showAutoPlaySpeedDialog();
+            return true;
+        } else if (id == R.id.action_metrics) {
+            PerfMetrics.setEnabled(!PerfMetrics.isEnabled());
+            gameBoard.invalidate();
+            return true;
+        } else if (id == R.id.action_dump_metrics) {
+            dumpMetrics();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    private void showHint() {
+        cancelHint();
+        if (hintSearch == null) {
+            hintSearch = new ExpectimaxSearch();
+        }
 
-    private void updateScore() {
-        scoreTextView.setText(String.valueOf(gameBoard.getScore()));
-        bestScoreTextView.setText(String.valueOf(gameBoard.getBestScore()));
+        // The search runs on its own pool; only the result is posted back to the UI thread
+        pendingHint = hintSearch.start(gameBoard.getBoard(), HINT_BUDGET_MS,
+                new ExpectimaxSearch.Callback() {
+                    @Override
+                    public void onResult(final ExpectimaxSearch.Result result) {
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                onHintReady(result);
+                            }
+                        });
+                    }
+                });
     }
 
-    @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    private void onHintReady(ExpectimaxSearch.Result result) {
+        // The player moved while the result was in flight
+        if (result.board != gameBoard.getBoard()) {
+            return;
+        }
+        pendingHint = null;
+
+        Log.d(TAG, String.format("Hint depth=%d nodes=%d nodes/s=%.0f cacheHitRate=%.2f",
+                result.depth, result.nodes, result.nodesPerSecond(), result.cacheHitRate()));
+
+        if (result.direction < 0) {
+            Toast.makeText(this, "No moves left", Toast.LENGTH_SHORT).show();
+        } else {
+            String direction = GameBoard.Direction.values()[result.direction].name();
+            Toast.makeText(this, "Hint: " + direction, Toast.LENGTH_SHORT).show();
+        }
     }
 
-    @Override
-    public boolean onDown(MotionEvent e) {
-        return true;
+    private void startAutoPlay() {
+        cancelHint();
+        stopAutoPlay();
+        if (network != null) {
+            autoPlaying = true;
+            autoPlaySession++;
+            gameOverChecked = false;
+            mainHandler.post(autoPlayStep);
+            return;
+        }
+        // Mapping only reads the header; the weights are paged in as moves look them up
+        final File file = new File(getFilesDir(), NETWORK_FILE);
+        final Context appContext = getApplicationContext();
+        StartupScheduler.submit("MainActivity.mapNetwork", new Runnable() {
+            @Override
+            public void run() {
+                NTupleNetwork mapped = null;
+                try {
+                    mapped = mapNetwork(appContext, file);
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot map " + NETWORK_FILE, e);
+                }
+                final NTupleNetwork loaded = mapped;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isDestroyed()) {
+                            return;
+                        }
+                        if (loaded == null) {
+                            Toast.makeText(appContext, "No trained network installed",
+                                    Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        network = loaded;
+                        startAutoPlay();
+                    }
+                });
+            }
+        });
     }
 
-    @Override
-    public boolean onFling(MotionEvent e1, MotionEvent e2,
-                           float velocityX, float velocityY) {
-        if (e1 == null || e2 == null) return false;
+    private static NTupleNetwork mapNetwork(Context context, File file) throws IOException {
+        if (file.exists()) {
+            return NTupleNetwork.map(file);
+        }
+        AssetFileDescriptor asset = context.getAssets().openFd(NETWORK_FILE);
+        try {
+            FileInputStream in = asset.createInputStream();
+            try {
+                return NTupleNetwork.map(in.getChannel(), asset.getStartOffset(), asset.getLength());
+            } finally {
+                in.close();
+            }
+        } finally {
+            asset.close();
+        }
+    }
 
-        float diffX = e2.getX() - e1.getX();
-        float diffY = e2.getY() - e1.getY();
+    // Stops either kind of auto-play
+    private void stopAutoPlay() {
+        if (autoPlaying) {
+            autoPlaying = false;
+            autoPlaySession++;
+        }
+        mainHandler.removeCallbacks(autoPlayStep);
+        if (autoPlayer != null) {
+            autoPlayer.stop();
+        }
+        mainHandler.removeCallbacks(autoPlayStatusUpdate);
+        autoPlayStatus.setVisibility(View.GONE);
+    }
 
-        if (Math.abs(diffX) > Math.abs(diffY)) {
-            if (Math.abs(diffX) > 100 && Math.abs(velocityX) > 100) {
-                if (diffX > 0) {
-                    gameBoard.move(GameBoard.Direction.RIGHT);
-                } else {
-                    gameBoard.move(GameBoard.Direction.LEFT);
-                }
+    private void startRolloutPlay() {
+        cancelHint();
+        stopAutoPlay();
+        if (autoPlayer == null) {
+            autoPlayer = new AutoPlayer(GameModel.get(this, gameBoard.getGridSize()));
+        }
+        autoPlayer.setRate(prefs.getInt("autoPlayRate", AutoPlayer.DEFAULT_RATE));
+        autoPlayer.start();
+        gameOverChecked = false;
+        statusAt = 0;
+        autoPlayStatus.setText("");
+        autoPlayStatus.setVisibility(View.VISIBLE);
+        updateAutoPlayStatus();
+    }
+
+    // Auto-play of either kind runs unattended: a finished game is logged and replaced, a
+    // milestone is passed without a dialog, and nothing goes to the leaderboard, the
+    // statistics or the score server, which are the player's own
+    private void continueAutoPlay() {
+        if (!gameBoard.isGameOver()) {
+            gameOverChecked = false;
+            if (gameBoard.hasWon()) {
+                gameBoard.setWinTile(gameBoard.getWinTile() * 2);
             }
-        } else {
-            if (Math.abs(diffY) > 100 && Math.abs(velocityY) > 100) {
-                if (diffY > 0) {
-                    gameBoard.move(GameBoard.Direction.DOWN);
-                } else {
-                    gameBoard.move(GameBoard.Direction.UP);
-                }
+            return;
+        }
+        if (gameOverChecked) {
+            return;
+        }
+        gameOverChecked = true;
+        autoPlayGames++;
+        Log.i(TAG, String.format(Locale.US, "Auto-play game %d over: score=%d moves=%d maxTile=%d",
+                autoPlayGames, gameBoard.getScore(), gameBoard.getMoveCount(),
+                gameBoard.getMaxTile()));
+        gameBoard.restart(false);
+        gameBoard.setWinTile(Game.DEFAULT_WIN_TILE);
+    }
+
+    private void updateAutoPlayStatus() {
+        long now = SystemClock.uptimeMillis();
+        long rollouts = autoPlayer.getRollouts();
+        long moves = autoPlayer.getMoves();
+        if (statusAt != 0) {
+            double seconds = (now - statusAt) / 1000.0;
+            autoPlayStatus.setText(String.format(Locale.US, "%,.0f rollouts/s  %.1f moves/s  games %d",
+                    (rollouts - statusRollouts) / seconds, (moves - statusMoves) / seconds,
+                    autoPlayGames));
+        }
+        statusAt = now;
+        statusRollouts = rollouts;
+        statusMoves = moves;
+        mainHandler.postDelayed(autoPlayStatusUpdate, AUTO_PLAY_STATUS_MS);
+    }
+
+    private void showAutoPlaySpeedDialog() {
+        int rate = prefs.getInt("autoPlayRate", AutoPlayer.DEFAULT_RATE);
+        String[] labels = new String[AutoPlayer.RATES.length];
+        int checked = 0;
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = AutoPlayer.RATES[i] == 0 ? "Uncapped" : AutoPlayer.RATES[i] + " moves/s";
+            if (AutoPlayer.RATES[i] == rate) {
+                checked = i;
             }
         }
+        new AlertDialog.Builder(this)
+                .setTitle("Auto Play Speed")
+                .setSingleChoiceItems(labels, checked, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        int chosen = AutoPlayer.RATES[which];
+                        prefs.edit().putInt("autoPlayRate", chosen).apply();
+                        if (autoPlayer != null) {
+                            autoPlayer.setRate(chosen);
+                        }
+                        dialog.dismiss();
+                    }
+                })
+                .show();
+    }
 
-        updateScore();
-        checkGameState();
+    // One greedy move per step, slow enough for the animation to keep up. Like AutoPlayer,
+    // each step waits for the logic thread to apply the move before it, so it decides on the
+    // board that move led to; on the UI thread that is a task queued behind the move, which
+    // schedules the next step instead of being waited for.
+    private void autoPlayStep() {
+        if (!autoPlaying) {
+            return;
+        }
+        // A finished game is replaced by continueAutoPlay() when its snapshot comes in
+        if (!gameBoard.isGameOver()) {
+            long started = PerfMetrics.start();
+            int direction = network.bestMove(gameBoard.getBoard());
+            PerfMetrics.stop(PerfMetrics.EVALUATE, started);
+            if (direction >= 0) {
+                gameBoard.move(DIRECTIONS[direction]);
+            }
+        }
+        final int session = autoPlaySession;
+        GameModel.LOGIC.execute(new Runnable() {
+            @Override
+            public void run() {
+                mainHandler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (session == autoPlaySession) {
+                            autoPlayStep();
+                        }
+                    }
+                }, AUTO_PLAY_STEP_MS);
+            }
+        });
+    }
+
+    private void cancelHint() {
+        if (pendingHint != null) {
+            pendingHint.cancel();
+            pendingHint = null;
+        }
+    }
+
+    private void updateScore() {
+        scoreTextView.setText(String.valueOf(gameBoard.getScore()));
+        bestScoreTextView.setText(String.valueOf(gameBoard.getBestScore()));
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int direction = swipes.onTouchEvent(event);
+        if (direction == SwipeInput.IGNORED) {
+            return super.onTouchEvent(event);
+        }
+        if (direction != SwipeRecognizer.NONE) {
+            PerfMetrics.record(PerfMetrics.GESTURE, swipes.getCommitNanos() - swipes.getDownNanos());
+            onSwipe(DIRECTIONS[direction], swipes.getCommitNanos());
+        }
         return true;
     }
 
-    // Required gesture detector methods
-    @Override public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) { return false; }
-    @Override public void onLongPress(MotionEvent e) {}
-    @Override public void onShowPress(MotionEvent e) {}
-    @Override public boolean onSingleTapUp(MotionEvent e) { return false; }
-}
\ No newline at end of file
+    private void onSwipe(GameBoard.Direction direction, long touchNanos) {
+        long started = PerfMetrics.start();
+
+        // A swipe makes any pending hint stale, and takes over from auto-play
+        cancelHint();
+        stopAutoPlay();
+
+        gameBoard.move(direction, started, touchNanos);
+        PerfMetrics.stop(PerfMetrics.SWIPE, started);
+    }
+}
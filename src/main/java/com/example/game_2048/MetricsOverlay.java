@@ -0,0 +1,50 @@
+package com.example.game_2048;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import java.util.Locale;
+
+// PerfMetrics drawn over the board: one line per stage with count, p50, p99 and max in
+// milliseconds. The text is rebuilt at most every REFRESH_NANOS, so most frames only draw
+// cached strings.
+final class MetricsOverlay {
+
+    private static final long REFRESH_NANOS = 250_000_000L;
+
+    private final Paint backgroundPaint = new Paint();
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final String[] lines = new String[PerfMetrics.NAMES.length + 1];
+    private long refreshedAt;
+
+    MetricsOverlay() {
+        backgroundPaint.setColor(0xB0000000);
+        textPaint.setColor(0xFF00FF00);
+        textPaint.setTypeface(Typeface.MONOSPACE);
+    }
+
+    void draw(Canvas canvas, float width) {
+        long now = System.nanoTime();
+        if (lines[0] == null || now - refreshedAt >= REFRESH_NANOS) {
+            refresh();
+            refreshedAt = now;
+        }
+        float textSize = width / 28f;
+        textPaint.setTextSize(textSize);
+        float lineHeight = textSize * 1.25f;
+        canvas.drawRect(0, 0, width, lineHeight * (lines.length + 0.5f), backgroundPaint);
+        for (int i = 0; i < lines.length; i++) {
+            canvas.drawText(lines[i], textSize / 2, lineHeight * (i + 1), textPaint);
+        }
+    }
+
+    private void refresh() {
+        lines[0] = String.format(Locale.US, "%-13s %6s %7s %7s %7s", "ms", "n", "p50", "p99", "max");
+        for (int i = 0; i < PerfMetrics.NAMES.length; i++) {
+            LatencyHistogram h = PerfMetrics.get(i);
+            lines[i + 1] = String.format(Locale.US, "%-13s %6d %7.2f %7.2f %7.2f",
+                    PerfMetrics.NAMES[i], h.getCount(), h.percentile(0.5) / 1e6,
+                    h.percentile(0.99) / 1e6, h.getMax() / 1e6);
+        }
+    }
+}
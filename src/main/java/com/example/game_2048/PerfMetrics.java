@@ -0,0 +1,143 @@
+package com.example.game_2048;
+
+import android.os.Build;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+// Swipe latency by stage, plus frame times, in LatencyHistograms. Off by default: while it
+// is off, start() is one branch returning 0 and stop() one branch on it, so the call sites
+// can stay in the hot path. Only touched from the UI thread; the logic thread's timings
+// come back in its snapshots.
+final class PerfMetrics {
+
+    // Handling a recognised swipe up to the move being queued
+    static final int SWIPE = 0;
+    // The move on the logic thread, up to its snapshot being published
+    static final int MOVE = 1;
+    static final int SCORE = 2;
+    static final int CHECK = 3;
+    // Swipe handling to the start of the next GameBoard.onDraw
+    static final int INPUT_TO_DRAW = 4;
+    static final int DRAW = 5;
+    // Interval between animation frames
+    static final int FRAME = 6;
+    // NTupleNetwork.bestMove() for one auto-play step
+    static final int EVALUATE = 7;
+    // Finger down to the touch sample that committed the swipe
+    static final int GESTURE = 8;
+    // That sample's timestamp to the start of the next GameBoard.onDraw: input dispatch,
+    // handling and waiting for the frame, everything before the pixels but the compositor
+    static final int TOUCH_TO_DRAW = 9;
+    // Swipe handling to the move's snapshot coming back from the logic thread
+    static final int LOGIC = 10;
+
+    static final String[] NAMES = {
+            "swipe", "move", "score", "check", "input_to_draw", "draw", "frame", "evaluate",
+            "gesture", "touch_to_draw", "logic"
+    };
+
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[NAMES.length];
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+    }
+
+    private static boolean enabled;
+    // Start of the last swipe that has not been drawn yet, or 0, and its touch sample's time
+    private static long pendingInput;
+    private static long pendingTouch;
+
+    private PerfMetrics() {
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    // Turning it on starts from empty histograms
+    static void setEnabled(boolean on) {
+        if (on && !enabled) {
+            reset();
+        }
+        enabled = on;
+        pendingInput = 0;
+    }
+
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    static void stop(int stage, long started) {
+        if (started != 0) {
+            HISTOGRAMS[stage].record(System.nanoTime() - started);
+        }
+    }
+
+    static void record(int stage, long nanos) {
+        if (enabled) {
+            HISTOGRAMS[stage].record(nanos);
+        }
+    }
+
+    // The swipe that started at the given start() time waits for the next draw. The touch
+    // time is a MotionEvent time in nanoseconds, on the same clock as System.nanoTime().
+    static void inputPending(long started, long touchNanos) {
+        if (started != 0) {
+            pendingInput = started;
+            pendingTouch = touchNanos;
+        }
+    }
+
+    static void drawStarted() {
+        if (pendingInput != 0) {
+            long now = System.nanoTime();
+            HISTOGRAMS[INPUT_TO_DRAW].record(now - pendingInput);
+            HISTOGRAMS[TOUCH_TO_DRAW].record(now - pendingTouch);
+            pendingInput = 0;
+        }
+    }
+
+    static LatencyHistogram get(int stage) {
+        return HISTOGRAMS[stage];
+    }
+
+    static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    // One CSV line per stage, in microseconds, headed by the device and the time so dumps
+    // from different builds and devices can be compared
+    static String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append("# ").append(Build.MANUFACTURER).append(' ').append(Build.MODEL)
+                .append(" sdk=").append(Build.VERSION.SDK_INT)
+                .append(" time=").append(System.currentTimeMillis()).append('\n');
+        out.append("stage,count,mean_us,p50_us,p90_us,p99_us,max_us\n");
+        for (int i = 0; i < NAMES.length; i++) {
+            LatencyHistogram h = HISTOGRAMS[i];
+            out.append(String.format(Locale.US, "%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f%n", NAMES[i],
+                    h.getCount(), h.getMean() / 1e3, h.percentile(0.5) / 1e3,
+                    h.percentile(0.9) / 1e3, h.percentile(0.99) / 1e3, h.getMax() / 1e3));
+        }
+        return out.toString();
+    }
+
+    static void write(File file, String dump) throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        Writer out = new FileWriter(file);
+        try {
+            out.write(dump);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.game_2048;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Sends finished scores to the score server from one low-priority background thread. Every
+// score is written to the queue file first, so scores made offline, or while the server is
+// down, are kept and go out in batches once it answers again. Nothing is queued or sent
+// until score_server_url is set, so a build without a server keeps no backlog.
+final class ScoreSync {
+
+    private static final String TAG = "ScoreSync";
+    private static final String FILE_NAME = "score_sync.bin";
+    // A few seconds after a game ends, so scores from quick restarts share a batch
+    private static final long SETTLE_MS = 5_000;
+
+    private static final ScheduledExecutorService SYNC = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "score-sync");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    // Only touched on the sync thread
+    private static ScoreSyncQueue queue;
+    private static ScoreSyncer syncer;
+    private static ScheduledFuture<?> pending;
+
+    private ScoreSync() {
+    }
+
+    static void enqueue(Context context, final ScoreSyncQueue.Entry entry) {
+        final Context app = context.getApplicationContext();
+        if (app.getString(R.string.score_server_url).isEmpty()) {
+            return;
+        }
+        SYNC.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    open(app).add(entry);
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot queue score", e);
+                    return;
+                }
+                schedule(app, SETTLE_MS);
+            }
+        });
+    }
+
+    // Sends whatever an earlier run left behind, for when the app starts
+    static void start(Context context) {
+        final Context app = context.getApplicationContext();
+        SYNC.execute(new Runnable() {
+            @Override
+            public void run() {
+                schedule(app, 0);
+            }
+        });
+    }
+
+    // A drain already waiting, possibly out a backoff, is left alone
+    private static void schedule(final Context app, long delayMillis) {
+        if (pending != null && !pending.isDone()) {
+            return;
+        }
+        pending = SYNC.schedule(new Runnable() {
+            @Override
+            public void run() {
+                pending = null;
+                drain(app);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void drain(Context app) {
+        ScoreSyncer syncer = openSyncer(app, app.getString(R.string.score_server_url));
+        if (syncer == null) {
+            return;
+        }
+        long delay = syncer.drain();
+        if (delay > 0) {
+            Log.i(TAG, "Score server unavailable, retrying in " + delay + " ms");
+            schedule(app, delay);
+        }
+    }
+
+    private static ScoreSyncQueue open(Context app) throws IOException {
+        if (queue == null) {
+            ScoreSyncQueue opened = new ScoreSyncQueue(new File(app.getFilesDir(), FILE_NAME));
+            opened.load();
+            queue = opened;
+        }
+        return queue;
+    }
+
+    private static ScoreSyncer openSyncer(Context app, String url) {
+        if (syncer == null) {
+            if (url.isEmpty()) {
+                return null;
+            }
+            try {
+                syncer = new ScoreSyncer(open(app), new URL(url), ScoreSyncer.DEFAULT_BATCH_SIZE,
+                        new Random());
+            } catch (MalformedURLException e) {
+                Log.e(TAG, "Bad score server URL " + url, e);
+                return null;
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot open score queue", e);
+                return null;
+            }
+        }
+        return syncer;
+    }
+}
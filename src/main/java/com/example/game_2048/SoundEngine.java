@@ -0,0 +1,227 @@
+package com.example.game_2048;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.media.SoundPool;
+import android.os.Process;
+import android.os.Trace;
+import android.util.Log;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+// All of the game's audio: short SoundPool effects for spawns, merges and new top tiles,
+// and the looping background music.
+//
+// The effects are driven by the model's GameEventBus: the logic thread only unparks the
+// mixer thread after a move, and the mixer reads the events itself. It waits one frame
+// after it is woken, takes everything that arrived meanwhile and plays at most one stream
+// per kind: however many tiles merged, a swipe is one merge cue, pitched up and louder the
+// more there were. With at most three streams per frame and MAX_STREAMS voices, SoundPool
+// drops the lowest-priority voice rather than piling up. Events the mixer was lapped on are
+// never played.
+final class SoundEngine {
+
+    private static final String TAG = "SoundEngine";
+
+    // New highest tiles from this one up get the milestone cue
+    static final int MILESTONE_TILE = 128;
+
+    private static final int MAX_STREAMS = 4;
+    private static final long FRAME_NANOS = 16_000_000L;
+
+    private final Context context;
+    // Mixer thread only
+    private final GameEventBus.Consumer events;
+    private final Thread mixer;
+    private volatile boolean released;
+    // While paused, events are read and dropped
+    private volatile boolean paused;
+
+    // Created in the background by load(); guarded by this
+    private SoundPool pool;
+    // Sample ids, 0 until loaded; playing a sample that is still decoding does nothing
+    private volatile int mergeSound;
+    private volatile int spawnSound;
+    private volatile int milestoneSound;
+
+    // Music, UI thread only. Playback can only start once prepareAsync() has finished,
+    // and only while resumed.
+    private MediaPlayer music;
+    private boolean musicPrepared;
+    private boolean resumed;
+
+    SoundEngine(Context context, GameEventBus bus) {
+        this.context = context.getApplicationContext();
+        mixer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+                mix();
+            }
+        }, "sound-mixer");
+        mixer.setDaemon(true);
+        events = bus.newConsumer(new Runnable() {
+            @Override
+            public void run() {
+                LockSupport.unpark(mixer);
+            }
+        });
+        mixer.start();
+    }
+
+    // Builds the pool and decodes the effects off the UI thread
+    void load() {
+        StartupScheduler.submit("SoundEngine.load", new Runnable() {
+            @Override
+            public void run() {
+                AudioAttributes attributes = new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_GAME)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build();
+                SoundPool created = new SoundPool.Builder()
+                        .setMaxStreams(MAX_STREAMS)
+                        .setAudioAttributes(attributes)
+                        .build();
+                synchronized (SoundEngine.this) {
+                    if (released) {
+                        created.release();
+                        return;
+                    }
+                    pool = created;
+                }
+                spawnSound = created.load(context, R.raw.sfx_spawn, 0);
+                mergeSound = created.load(context, R.raw.sfx_merge, 1);
+                milestoneSound = created.load(context, R.raw.sfx_milestone, 2);
+            }
+        });
+    }
+
+    private void mix() {
+        while (!released) {
+            if (!events.hasNext()) {
+                LockSupport.park(this);
+                continue;
+            }
+            // Let the rest of this frame's moves arrive before playing anything
+            long deadline = System.nanoTime() + FRAME_NANOS;
+            long left;
+            while ((left = deadline - System.nanoTime()) > 0 && !released) {
+                LockSupport.parkNanos(this, left);
+            }
+            int merges = 0;
+            int spawns = 0;
+            boolean milestone = false;
+            while (events.next()) {
+                switch (events.type()) {
+                    case GameEventBus.TILE_MERGED:
+                        merges++;
+                        break;
+                    case GameEventBus.SPAWN:
+                        spawns++;
+                        break;
+                    case GameEventBus.MAX_TILE:
+                        milestone |= events.value() >= MILESTONE_TILE;
+                        break;
+                }
+            }
+            if (!paused) {
+                play(merges, spawns, milestone);
+            }
+        }
+        events.close();
+    }
+
+    private synchronized void play(int merges, int spawns, boolean milestone) {
+        if (pool == null) {
+            return;
+        }
+        if (milestone) {
+            pool.play(milestoneSound, 1f, 1f, 2, 0, 1f);
+        }
+        if (merges > 0) {
+            float volume = Math.min(1f, 0.6f + 0.1f * merges);
+            float rate = Math.min(2f, 1f + 0.08f * (merges - 1));
+            pool.play(mergeSound, volume, volume, 1, 0, rate);
+        }
+        if (spawns > 0) {
+            pool.play(spawnSound, 0.4f, 0.4f, 0, 0, 1f);
+        }
+    }
+
+    // Decodes the music on the player's own thread instead of blocking in MediaPlayer.create()
+    void startMusic() {
+        Trace.beginSection("SoundEngine.startMusic");
+        try {
+            AssetFileDescriptor fd = context.getResources().openRawResourceFd(R.raw.background_music);
+            music = new MediaPlayer();
+            try {
+                music.setDataSource(fd.getFileDescriptor(), fd.getStartOffset(), fd.getLength());
+            } finally {
+                fd.close();
+            }
+            music.setLooping(true);
+            music.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
+                @Override
+                public void onPrepared(MediaPlayer player) {
+                    musicPrepared = true;
+                    if (resumed) {
+                        player.start();
+                    }
+                }
+            });
+            music.prepareAsync();
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot play music", e);
+            if (music != null) {
+                music.release();
+                music = null;
+            }
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    void resume() {
+        resumed = true;
+        paused = false;
+        if (musicPrepared) {
+            music.start();
+        }
+        synchronized (this) {
+            if (pool != null) {
+                pool.autoResume();
+            }
+        }
+    }
+
+    void pause() {
+        resumed = false;
+        if (musicPrepared && music.isPlaying()) {
+            music.pause();
+        }
+        paused = true;
+        synchronized (this) {
+            if (pool != null) {
+                pool.autoPause();
+            }
+        }
+    }
+
+    void release() {
+        released = true;
+        LockSupport.unpark(mixer);
+        if (music != null) {
+            music.release();
+            music = null;
+            musicPrepared = false;
+        }
+        synchronized (this) {
+            if (pool != null) {
+                pool.release();
+                pool = null;
+            }
+        }
+    }
+}
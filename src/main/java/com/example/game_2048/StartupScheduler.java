@@ -0,0 +1,116 @@
+package com.example.game_2048;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Keeps startup work, and other one-off disk work, off the UI thread. Tasks run in
+// submission order on one background thread (low-end devices have few cores, and the first
+// frame needs the one the UI thread is on); work that only matters once the user can see
+// the board is held back until after its first frame. Every task runs inside a Trace
+// section of its own name, so a system trace shows where the launch time goes.
+final class StartupScheduler {
+
+    private static final ExecutorService BACKGROUND;
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    static {
+        ThreadPoolExecutor background = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        Thread thread = new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                r.run();
+                            }
+                        }, "startup");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        background.allowCoreThreadTimeOut(true);
+        BACKGROUND = background;
+    }
+
+    // Uptime of the tap that launched the game, or 0
+    private static long launchUptime;
+
+    private StartupScheduler() {
+    }
+
+    static <T> Future<T> submit(final String section, final Callable<T> task) {
+        return BACKGROUND.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                Trace.beginSection(section);
+                try {
+                    return task.call();
+                } finally {
+                    Trace.endSection();
+                }
+            }
+        });
+    }
+
+    static Future<?> submit(String section, final Runnable task) {
+        return submit(section, new Callable<Void>() {
+            @Override
+            public Void call() {
+                task.run();
+                return null;
+            }
+        });
+    }
+
+    // Runs the action on the UI thread once the view has drawn its first frame
+    static void afterFirstDraw(final View view, final Runnable action) {
+        final ViewTreeObserver observer = view.getViewTreeObserver();
+        observer.addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+                drawn = true;
+                // Listeners cannot be removed while the tree is dispatching them
+                final ViewTreeObserver.OnDrawListener listener = this;
+                MAIN.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (observer.isAlive()) {
+                            observer.removeOnDrawListener(listener);
+                        }
+                        action.run();
+                    }
+                });
+            }
+        });
+    }
+
+    static void markLaunch() {
+        launchUptime = SystemClock.uptimeMillis();
+    }
+
+    // Milliseconds since markLaunch(), or -1 if the game was not launched by a tap (e.g.
+    // the process was restored straight into it); only reported once per launch
+    static long takeMillisSinceLaunch() {
+        long started = launchUptime;
+        launchUptime = 0;
+        return started == 0 ? -1 : SystemClock.uptimeMillis() - started;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.game_2048;
+
+import android.content.Context;
+import androidx.annotation.WorkerThread;
+import java.io.File;
+import java.io.IOException;
+
+// Process-wide store of finished games, shared by the game and the statistics screen. Its
+// disk work runs on the leaderboards' IO thread, so a game ending never blocks the UI.
+final class Statistics {
+
+    private static final String FILE_NAME = "stats.bin";
+
+    private static GameStatsStore store;
+
+    private Statistics() {
+    }
+
+    @WorkerThread
+    static synchronized GameStatsStore get(Context context) throws IOException {
+        if (store == null) {
+            GameStatsStore opened = new GameStatsStore(
+                    new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+            opened.load();
+            store = opened;
+        }
+        return store;
+    }
+}
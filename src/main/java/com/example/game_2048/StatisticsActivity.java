@@ -0,0 +1,90 @@
+package com.example.game_2048;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.TextView;
+import androidx.appcompat.app.AppCompatActivity;
+import java.io.IOException;
+import java.util.Locale;
+
+public class StatisticsActivity extends AppCompatActivity {
+
+    private static final String TAG = "StatisticsActivity";
+
+    private TextView summaryView;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_statistics);
+
+        summaryView = findViewById(R.id.statisticsSummary);
+        TextView titleView = findViewById(R.id.statisticsTitle);
+        // Like the leaderboard, for the grid size selected at home
+        final int gridSize = getSharedPreferences("GameState", MODE_PRIVATE)
+                .getInt("gridSize", BoardEngine.SIZE);
+        titleView.setText("Statistics " + gridSize + "x" + gridSize);
+
+        // The aggregates are kept up to date as games are recorded, so this is a copy of a
+        // few arrays rather than a pass over the history
+        Leaderboards.IO.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final String text = format(Statistics.get(StatisticsActivity.this)
+                            .getSummary(gridSize));
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!isDestroyed()) {
+                                summaryView.setText(text);
+                            }
+                        }
+                    });
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot open statistics", e);
+                }
+            }
+        });
+    }
+
+    private static String format(GameStatsStore.Summary summary) {
+        long games = summary.getGames();
+        if (games == 0) {
+            return "No finished games yet.";
+        }
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.US, "Games played   %d%n", games));
+        text.append(String.format(Locale.US, "Best score     %d%n", summary.getBestScore()));
+        text.append(String.format(Locale.US, "Mean score     %.0f%n", summary.getMeanScore()));
+        text.append(String.format(Locale.US, "Median score   %d%n",
+                summary.getScorePercentile(0.5)));
+        text.append(String.format(Locale.US, "90th pct       %d%n",
+                summary.getScorePercentile(0.9)));
+        text.append(String.format(Locale.US, "Mean moves     %.0f%n", summary.getMeanMoves()));
+        long seconds = (long) (summary.getMeanMillis() / 1000);
+        text.append(String.format(Locale.US, "Mean time      %d:%02d%n", seconds / 60, seconds % 60));
+
+        text.append("\nLargest tile\n");
+        for (int e = GameStatsStore.MAX_EXPONENT; e > 0; e--) {
+            long count = summary.getMaxTileCount(e);
+            if (count > 0) {
+                text.append(String.format(Locale.US, "%8d   %5.1f%%  (%d)%n", 1L << e,
+                        100.0 * count / games, count));
+            }
+        }
+
+        text.append("\nTiles made by merging, per game\n");
+        for (int e = GameStatsStore.MAX_EXPONENT; e >= 2; e--) {
+            long merges = summary.getMerges(e);
+            if (merges > 0) {
+                text.append(String.format(Locale.US, "%8d   %.1f%n", 1L << e,
+                        (double) merges / games));
+            }
+        }
+        return text.toString();
+    }
+}
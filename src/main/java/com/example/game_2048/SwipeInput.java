@@ -0,0 +1,86 @@
+package com.example.game_2048;
+
+import android.view.MotionEvent;
+
+// Feeds MotionEvents to a SwipeRecognizer. Swipes are recognised here rather than by a
+// GestureDetector's onFling, which only fires once the finger lifts: a move is made on the
+// first touch sample that is far enough along, including the samples batched into a MOVE
+// event, so high-rate touch screens commit as early as they report.
+final class SwipeInput {
+
+    // How far a drag goes before its move is made, with the finger still down
+    static final float COMMIT_DP = 24;
+    // Returned for events that are not part of a touch gesture
+    static final int IGNORED = -2;
+
+    private final SwipeRecognizer swipes;
+
+    SwipeInput(float commitDistance) {
+        swipes = new SwipeRecognizer(commitDistance);
+    }
+
+    // The direction the event commits a swipe to, SwipeRecognizer.NONE, or IGNORED
+    int onTouchEvent(MotionEvent event) {
+        int direction = SwipeRecognizer.NONE;
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                swipes.down(event.getPointerId(0), event.getX(), event.getY(),
+                        millisToNanos(event.getEventTime()));
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                swipes.pointerDown();
+                break;
+            case MotionEvent.ACTION_MOVE: {
+                if (!swipes.isTracking()) {
+                    break;
+                }
+                int index = event.findPointerIndex(swipes.getPointerId());
+                if (index < 0) {
+                    break;
+                }
+                int history = event.getHistorySize();
+                for (int h = 0; h < history && direction == SwipeRecognizer.NONE; h++) {
+                    direction = swipes.move(swipes.getPointerId(), event.getHistoricalX(index, h),
+                            event.getHistoricalY(index, h),
+                            millisToNanos(event.getHistoricalEventTime(h)));
+                }
+                if (direction == SwipeRecognizer.NONE) {
+                    direction = swipes.move(swipes.getPointerId(), event.getX(index),
+                            event.getY(index), millisToNanos(event.getEventTime()));
+                }
+                break;
+            }
+            case MotionEvent.ACTION_POINTER_UP: {
+                int index = event.getActionIndex();
+                direction = swipes.pointerUp(event.getPointerId(index), event.getX(index),
+                        event.getY(index), millisToNanos(event.getEventTime()));
+                break;
+            }
+            case MotionEvent.ACTION_UP:
+                direction = swipes.up(event.getPointerId(0), event.getX(), event.getY(),
+                        millisToNanos(event.getEventTime()));
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                swipes.cancel();
+                break;
+            default:
+                return IGNORED;
+        }
+        return direction;
+    }
+
+    // Times of the gesture that committed last, on the System.nanoTime() clock
+    long getDownNanos() {
+        return swipes.getDownNanos();
+    }
+
+    long getCommitNanos() {
+        return swipes.getCommitNanos();
+    }
+
+    // MotionEvent times are SystemClock.uptimeMillis(), which runs on the same monotonic clock
+    // as System.nanoTime()
+    private static long millisToNanos(long millis) {
+        return millis * 1_000_000;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.game_2048;
+
+import android.graphics.Canvas;
+import android.view.Choreographer;
+
+// Slide/merge/spawn animation for GameBoard, driven by Choreographer frame callbacks.
+// Moves are applied to the Game as soon as they are swiped; the animator only replays
+// them. Each swipe queues one step in a small ring buffer, and while steps are waiting the
+// current one is fast-forwarded, so fast players are never held back by the animation.
+// Steps come with the Game's MoveDiff, and each frame only invalidates the cells the step
+// touches. All per-step and per-tile state is preallocated: a frame allocates nothing.
+final class TileAnimator implements Choreographer.FrameCallback {
+
+    private static final long STEP_NANOS = 200_000_000L;
+    // First part of a step slides tiles, the rest pops merges and grows the spawned tile
+    private static final float SLIDE_FRACTION = 0.5f;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final long DEFAULT_FRAME_BUDGET_NANOS = 1_000_000_000L / 60;
+
+    private final GameBoard view;
+    private final GridEngine engine;
+    private final int words;
+
+    // Pending steps: board before the swipe, what the move did, board after the spawn;
+    // boards take words longs each
+    private final long[] queueFrom;
+    private final long[] queueTo;
+    private final MoveDiff[] queueDiffs = new MoveDiff[QUEUE_CAPACITY];
+    private int queueHead;
+    private int queueSize;
+
+    // Step being played
+    private boolean running;
+    private final long[] fromBoard;
+    private final long[] toBoard;
+    private final MoveDiff step;
+    // Cells the step draws in: what changed, plus every tile's path
+    private long redrawMask;
+    // Cells changed by steps that were dropped, for the next frame to redraw
+    private long droppedMask;
+    private float progress;
+    private long lastFrameNanos;
+
+    // Counters, reset by resetStats()
+    private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private long frames;
+    private long framesOverBudget;
+    private long maxFrameNanos;
+    private long maxDrawNanos;
+    private int maxQueueDepth;
+    private long droppedSteps;
+
+    TileAnimator(GameBoard view, GridEngine engine) {
+        this.view = view;
+        this.engine = engine;
+        words = engine.words();
+        queueFrom = new long[QUEUE_CAPACITY * words];
+        queueTo = new long[QUEUE_CAPACITY * words];
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            queueDiffs[i] = new MoveDiff(engine.getCells());
+        }
+        fromBoard = new long[words];
+        toBoard = new long[words];
+        step = new MoveDiff(engine.getCells());
+    }
+
+    void setFrameBudgetNanos(long nanos) {
+        frameBudgetNanos = nanos;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    // Queues the animation for a move that has already been applied to the Game
+    void enqueue(long[] before, MoveDiff diff, long[] after) {
+        if (queueSize == QUEUE_CAPACITY) {
+            // Too far behind: snap the oldest queued step instead of stalling input
+            droppedMask |= queueDiffs[queueHead].getChangedMask();
+            queueHead = (queueHead + 1) % QUEUE_CAPACITY;
+            queueSize--;
+            droppedSteps++;
+        }
+        int tail = (queueHead + queueSize) % QUEUE_CAPACITY;
+        System.arraycopy(before, 0, queueFrom, tail * words, words);
+        queueDiffs[tail].copyFrom(diff);
+        System.arraycopy(after, 0, queueTo, tail * words, words);
+        queueSize++;
+        maxQueueDepth = Math.max(maxQueueDepth, queueSize);
+
+        if (!running) {
+            nextStep();
+            lastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    // Stops immediately, e.g. on restart
+    void cancel() {
+        if (running) {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        running = false;
+        queueSize = 0;
+    }
+
+    private void nextStep() {
+        System.arraycopy(queueFrom, queueHead * words, fromBoard, 0, words);
+        System.arraycopy(queueTo, queueHead * words, toBoard, 0, words);
+        step.copyFrom(queueDiffs[queueHead]);
+        queueHead = (queueHead + 1) % QUEUE_CAPACITY;
+        queueSize--;
+
+        // A tile can slide over a cell that ends up as it was, so its path is added in
+        long mask = step.getChangedMask();
+        int cells = engine.getCells();
+        for (int i = 0; i < cells; i++) {
+            int destination = step.getDestination(i);
+            if (destination >= 0 && destination != i) {
+                mask |= 1L << i | 1L << destination;
+            }
+        }
+        redrawMask = mask;
+        progress = 0;
+        running = true;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+
+        long elapsed = 0;
+        if (lastFrameNanos != 0) {
+            elapsed = frameTimeNanos - lastFrameNanos;
+            PerfMetrics.record(PerfMetrics.FRAME, elapsed);
+            frames++;
+            maxFrameNanos = Math.max(maxFrameNanos, elapsed);
+            if (elapsed > frameBudgetNanos + frameBudgetNanos / 2) {
+                framesOverBudget++;
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+
+        // Every waiting step speeds the current one up. Cells of a step that finishes in
+        // this frame still need their final look drawn.
+        long dirty = redrawMask | droppedMask;
+        droppedMask = 0;
+        progress += (float) elapsed * (1 + queueSize) / STEP_NANOS;
+        while (progress >= 1f) {
+            if (queueSize == 0) {
+                running = false;
+                break;
+            }
+            progress -= 1f;
+            float carry = progress;
+            nextStep();
+            progress = Math.min(carry, 1f);
+            dirty |= redrawMask;
+        }
+
+        view.invalidateCells(dirty);
+        if (running) {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    // Draws the current frame over the already painted board background and empty cells
+    void draw(Canvas canvas, TileBitmapCache tiles, float[] cellOffsets) {
+        long started = System.nanoTime();
+        int size = engine.getSize();
+        int cells = engine.getCells();
+
+        if (progress < SLIDE_FRACTION) {
+            float t = ease(progress / SLIDE_FRACTION);
+            for (int i = 0; i < cells; i++) {
+                int destination = step.getDestination(i);
+                if (destination < 0) {
+                    continue;
+                }
+                float x = lerp(cellOffsets[i % size], cellOffsets[destination % size], t);
+                float y = lerp(cellOffsets[i / size], cellOffsets[destination / size], t);
+                canvas.drawBitmap(tiles.get(engine.exponentAt(fromBoard, i)), x, y, null);
+            }
+        } else {
+            float t = (progress - SLIDE_FRACTION) / (1f - SLIDE_FRACTION);
+            float half = tiles.getTileSize() / 2f;
+            for (int i = 0; i < cells; i++) {
+                int exponent = engine.exponentAt(toBoard, i);
+                if (exponent == 0) {
+                    continue;
+                }
+                float x = cellOffsets[i % size];
+                float y = cellOffsets[i / size];
+                float scale = 1f;
+                if (i == step.getSpawnIndex()) {
+                    scale = t;
+                } else if ((step.getMergeMask() & (1L << i)) != 0) {
+                    scale = 1f + 0.2f * (float) Math.sin(Math.PI * t);
+                }
+
+                if (scale == 1f) {
+                    canvas.drawBitmap(tiles.get(exponent), x, y, null);
+                } else {
+                    canvas.save();
+                    canvas.scale(scale, scale, x + half, y + half);
+                    canvas.drawBitmap(tiles.get(exponent), x, y, null);
+                    canvas.restore();
+                }
+            }
+        }
+        maxDrawNanos = Math.max(maxDrawNanos, System.nanoTime() - started);
+    }
+
+    private static float lerp(float from, float to, float t) {
+        return from + (to - from) * t;
+    }
+
+    // Decelerating curve
+    private static float ease(float t) {
+        return 1f - (1f - t) * (1f - t);
+    }
+
+    int getQueueDepth() {
+        return queueSize;
+    }
+
+    int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    long getFrames() {
+        return frames;
+    }
+
+    // Frames that arrived more than half a frame late
+    long getFramesOverBudget() {
+        return framesOverBudget;
+    }
+
+    long getMaxFrameNanos() {
+        return maxFrameNanos;
+    }
+
+    // Longest time spent in draw() for a single frame
+    long getMaxDrawNanos() {
+        return maxDrawNanos;
+    }
+
+    long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    void resetStats() {
+        frames = 0;
+        framesOverBudget = 0;
+        maxFrameNanos = 0;
+        maxDrawNanos = 0;
+        maxQueueDepth = 0;
+        droppedSteps = 0;
+    }
+}
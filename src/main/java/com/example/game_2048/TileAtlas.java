@@ -0,0 +1,52 @@
+package com.example.game_2048;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+// Every tile glyph for one cell size packed into a single bitmap, for ZenBoard. The glyphs
+// are rendered by a TileBitmapCache once, up front, and frames blit from the atlas with
+// source rectangles, so a board of a thousand cells draws from one bitmap. Slot 0 holds the
+// empty cell, as in the cache.
+final class TileAtlas {
+
+    private static final int COLUMNS = 8;
+    private static final int SLOTS = ByteGridEngine.EXPONENT_LIMIT + 1;
+
+    private final Bitmap sprites;
+    private final int tileSize;
+    // Scratch rectangles for draw(), so a frame allocates nothing
+    private final Rect source = new Rect();
+    private final Rect target = new Rect();
+
+    TileAtlas(float cellSize, float padding) {
+        TileBitmapCache cache = new TileBitmapCache();
+        cache.resize(cellSize, padding);
+        tileSize = cache.getTileSize();
+        int rows = (SLOTS + COLUMNS - 1) / COLUMNS;
+        sprites = Bitmap.createBitmap(COLUMNS * tileSize, rows * tileSize, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(sprites);
+        for (int exponent = 0; exponent < SLOTS; exponent++) {
+            canvas.drawBitmap(cache.get(exponent), exponent % COLUMNS * tileSize,
+                    exponent / COLUMNS * tileSize, null);
+        }
+        cache.clear();
+    }
+
+    int getTileSize() {
+        return tileSize;
+    }
+
+    // Draws the glyph with its top left corner at the given pixel
+    void draw(Canvas canvas, int exponent, int left, int top) {
+        int x = exponent % COLUMNS * tileSize;
+        int y = exponent / COLUMNS * tileSize;
+        source.set(x, y, x + tileSize, y + tileSize);
+        target.set(left, top, left + tileSize, top + tileSize);
+        canvas.drawBitmap(sprites, source, target, null);
+    }
+
+    void recycle() {
+        sprites.recycle();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.game_2048;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+// Pre-rendered tile glyphs (rounded square + number), one bitmap per tile exponent for
+// the current cell size. Index 0 holds the empty cell. A glyph is rendered the first time
+// its value appears and then only blitted, so steady-state frames allocate nothing.
+final class TileBitmapCache {
+
+    private static final int EMPTY_COLOR = 0xFFCDC1B4;
+    private static final int SUPER_COLOR = 0xFF3C3A32;
+
+    // Large grids reach exponents past a nibble
+    private final Bitmap[] tiles = new Bitmap[ByteGridEngine.EXPONENT_LIMIT + 1];
+    private final Paint tilePaint;
+    private final Paint textPaint;
+    private float cellSize;
+    private float padding;
+    private int tileSize;
+
+    TileBitmapCache() {
+        tilePaint = new Paint();
+        tilePaint.setStyle(Paint.Style.FILL);
+        tilePaint.setAntiAlias(true);
+
+        textPaint = new Paint();
+        textPaint.setStyle(Paint.Style.FILL);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setAntiAlias(true);
+    }
+
+    // Drops every glyph rendered for the old size
+    void resize(float cellSize, float padding) {
+        int newTileSize = Math.max(1, Math.round(cellSize - 2 * padding));
+        if (newTileSize == tileSize && cellSize == this.cellSize) {
+            return;
+        }
+        clear();
+        this.cellSize = cellSize;
+        this.padding = padding;
+        this.tileSize = newTileSize;
+    }
+
+    int getTileSize() {
+        return tileSize;
+    }
+
+    Bitmap get(int exponent) {
+        Bitmap tile = tiles[exponent];
+        if (tile == null) {
+            tile = render(exponent);
+            tiles[exponent] = tile;
+        }
+        return tile;
+    }
+
+    void clear() {
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null) {
+                tiles[i].recycle();
+                tiles[i] = null;
+            }
+        }
+    }
+
+    private Bitmap render(int exponent) {
+        Bitmap bitmap = Bitmap.createBitmap(tileSize, tileSize, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        if (exponent == 0) {
+            // Draw empty cell
+            tilePaint.setColor(EMPTY_COLOR);
+            canvas.drawRoundRect(0, 0, tileSize, tileSize, padding, padding, tilePaint);
+            return bitmap;
+        }
+
+        int tileValue = 1 << exponent;
+        // Draw tile
+        tilePaint.setColor(getTileColor(tileValue));
+        canvas.drawRoundRect(0, 0, tileSize, tileSize, padding, padding, tilePaint);
+
+        // Draw number
+        String value = String.valueOf(tileValue);
+        textPaint.setColor(tileValue <= 4 ? 0xFF776E65 : 0xFFF9F6F2);
+        float scale = value.length() <= 2 ? 0.4f : value.length() <= 4 ? 0.3f : 1.2f / value.length();
+        textPaint.setTextSize(cellSize * scale);
+        canvas.drawText(value,
+                tileSize / 2f,
+                tileSize / 2f - ((textPaint.descent() + textPaint.ascent()) / 2),
+                textPaint
+        );
+        return bitmap;
+    }
+
+    private static int getTileColor(int value) {
+        switch (value) {
+            case 2: return 0xFFEEE4DA;
+            case 4: return 0xFFEDE0C8;
+            case 8: return 0xFFF2B179;
+            case 16: return 0xFFF59563;
+            case 32: return 0xFFF67C5F;
+            case 64: return 0xFFF65E3B;
+            case 128: return 0xFFEDCF72;
+            case 256: return 0xFFEDCC61;
+            case 512: return 0xFFEDC850;
+            case 1024: return 0xFFEDC53F;
+            case 2048: return 0xFFEDC22E;
+            // Routine on the 5x5 and larger boards, so they get colours of their own
+            case 4096: return 0xFFA46BD1;
+            case 8192: return 0xFF7E57C2;
+            case 16384: return 0xFF5C6BC0;
+            case 32768: return 0xFF3F51B5;
+            case 65536: return 0xFF283593;
+            // Past that, the original game's dark "super" tile
+            default: return SUPER_COLOR;
+        }
+    }
+}
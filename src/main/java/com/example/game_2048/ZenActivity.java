@@ -0,0 +1,192 @@
+package com.example.game_2048;
+
+import android.app.AlertDialog;
+import android.content.DialogInterface;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
+import android.widget.TextView;
+import androidx.appcompat.app.AppCompatActivity;
+import java.util.Locale;
+
+// Zen mode: one long relaxed game on a 16x16 or bigger board, drawn by a ZenBoard. There is
+// no win dialog, and the games go to neither the leaderboard nor the statistics, which only
+// know the classic sizes. The UI thread forwards swipes to the model and shows the score.
+public class ZenActivity extends AppCompatActivity {
+
+    private static final String TAG = "ZenActivity";
+
+    // Grid size to play, from the home screen or the size dialog
+    static final String EXTRA_ZEN_SIZE = "zenSize";
+
+    private ZenBoard zenBoard;
+    private GameModel model;
+    private SwipeInput swipes;
+    private TextView scoreTextView;
+    private TextView bestScoreTextView;
+    private SharedPreferences prefs;
+    // The game over dialog has been shown for the game on screen
+    private boolean gameOverShown;
+    private final GameModel.Listener snapshots = new GameModel.Listener() {
+        @Override
+        public void onSnapshot(GameModel.Snapshot snapshot) {
+            // The score of one a newer snapshot replaced would go backwards
+            if (snapshot == model.getSnapshot()) {
+                show(snapshot);
+            }
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_zen);
+
+        zenBoard = findViewById(R.id.zenBoard);
+        scoreTextView = findViewById(R.id.score);
+        bestScoreTextView = findViewById(R.id.bestScore);
+        swipes = new SwipeInput(SwipeInput.COMMIT_DP * getResources().getDisplayMetrics().density);
+        prefs = getSharedPreferences("GameState", MODE_PRIVATE);
+        int size = Math.max(GridEngine.MAX_SIZE + 1, Math.min(GridEngine.MAX_WIDE_SIZE,
+                getIntent().getIntExtra(EXTRA_ZEN_SIZE, ZenBoard.SIZES[0])));
+        model = GameModel.get(this, size);
+        zenBoard.setModel(model);
+        if (savedInstanceState != null) {
+            model.restoreInstanceState(savedInstanceState);
+        }
+        model.addListener(snapshots);
+        show(model.getSnapshot());
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        model.saveState();
+        Log.d(TAG, String.format(Locale.US, "%dx%d frames=%d overBudget=%d maxFrameMs=%.1f "
+                        + "maxFrameCells=%d",
+                zenBoard.getGridSize(), zenBoard.getGridSize(), zenBoard.getFrames(),
+                zenBoard.getFramesOverBudget(), zenBoard.getMaxFrameNanos() / 1e6,
+                zenBoard.getMaxFrameCells()));
+        zenBoard.resetStats();
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        model.saveInstanceState(outState);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        model.removeListener(snapshots);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int direction = swipes.onTouchEvent(event);
+        if (direction == SwipeInput.IGNORED) {
+            return super.onTouchEvent(event);
+        }
+        if (direction != SwipeRecognizer.NONE) {
+            model.move(direction, 0, swipes.getCommitNanos());
+        }
+        return true;
+    }
+
+    private void show(GameModel.Snapshot snapshot) {
+        scoreTextView.setText(String.valueOf(snapshot.score));
+        bestScoreTextView.setText(String.valueOf(snapshot.bestScore));
+        if (!snapshot.gameOver) {
+            gameOverShown = false;
+        } else if (!gameOverShown) {
+            gameOverShown = true;
+            showGameOverDialog(snapshot);
+        }
+    }
+
+    private void showGameOverDialog(GameModel.Snapshot snapshot) {
+        new AlertDialog.Builder(this)
+                .setTitle("Game Over!")
+                .setMessage("Your score: " + snapshot.score + "\nBiggest tile: " + snapshot.maxTile)
+                .setPositiveButton("Play Again", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        model.restart();
+                    }
+                })
+                .setNegativeButton("Undo", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        model.undo();
+                    }
+                })
+                .setCancelable(false)
+                .show();
+    }
+
+    private void showSizeDialog() {
+        String[] labels = new String[ZenBoard.SIZES.length];
+        int checked = 0;
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = ZenBoard.SIZES[i] + "x" + ZenBoard.SIZES[i];
+            if (ZenBoard.SIZES[i] == zenBoard.getGridSize()) {
+                checked = i;
+            }
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Board Size")
+                .setSingleChoiceItems(labels, checked, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        dialog.dismiss();
+                        if (ZenBoard.SIZES[which] != zenBoard.getGridSize()) {
+                            // The board gets the size when it is created; each size keeps
+                            // its own game
+                            prefs.edit().putInt("zenSize", ZenBoard.SIZES[which]).apply();
+                            setIntent(new Intent(getIntent())
+                                    .putExtra(EXTRA_ZEN_SIZE, ZenBoard.SIZES[which]));
+                            recreate();
+                        }
+                    }
+                })
+                .show();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.zen_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        GameModel.Snapshot snapshot = model.getSnapshot();
+        menu.findItem(R.id.action_undo).setEnabled(snapshot.canUndo);
+        menu.findItem(R.id.action_redo).setEnabled(snapshot.canRedo);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        if (id == R.id.action_undo) {
+            model.undo();
+            return true;
+        } else if (id == R.id.action_redo) {
+            model.redo();
+            return true;
+        } else if (id == R.id.action_new_game) {
+            model.restart();
+            return true;
+        } else if (id == R.id.action_board_size) {
+            showSizeDialog();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.game_2048;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.Display;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import androidx.annotation.Nullable;
+
+// The board of the zen sizes (16x16 and up), where a View redrawing hundreds of tiles in
+// onDraw would hold up the UI thread. Frames are drawn on a render thread of its own, into
+// the SurfaceView's surface with lockCanvas/unlockCanvasAndPost, blitting every tile from one
+// TileAtlas; the UI thread only forwards swipes to the model.
+//
+// The render thread sleeps until the model publishes and then draws the latest snapshot.
+// lockCanvas waits while the display still holds the buffers, so frames are paced by the
+// display and moves published in between are drawn as one. Only the cells that changed since
+// the last frame are redrawn: the surface keeps the rest of the previous frame outside the
+// dirty rectangle. There is no slide animation; tiles jump to their new cells.
+public class ZenBoard extends SurfaceView implements SurfaceHolder.Callback {
+
+    // The sizes offered, the first one by default
+    static final int[] SIZES = {16, 24, 32};
+
+    private static final int BACKGROUND_COLOR = 0xFFFAF8EF;
+
+    private GameModel model;
+    private int gridSize;
+
+    // Guarded by lock: the thread that draws into the current surface, and what it has to do
+    private final Object lock = new Object();
+    private Thread renderThread;
+    private boolean pending;
+    private boolean resized;
+    private int surfaceWidth;
+    private int surfaceHeight;
+    private final Runnable wake = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (lock) {
+                pending = true;
+                lock.notifyAll();
+            }
+        }
+    };
+
+    // Render thread only: the geometry, and the exponent drawn in each cell. A new surface
+    // is drawn in full first, so what shown holds before that does not matter.
+    private int[] shown;
+    private int[] latest;
+    private final Rect frameRect = new Rect();
+    private final Rect dirty = new Rect();
+    private final Rect boardRect = new Rect();
+    private final Rect gridArea = new Rect();
+    private final Paint gridPaint;
+    private TileAtlas atlas;
+    private int cellSize;
+    private int tileInset;
+
+    // Frame times of the render thread, lockCanvas to posted, for the log
+    private volatile long frameBudgetNanos = 16_666_667L;
+    private volatile long frames;
+    private volatile long framesOverBudget;
+    private volatile long maxFrameNanos;
+    private volatile long maxFrameCells;
+
+    public ZenBoard(Context context) {
+        this(context, null);
+    }
+
+    public ZenBoard(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public ZenBoard(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        gridPaint = new Paint();
+        gridPaint.setStyle(Paint.Style.FILL);
+        gridPaint.setColor(0xFFBBADA0);
+        getHolder().addCallback(this);
+    }
+
+    // The activity sets the model in onCreate, before the surface is created
+    void setModel(GameModel model) {
+        this.model = model;
+        gridSize = model.getGridSize();
+        shown = new int[gridSize * gridSize];
+        latest = new int[gridSize * gridSize];
+    }
+
+    int getGridSize() {
+        return gridSize;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+
+        int size = Math.min(getMeasuredWidth(), getMeasuredHeight());
+        setMeasuredDimension(size, size);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        Display display = getDisplay();
+        if (display != null && display.getRefreshRate() > 0) {
+            frameBudgetNanos = (long) (1_000_000_000L / display.getRefreshRate());
+        }
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                render();
+            }
+        }, "zen-render");
+        synchronized (lock) {
+            renderThread = thread;
+            pending = false;
+            surfaceWidth = 0;
+            surfaceHeight = 0;
+        }
+        model.setPublishedCallback(wake);
+        thread.start();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        synchronized (lock) {
+            surfaceWidth = width;
+            surfaceHeight = height;
+            resized = true;
+            pending = true;
+            lock.notifyAll();
+        }
+    }
+
+    // The surface must not be drawn into once this returns, so it waits for the render
+    // thread to finish its frame and stop
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        model.setPublishedCallback(null);
+        Thread thread;
+        synchronized (lock) {
+            thread = renderThread;
+            renderThread = null;
+            lock.notifyAll();
+        }
+        boolean interrupted = false;
+        while (thread != null && thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void render() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+        Thread self = Thread.currentThread();
+        SurfaceHolder holder = getHolder();
+        try {
+            while (true) {
+                boolean full;
+                int width;
+                int height;
+                synchronized (lock) {
+                    while (renderThread == self && !(pending && surfaceWidth > 0)) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (renderThread != self) {
+                        return;
+                    }
+                    pending = false;
+                    full = resized;
+                    resized = false;
+                    width = surfaceWidth;
+                    height = surfaceHeight;
+                }
+                if (full) {
+                    layout(width, height);
+                }
+                drawFrame(holder, full);
+            }
+        } finally {
+            if (atlas != null) {
+                atlas.recycle();
+                atlas = null;
+            }
+        }
+    }
+
+    // Cells are whole pixels, so the dirty rectangles of two frames never split one
+    private void layout(int width, int height) {
+        frameRect.set(0, 0, width, height);
+        cellSize = Math.max(1, Math.min(width, height) / gridSize);
+        float padding = cellSize * 0.1f;
+        int side = cellSize * gridSize;
+        boardRect.set((width - side) / 2, (height - side) / 2,
+                (width - side) / 2 + side, (height - side) / 2 + side);
+        if (atlas != null) {
+            atlas.recycle();
+        }
+        atlas = new TileAtlas(cellSize, padding);
+        tileInset = (cellSize - atlas.getTileSize()) / 2;
+    }
+
+    private void drawFrame(SurfaceHolder holder, boolean full) {
+        GameModel.Snapshot snapshot = model.getSnapshot();
+        int minRow = gridSize;
+        int maxRow = -1;
+        int minColumn = gridSize;
+        int maxColumn = -1;
+        for (int i = 0; i < latest.length; i++) {
+            // An empty grid until the saved game is read
+            latest[i] = snapshot.loaded ? snapshot.exponentAt(i) : 0;
+            if (full || latest[i] != shown[i]) {
+                int row = i / gridSize;
+                int column = i % gridSize;
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+                minColumn = Math.min(minColumn, column);
+                maxColumn = Math.max(maxColumn, column);
+            }
+        }
+        if (maxRow < 0) {
+            return;
+        }
+        if (full) {
+            dirty.set(frameRect);
+        } else {
+            dirty.set(boardRect.left + minColumn * cellSize, boardRect.top + minRow * cellSize,
+                    boardRect.left + (maxColumn + 1) * cellSize,
+                    boardRect.top + (maxRow + 1) * cellSize);
+        }
+
+        Canvas canvas = holder.lockCanvas(dirty);
+        // The surface went away; surfaceDestroyed is about to stop this thread
+        if (canvas == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        int cells = 0;
+        try {
+            // lockCanvas may widen the rectangle, up to the whole surface when the buffer it
+            // hands out does not hold the previous frame, and every pixel in it is redrawn
+            if (!boardRect.contains(dirty)) {
+                canvas.drawColor(BACKGROUND_COLOR);
+            }
+            gridArea.set(dirty);
+            if (gridArea.intersect(boardRect)) {
+                canvas.drawRect(gridArea, gridPaint);
+                int firstRow = (gridArea.top - boardRect.top) / cellSize;
+                int lastRow = (gridArea.bottom - 1 - boardRect.top) / cellSize;
+                int firstColumn = (gridArea.left - boardRect.left) / cellSize;
+                int lastColumn = (gridArea.right - 1 - boardRect.left) / cellSize;
+                for (int row = firstRow; row <= lastRow; row++) {
+                    int top = boardRect.top + row * cellSize + tileInset;
+                    for (int column = firstColumn; column <= lastColumn; column++) {
+                        int i = row * gridSize + column;
+                        atlas.draw(canvas, latest[i],
+                                boardRect.left + column * cellSize + tileInset, top);
+                        shown[i] = latest[i];
+                        cells++;
+                    }
+                }
+            }
+        } finally {
+            holder.unlockCanvasAndPost(canvas);
+        }
+
+        long frameNanos = System.nanoTime() - started;
+        frames++;
+        if (frameNanos > frameBudgetNanos) {
+            framesOverBudget++;
+        }
+        if (frameNanos > maxFrameNanos) {
+            maxFrameNanos = frameNanos;
+            maxFrameCells = cells;
+        }
+    }
+
+    long getFrames() {
+        return frames;
+    }
+
+    long getFramesOverBudget() {
+        return framesOverBudget;
+    }
+
+    long getMaxFrameNanos() {
+        return maxFrameNanos;
+    }
+
+    // Cells redrawn in the slowest frame
+    long getMaxFrameCells() {
+        return maxFrameCells;
+    }
+
+    void resetStats() {
+        frames = 0;
+        framesOverBudget = 0;
+        maxFrameNanos = 0;
+        maxFrameCells = 0;
+    }
+}